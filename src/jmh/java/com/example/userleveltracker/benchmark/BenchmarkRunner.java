@@ -0,0 +1,42 @@
+package com.example.userleveltracker.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks once per thread count of the {@code jmh.threads} system property and writes
+ * the results of each run as JSON to {@code jmh.results/jmh-threads-<n>.json}, so results can be
+ * compared between releases. Other JMH command line options, e.g. a benchmark name pattern or
+ * {@code -p entries=1000}, are passed through.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        // the exec plugin passes jmh.args as a single argument
+        CommandLineOptions commandLine = new CommandLineOptions(Arrays.stream(args)
+                .flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+                .filter(arg -> !arg.isEmpty())
+                .toArray(String[]::new));
+        Path results = Paths.get(System.getProperty("jmh.results", "target/jmh"));
+        Files.createDirectories(results);
+
+        for (String threadCount : System.getProperty("jmh.threads", "1").split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(results.resolve("jmh-threads-" + threads + ".json").toString())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
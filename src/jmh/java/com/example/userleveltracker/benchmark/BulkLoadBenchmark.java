@@ -0,0 +1,100 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.bulkload.BulkLoadFormat;
+import com.example.userleveltracker.bulkload.BulkLoader;
+import com.example.userleveltracker.model.BulkLoadResult;
+import com.example.userleveltracker.persistence.WriteAheadLog;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a CSV file of {@value #RECORDS} results into an empty in-memory store with the
+ * {@link BulkLoader} on {@code parallelism} threads, compared with reading the file line by line and
+ * storing every record with {@code setInfo}, as a stream of single writes would.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BulkLoadBenchmark {
+    private static final int RECORDS = 2_000_000;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path file;
+    private InMemoryDataStorageService dataStore;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("bulk-load", ".csv");
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < RECORDS; i++) {
+                writer.write((random.nextInt(100_000) + 1) + "," + (random.nextInt(1_000) + 1) + ","
+                        + random.nextInt(1_000_000) + "\n");
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyStore() {
+        dataStore = new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", StorageState.RESULTS_LIMIT);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", StorageState.RESULTS_LIMIT);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public BulkLoadResult bulkLoad() {
+        BulkLoader loader = new BulkLoader(dataStore,
+                new StaticListableBeanFactory().getBeanProvider(WriteAheadLog.class));
+        ReflectionTestUtils.setField(loader, "parallelism", parallelism);
+        return loader.load(file, BulkLoadFormat.CSV);
+    }
+
+    @Benchmark
+    public long setInfoPerLine() throws IOException {
+        long records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf(',');
+                int second = line.indexOf(',', first + 1);
+                dataStore.setInfo(Integer.parseInt(line.substring(0, first)),
+                        Integer.parseInt(line.substring(first + 1, second)),
+                        Integer.parseInt(line.substring(second + 1)));
+                records++;
+            }
+        }
+        return records;
+    }
+}
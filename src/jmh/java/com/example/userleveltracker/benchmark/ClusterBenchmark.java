@@ -0,0 +1,118 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.cluster.ClusterServer;
+import com.example.userleveltracker.cluster.ClusteredDataStorageService;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of a cluster of {@code nodes} nodes running in this JVM and talking over localhost.
+ *
+ * <p>Every benchmark thread writes through its own node, round robin, so the writes enter the cluster
+ * through all nodes as they would behind a load balancer. The nodes share the CPUs of the host, so the
+ * throughput only scales with the nodes while the host has idle cores; on separate hosts every node adds
+ * its own cores.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ClusterBenchmark {
+    private static final int BATCH = 256;
+    private static final int LEVELS = 1_000;
+    private static final int USERS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class ClusterState {
+        @Param({"1", "2", "4"})
+        public int nodes;
+
+        ClusterServer[] servers;
+        ClusteredDataStorageService[] services;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            servers = new ClusterServer[nodes];
+            services = new ClusteredDataStorageService[nodes];
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            InMemoryDataStorageService[] engines = new InMemoryDataStorageService[nodes];
+            for (int i = 0; i < nodes; i++) {
+                engines[i] = new InMemoryDataStorageService();
+                ReflectionTestUtils.setField(engines[i], "resultsLimit", StorageState.RESULTS_LIMIT);
+                ReflectionTestUtils.setField(engines[i], "maxResultsLimit", StorageState.RESULTS_LIMIT);
+                servers[i] = new ClusterServer(engines[i], 0, 64);
+                servers[i].start();
+                addresses.add(new InetSocketAddress("localhost", servers[i].getPort()));
+            }
+            for (int i = 0; i < nodes; i++) {
+                services[i] = new ClusteredDataStorageService(engines[i], addresses, i, 128, 16, 5000);
+                ReflectionTestUtils.setField(services[i], "resultsLimit", StorageState.RESULTS_LIMIT);
+                ReflectionTestUtils.setField(services[i], "maxResultsLimit", StorageState.RESULTS_LIMIT);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            for (int i = 0; i < nodes; i++) {
+                services[i].close();
+                servers[i].close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState {
+        private static int writers;
+
+        ClusteredDataStorageService node;
+        List<UserInfo> batch = new ArrayList<>(BATCH);
+        SplittableRandom random = new SplittableRandom();
+
+        @Setup(Level.Trial)
+        public void setUp(ClusterState cluster) {
+            synchronized (WriterState.class) {
+                node = cluster.services[writers++ % cluster.nodes];
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void nextBatch() {
+            batch.clear();
+            for (int i = 0; i < BATCH; i++) {
+                batch.add(UserInfo.builder()
+                        .userId(random.nextInt(USERS) + 1)
+                        .levelId(random.nextInt(LEVELS) + 1)
+                        .result(random.nextInt(1_000_000)).build());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void setInfoBatch(WriterState writer) {
+        writer.node.setInfoBatch(writer.batch);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.model.UserInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the single operations of the storage engines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class DataStorageServiceBenchmark {
+
+    @Benchmark
+    public void setInfo(StorageState state, ThreadCursor cursor) {
+        int i = cursor.next();
+        state.dataStore.setInfo(state.userIds[i], state.levelIds[i], state.nextResult(i, cursor));
+    }
+
+    @Benchmark
+    public List<UserInfo> getUserInfo(StorageState state, ThreadCursor cursor) {
+        return state.dataStore.getUserInfo(state.userIds[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<UserInfo> getLevelInfo(StorageState state, ThreadCursor cursor) {
+        return state.dataStore.getLevelInfo(state.levelIds[cursor.next()]);
+    }
+}
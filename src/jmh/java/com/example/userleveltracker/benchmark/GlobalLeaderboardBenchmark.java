@@ -0,0 +1,71 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.global.GlobalLeaderboard;
+import com.example.userleveltracker.model.UserScore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of reading the top users by total score from the incrementally maintained
+ * {@link GlobalLeaderboard} compared with summing the best results of every user and sorting the users on
+ * every read, and cost of a write keeping the totals up to date.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GlobalLeaderboardBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class GlobalState {
+        GlobalLeaderboard global;
+
+        @Setup(Level.Trial)
+        public void setUp(StorageState storage) {
+            global = new GlobalLeaderboard(storage.dataStore);
+            ReflectionTestUtils.setField(global, "resultsLimit", StorageState.RESULTS_LIMIT);
+            ReflectionTestUtils.setField(global, "maxResultsLimit", StorageState.RESULTS_LIMIT);
+            ReflectionTestUtils.setField(global, "shardCount", 16);
+            global.init();
+        }
+    }
+
+    @Benchmark
+    public List<UserScore> incrementalTop(GlobalState state) {
+        return state.global.getTop(null, null);
+    }
+
+    @Benchmark
+    public List<UserScore> recomputedTop(StorageState state) {
+        Map<Integer, Long> totals = new HashMap<>();
+        state.dataStore.forEachResult((userId, levelId, result) -> totals.merge(userId, (long) result, Long::sum));
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(StorageState.RESULTS_LIMIT)
+                .map(total -> UserScore.builder().userId(total.getKey()).score(total.getValue()).build())
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void setInfo(StorageState state, GlobalState global, ThreadCursor cursor) {
+        int i = cursor.next();
+        state.dataStore.setInfo(state.userIds[i], state.levelIds[i], state.nextResult(i, cursor));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.userleveltracker.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load driver comparing the execution modes of a running application (see {@code web.execution-mode}).
+ *
+ * <p>The driver keeps {@code connections} requests in flight for {@code seconds} seconds, each on its own
+ * HTTP/1.1 connection, and prints one JSON line with the throughput, the errors, and the live threads and
+ * heap of the application sampled from {@code /stats/runtime} when idle and at the middle of the run.
+ * Run it once against an application started with {@code web.execution-mode=platform} and once with
+ * {@code virtual}:</p>
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.main=com.example.userleveltracker.benchmark.HttpLoadDriver \
+ *     -Djmh.args="http://localhost:8080 GET /levelinfo/1 10000 30"
+ * </pre>
+ */
+public class HttpLoadDriver {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String[] arguments = Arrays.stream(args)
+                .flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+                .filter(arg -> !arg.isEmpty())
+                .toArray(String[]::new);
+        String baseUrl = arguments[0];
+        String method = arguments[1];
+        String path = arguments[2];
+        int connections = Integer.parseInt(arguments[3]);
+        long seconds = Long.parseLong(arguments[4]);
+        String body = arguments.length > 5 ? arguments[5] : "";
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, body.isEmpty()
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        JsonNode idle = runtimeStats(client, baseUrl);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        CompletableFuture<?>[] chains = new CompletableFuture[connections];
+        for (int i = 0; i < connections; i++) {
+            chains[i] = loop(client, request, deadline, completed, errors);
+        }
+        Thread.sleep(Duration.ofSeconds(seconds).toMillis() / 2);
+        JsonNode peak = runtimeStats(client, baseUrl);
+        CompletableFuture.allOf(chains).join();
+
+        long heapDelta = peak.get("heap_used_bytes").asLong() - idle.get("heap_used_bytes").asLong();
+        System.out.println(OBJECT_MAPPER.createObjectNode()
+                .put("execution_mode", peak.get("execution_mode").asText())
+                .put("connections", connections)
+                .put("seconds", seconds)
+                .put("requests", completed.sum())
+                .put("errors", errors.sum())
+                .put("requests_per_second", completed.sum() / (double) seconds)
+                .put("idle_threads", idle.get("live_threads").asInt())
+                .put("peak_threads", peak.get("live_threads").asInt())
+                .put("heap_bytes_per_connection", heapDelta / (double) connections));
+    }
+
+    private static CompletableFuture<Void> loop(HttpClient client, HttpRequest request, long deadline,
+                                                LongAdder completed, LongAdder errors) {
+        if (System.nanoTime() - deadline >= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (failure == null && response.statusCode() < 400) {
+                        completed.increment();
+                    } else {
+                        errors.increment();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, request, deadline, completed, errors));
+    }
+
+    private static JsonNode runtimeStats(HttpClient client, String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/stats/runtime")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
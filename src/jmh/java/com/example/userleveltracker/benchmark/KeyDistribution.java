@@ -0,0 +1,55 @@
+package com.example.userleveltracker.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the IDs drawn by the benchmarks, from {@code 1} to {@code n}.
+ */
+public enum KeyDistribution {
+    /**
+     * Every ID is drawn with the same probability.
+     */
+    UNIFORM {
+        @Override
+        public int[] sample(int n, int count, SplittableRandom random) {
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = random.nextInt(n) + 1;
+            }
+            return ids;
+        }
+    },
+    /**
+     * The ID of rank {@code k} is drawn with a probability proportional to {@code 1 / k}, so a few hot
+     * levels and users receive most of the traffic.
+     */
+    ZIPF {
+        @Override
+        public int[] sample(int n, int count, SplittableRandom random) {
+            double[] cumulative = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1.0 / k;
+                cumulative[k - 1] = sum;
+            }
+
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                ids[i] = (index >= 0 ? index : -index - 1) + 1;
+            }
+            return ids;
+        }
+    };
+
+    /**
+     * Draws the IDs.
+     *
+     * @param n      the highest ID
+     * @param count  the number of IDs to draw
+     * @param random the source of randomness
+     * @return the drawn IDs
+     */
+    public abstract int[] sample(int n, int count, SplittableRandom random);
+}
@@ -0,0 +1,47 @@
+package com.example.userleveltracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a mix of writes and reads of the storage engines. Of every 100 operations,
+ * {@code writePercent} are writes and the rest are split evenly between user and level reads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class MixedWorkloadBenchmark {
+
+    /**
+     * Storage state with the share of writes in the workload.
+     */
+    public static class MixedState extends StorageState {
+        @Param({"1", "10", "50", "90"})
+        public int writePercent;
+    }
+
+    @Benchmark
+    public void mixed(MixedState state, ThreadCursor cursor, Blackhole blackhole) {
+        int i = cursor.next();
+        int operation = state.results[i] % 100;
+
+        if (operation < state.writePercent) {
+            state.dataStore.setInfo(state.userIds[i], state.levelIds[i], state.nextResult(i, cursor));
+        } else if ((operation & 1) == 0) {
+            blackhole.consume(state.dataStore.getUserInfo(state.userIds[i]));
+        } else {
+            blackhole.consume(state.dataStore.getLevelInfo(state.levelIds[i]));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.UserInfoRq;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of checking a submission and of rejecting a lookup of a missing user, comparing Bean Validation
+ * with {@link UserInfoRq#validate()} and an exception recording its stack trace with the stackless
+ * {@link DataProcessingException}. The exceptions are thrown from a few frames deep, like from a storage
+ * engine behind its proxy. Run with {@code -prof gc} to compare the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectedSubmissionBenchmark {
+    private static final int CALL_DEPTH = 20;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserInfoRq request;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        request = UserInfoRq.builder().userId(1).levelId(valid ? 1 : -1).result(55).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public String validateBeanValidation() {
+        Set<ConstraintViolation<UserInfoRq>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList())
+                .toString();
+    }
+
+    @Benchmark
+    public String validateFastPath() {
+        return request.validate();
+    }
+
+    @Benchmark
+    public String rejectWithStackTrace() {
+        try {
+            return lookUp(CALL_DEPTH, true);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String rejectStackless() {
+        try {
+            return lookUp(CALL_DEPTH, false);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private String lookUp(int depth, boolean stackTrace) {
+        if (depth > 0) {
+            return lookUp(depth - 1, stackTrace);
+        }
+        String message = "Oops! There are no results for the specified user ID: " + request.getUserId();
+        throw stackTrace ? new IllegalStateException(message) : new DataProcessingException(message);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.service.impl.PackedDataStorageService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Storage engine prefilled with {@code entries} results, shared by all benchmark threads.
+ *
+ * <p>The results are spread over {@value #LEVELS} levels and {@code entries / 100} users drawn from the
+ * configured {@link KeyDistribution}. The operations of the benchmarks draw their users, levels and
+ * results from pregenerated samples, so no randomness is computed in the measured code.</p>
+ *
+ * <p>The prefilled results are below {@value #RESULT_BOUND}, and a write submits its sampled result raised by
+ * {@value #RESULT_BOUND} for every pass its thread made over the samples, so a write of a pass improves on
+ * every result stored in the earlier passes, instead of repeating a result that is already stored and
+ * measuring only the rejection. Only a user and level drawn twice in the same pass, such as a hot key of
+ * the {@code ZIPF} distribution, may be rejected.</p>
+ */
+@State(Scope.Benchmark)
+public class StorageState {
+    static final int LEVELS = 1_000;
+    static final int SAMPLES = 1 << 20;
+    static final int RESULTS_LIMIT = 20;
+    static final int RESULT_BOUND = 1_000_000;
+
+    @Param({"in-memory", "packed"})
+    public String engine;
+
+    @Param({"1000", "100000", "10000000"})
+    public int entries;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    DataStorageService dataStore;
+    int[] userIds;
+    int[] levelIds;
+    int[] results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataStore = "packed".equals(engine) ? new PackedDataStorageService() : new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", RESULTS_LIMIT);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", RESULTS_LIMIT);
+
+        SplittableRandom random = new SplittableRandom(42);
+        int users = Math.max(1, entries / 100);
+        int remaining = entries;
+        while (remaining > 0) {
+            int batch = Math.min(remaining, SAMPLES);
+            int[] batchUserIds = distribution.sample(users, batch, random);
+            int[] batchLevelIds = distribution.sample(LEVELS, batch, random);
+            for (int i = 0; i < batch; i++) {
+                dataStore.setInfo(batchUserIds[i], batchLevelIds[i], random.nextInt(RESULT_BOUND));
+            }
+            remaining -= batch;
+        }
+
+        userIds = distribution.sample(users, SAMPLES, random);
+        levelIds = distribution.sample(LEVELS, SAMPLES, random);
+        results = random.ints(SAMPLES, 0, RESULT_BOUND).toArray();
+        for (int i = 0; i < SAMPLES; i++) {
+            // make sure every sampled user and level has results, so the reads never miss
+            dataStore.setInfo(userIds[i], levelIds[i], results[i] / 2);
+        }
+    }
+
+    /**
+     * Returns the result a write submits for a sample, raised above the results of the earlier passes.
+     */
+    int nextResult(int sample, ThreadCursor cursor) {
+        return results[sample] + cursor.pass() * RESULT_BOUND;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.userleveltracker.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-thread position in the pregenerated samples of a {@link StorageState}, and the number of passes the
+ * thread made over them.
+ */
+@State(Scope.Thread)
+public class ThreadCursor {
+    private static final int MAX_PASSES = Integer.MAX_VALUE / StorageState.RESULT_BOUND - 1;
+
+    private int position = ThreadLocalRandom.current().nextInt(StorageState.SAMPLES);
+    private int pass = 1;
+
+    int next() {
+        position = (position + 1) & (StorageState.SAMPLES - 1);
+        if (position == 0 && pass < MAX_PASSES) {
+            pass++;
+        }
+        return position;
+    }
+
+    int pass() {
+        return pass;
+    }
+}
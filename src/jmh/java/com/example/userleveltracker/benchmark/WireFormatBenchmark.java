@@ -0,0 +1,85 @@
+package com.example.userleveltracker.benchmark;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserInfoRq;
+import com.example.userleveltracker.wire.VarintDecoder;
+import com.example.userleveltracker.wire.VarintEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding a page of top results and of decoding a submitted result, in JSON with Jackson and in
+ * the varint records format. Run with {@code -prof gc} to compare the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+    // the application's mapper has the parameter names module too, to read UserInfoRq through its constructor
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ParameterNamesModule());
+    private final VarintEncoder encoder = new VarintEncoder(4096);
+
+    private List<UserInfo> page;
+    private byte[] jsonRecord;
+    private byte[] varintRecord;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        page = new ArrayList<>();
+        for (int i = 0; i < StorageState.RESULTS_LIMIT; i++) {
+            page.add(UserInfo.builder()
+                    .userId(random.nextInt(1_000_000) + 1)
+                    .levelId(random.nextInt(1_000) + 1)
+                    .result(random.nextInt(1_000_000)).build());
+        }
+
+        UserInfo record = page.get(0);
+        jsonRecord = objectMapper.writeValueAsBytes(UserInfoRq.builder()
+                .userId(record.getUserId()).levelId(record.getLevelId()).result(record.getResult()).build());
+        varintRecord = new VarintEncoder(16).putRecords(List.of(record)).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodePageJson() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public int encodePageVarint() {
+        return encoder.reset().putRecords(page).size();
+    }
+
+    @Benchmark
+    public UserInfoRq decodeRecordJson() throws IOException {
+        return objectMapper.readValue(jsonRecord, UserInfoRq.class);
+    }
+
+    @Benchmark
+    public UserInfoRq decodeRecordVarint() {
+        VarintDecoder decoder = new VarintDecoder(varintRecord, varintRecord.length);
+        return UserInfoRq.builder()
+                .userId(decoder.readInt())
+                .levelId(decoder.readInt())
+                .result(decoder.readInt()).build();
+    }
+}
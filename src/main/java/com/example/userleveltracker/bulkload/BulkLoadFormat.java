@@ -0,0 +1,35 @@
+package com.example.userleveltracker.bulkload;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+
+/**
+ * Format of the files read by a {@link BulkLoader}.
+ */
+public enum BulkLoadFormat {
+    /**
+     * One record per line with the user ID, the level ID and the result separated by commas. A first line
+     * that does not start with a digit is a header and is skipped.
+     */
+    CSV,
+    /**
+     * Records of 12 bytes: the user ID, the level ID and the result as big-endian {@code int} values, as
+     * written by the binary export.
+     */
+    BINARY;
+
+    /**
+     * Returns the format with the given name, ignoring case.
+     *
+     * @param name the name of the format
+     * @return the format with the name
+     * @throws DataProcessingException if there is no format with the name
+     */
+    public static BulkLoadFormat of(String name) {
+        for (BulkLoadFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new DataProcessingException("Format must be one of: csv, binary");
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.userleveltracker.bulkload;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.BulkLoadResult;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.persistence.WriteAheadLog;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.impl.IntIntHashTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads a large file of results into the storage, at startup with {@code storage.bulk-load.file} or on
+ * demand.
+ *
+ * <p>The file is split into chunks of at most {@value #MAX_CHUNK_BYTES} bytes, a CSV chunk owning the lines
+ * that start in it and a binary chunk holding whole records. The chunks are memory-mapped and parsed by the
+ * workers of a {@link ForkJoinPool} of {@code storage.bulk-load.parallelism} threads. Every worker keeps
+ * the best result of every user on every level it read in its own partition, a table per level, so the
+ * parsing takes no lock and a result repeated in the file is kept once.</p>
+ *
+ * <p>The partitions are then merged in one step, level by level in parallel: the tables of a level are
+ * merged into one and its results are stored with one {@link DataStorageService#loadResults} call, which
+ * takes the monitor of the level once and builds the users' indexes. The loaded results are not live
+ * submissions: no listener is notified of them one by one and the write-ahead log does not log them. Once
+ * every level is stored, {@link DataStorageService#completeLoad()} lets the listeners rebuild their state
+ * from the storage, and with the write-ahead log enabled a snapshot is written, so the loaded results are
+ * durable when the load returns. In clustered mode the snapshot covers the levels of this node; the other
+ * nodes write theirs at their next snapshot interval.</p>
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BulkLoader {
+    private static final int RECORD_BYTES = 3 * Integer.BYTES;
+    private static final int MAX_CHUNK_BYTES = 32 * 1024 * 1024;
+    private static final int MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int MAX_LINE_BYTES = 256;
+
+    private final DataStorageService dataStore;
+    private final ObjectProvider<WriteAheadLog> writeAheadLog;
+
+    @Value("${storage.bulk-load.file}")
+    private String startupFile;
+    @Value("${storage.bulk-load.format}")
+    private String startupFormat;
+    @Value("${storage.bulk-load.directory}")
+    private String directory;
+    @Value("${storage.bulk-load.parallelism}")
+    private int parallelism;
+
+    /**
+     * Loads the file of {@code storage.bulk-load.file}, if set, once the application is ready, which is
+     * after the write-ahead log is recovered and every listener of the storage is registered.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (startupFile == null || startupFile.isBlank()) {
+            return;
+        }
+        BulkLoadResult result = load(Paths.get(startupFile), BulkLoadFormat.of(startupFormat));
+        log.info("Loaded {} records ({} rejected, {} stored) from {} in {} ms, {} records/s",
+                result.getRecords(), result.getRejected(), result.getStored(), result.getFile(),
+                result.getMillis(), result.getRecordsPerSecond());
+    }
+
+    /**
+     * Loads a file of the {@code storage.bulk-load.directory} directory.
+     *
+     * @param file   the name of the file, relative to the directory
+     * @param format the format of the file
+     * @return the {@link BulkLoadResult} of the load
+     * @throws DataProcessingException if the file is outside the directory or cannot be loaded
+     */
+    public BulkLoadResult loadFromDirectory(String file, BulkLoadFormat format) {
+        Path root = Paths.get(directory).toAbsolutePath().normalize();
+        Path path = root.resolve(file).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new DataProcessingException("File must be in the bulk load directory");
+        }
+        return load(path, format);
+    }
+
+    /**
+     * Loads a file.
+     *
+     * @param path   the path of the file
+     * @param format the format of the file
+     * @return the {@link BulkLoadResult} of the load
+     * @throws DataProcessingException     if the file cannot be read or is malformed
+     * @throws StorageUnavailableException if the loaded results cannot be written to a snapshot
+     */
+    public BulkLoadResult load(Path path, BulkLoadFormat format) {
+        long start = System.nanoTime();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (format == BulkLoadFormat.BINARY && size % RECORD_BYTES != 0) {
+                throw new DataProcessingException("The size of a binary file must be a multiple of "
+                        + RECORD_BYTES + " bytes");
+            }
+
+            long chunkBytes = chunkBytes(size, threads, format);
+            int chunks = (int) ((size + chunkBytes - 1) / chunkBytes);
+            Map<Thread, Partition> partitions = new ConcurrentHashMap<>();
+            pool.invoke(new Split(0, chunks, chunk -> {
+                Partition partition = partitions.computeIfAbsent(Thread.currentThread(), t -> new Partition());
+                long from = chunk * chunkBytes;
+                long to = Math.min(from + chunkBytes, size);
+                if (format == BulkLoadFormat.BINARY) {
+                    parseBinary(channel, from, to, partition);
+                } else {
+                    parseCsv(channel, from, to, size, partition);
+                }
+            }));
+
+            long stored = merge(pool, partitions.values());
+            dataStore.completeLoad();
+            WriteAheadLog wal = writeAheadLog.getIfAvailable();
+            if (wal != null) {
+                snapshot(wal);
+            }
+            long records = 0;
+            long rejected = 0;
+            for (Partition partition : partitions.values()) {
+                records += partition.records;
+                rejected += partition.rejected;
+            }
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return BulkLoadResult.builder()
+                    .file(path.toString())
+                    .format(format.name().toLowerCase())
+                    .bytes(size)
+                    .records(records)
+                    .rejected(rejected)
+                    .stored(stored)
+                    .parallelism(threads)
+                    .millis(millis)
+                    .recordsPerSecond(records * 1000 / Math.max(millis, 1))
+                    .build();
+        } catch (IOException | UncheckedIOException e) {
+            throw new DataProcessingException("Cannot load " + path + ": " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long merge(ForkJoinPool pool, Iterable<Partition> partitions) {
+        Set<Integer> levelIdSet = new HashSet<>();
+        for (Partition partition : partitions) {
+            levelIdSet.addAll(partition.levels.keySet());
+        }
+        int[] levelIds = levelIdSet.stream().mapToInt(Integer::intValue).toArray();
+
+        LongAdder stored = new LongAdder();
+        pool.invoke(new Split(0, levelIds.length, i -> {
+            int levelId = levelIds[i];
+            IntIntHashTable merged = null;
+            for (Partition partition : partitions) {
+                IntIntHashTable table = partition.levels.get(levelId);
+                if (table == null) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = table;
+                } else {
+                    table.forEach(merged::putMax);
+                }
+            }
+
+            List<UserInfo> records = new ArrayList<>(merged.size());
+            merged.forEach((userId, result) ->
+                    records.add(UserInfo.builder().userId(userId).levelId(levelId).result(result).build()));
+            stored.add(dataStore.loadResults(records));
+        }));
+        return stored.sum();
+    }
+
+    private static void snapshot(WriteAheadLog wal) {
+        try {
+            wal.snapshot();
+        } catch (IOException e) {
+            throw new StorageUnavailableException("The results were loaded but could not be written to a snapshot",
+                    e);
+        }
+    }
+
+    private static long chunkBytes(long size, int threads, BulkLoadFormat format) {
+        // a few chunks per thread, so a thread that finishes early steals the rest
+        long bytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (threads * 4L)));
+        return format == BulkLoadFormat.BINARY ? bytes - bytes % RECORD_BYTES : bytes;
+    }
+
+    private static void parseBinary(FileChannel channel, long from, long to, Partition partition) {
+        MappedByteBuffer buffer = map(channel, from, to - from);
+        for (int i = 0; i < buffer.limit(); i += RECORD_BYTES) {
+            partition.add(buffer.getInt(i), buffer.getInt(i + Integer.BYTES), buffer.getInt(i + 2 * Integer.BYTES));
+        }
+    }
+
+    /**
+     * Parses the lines starting in {@code [from, to)}. The byte before the chunk is mapped too, to tell
+     * whether the chunk starts a line, and the bytes after it up to the longest line allowed, to finish its
+     * last line.
+     */
+    private static void parseCsv(FileChannel channel, long from, long to, long size, Partition partition) {
+        long mapFrom = Math.max(from - 1, 0);
+        MappedByteBuffer buffer = map(channel, mapFrom, Math.min(size, to + MAX_LINE_BYTES) - mapFrom);
+        int end = (int) (to - mapFrom);
+        int position = (int) (from - mapFrom);
+
+        if (from > 0 && buffer.get(0) != '\n') {
+            while (position < buffer.limit() && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        boolean header = from == 0;
+        while (position < end) {
+            int lineEnd = position;
+            while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == buffer.limit() && mapFrom + lineEnd < size) {
+                throw new DataProcessingException("The line at byte " + (mapFrom + position) + " is longer than "
+                        + MAX_LINE_BYTES + " bytes");
+            }
+
+            if (header && !isDigit(buffer, position, lineEnd)) {
+                // a header line is skipped
+            } else {
+                parseLine(buffer, position, lineEnd, partition);
+            }
+            header = false;
+            position = lineEnd + 1;
+        }
+    }
+
+    private static void parseLine(MappedByteBuffer buffer, int from, int to, Partition partition) {
+        long[] fields = partition.fields;
+        int field = 0;
+        int position = from;
+        while (to > from && (buffer.get(to - 1) == '\r' || buffer.get(to - 1) == ' ')) {
+            to--;
+        }
+        if (to == from) {
+            // blank lines are skipped
+            return;
+        }
+
+        while (field < fields.length) {
+            while (position < to && buffer.get(position) == ' ') {
+                position++;
+            }
+            boolean negative = position < to && buffer.get(position) == '-';
+            if (negative) {
+                position++;
+            }
+            int digits = 0;
+            long value = 0;
+            while (position < to && buffer.get(position) >= '0' && buffer.get(position) <= '9' && digits < 11) {
+                value = value * 10 + buffer.get(position++) - '0';
+                digits++;
+            }
+            while (position < to && buffer.get(position) == ' ') {
+                position++;
+            }
+            boolean last = field == fields.length - 1;
+            if (digits == 0 || value > Integer.MAX_VALUE
+                    || (last ? position != to : position >= to || buffer.get(position) != ',')) {
+                partition.rejected++;
+                return;
+            }
+            fields[field++] = negative ? -value : value;
+            position++;
+        }
+        partition.add((int) fields[0], (int) fields[1], (int) fields[2]);
+    }
+
+    private static boolean isDigit(MappedByteBuffer buffer, int position, int end) {
+        return position < end && buffer.get(position) >= '0' && buffer.get(position) <= '9';
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Best results read by one worker, a table of the users' best results per level.
+     */
+    private static final class Partition {
+        private final Map<Integer, IntIntHashTable> levels = new HashMap<>();
+        private final long[] fields = new long[3];
+        private long records;
+        private long rejected;
+        private int lastLevelId;
+        private IntIntHashTable lastLevel;
+
+        private void add(int userId, int levelId, int result) {
+            if (userId < 1 || levelId < 1 || result < 0) {
+                rejected++;
+                return;
+            }
+            records++;
+            // the records of a level are often stored together, as in an export
+            if (lastLevel == null || lastLevelId != levelId) {
+                lastLevel = levels.computeIfAbsent(levelId, k -> new IntIntHashTable());
+                lastLevelId = levelId;
+            }
+            lastLevel.putMax(userId, result);
+        }
+    }
+
+    /**
+     * Task running an action for every index of a range, split in halves down to single indexes.
+     */
+    private static final class Split extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private Split(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    action.accept(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Split(from, middle, action), new Split(middle, to, action));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.userleveltracker.cache;
+
+import com.example.userleveltracker.model.CacheStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-through cache of the serialized JSON responses of the top results of levels and users.
+ *
+ * <p>The responses are kept in bounded Caffeine caches, which evict with the W-TinyLFU policy. The cache
+ * listens to the improved results of the {@link DataStorageService} and drops a cached response only if
+ * the improvement changes it: if the user (or level) is already listed, if the response has fewer entries
+ * than the limit, or if the new result ranks ahead of the last listed entry. Every other improvement
+ * leaves the cached response in place.</p>
+ *
+ * <p>An improvement is checked with an atomic {@code computeIfPresent}, which waits for a response being
+ * loaded for the same key, so a response loaded before an improvement is never kept after it.</p>
+ *
+ * <p>If the storage is not {@link DataStorageService#isLocal() local}, the improvements stored by other
+ * processes are not notified, so the cache does not listen and the responses are loaded on every call and
+ * never cached.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class LeaderboardCache implements ResultListener {
+    private final DataStorageService dataStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cache.leaderboard.max-entries}")
+    private long maxEntries;
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+
+    private final LongAdder invalidations = new LongAdder();
+    private Cache<Integer, CachedResponse> levelResponses;
+    private Cache<Integer, CachedResponse> userResponses;
+
+    @PostConstruct
+    public void init() {
+        levelResponses = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+        userResponses = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+        if (dataStore.isLocal()) {
+            dataStore.addResultListener(this);
+        }
+    }
+
+    /**
+     * Returns the serialized top users of a level, loading them from the storage on a cache miss.
+     *
+     * @param levelId the ID of the level
+     * @return the JSON array of the top {@link UserInfo} objects of the level
+     */
+    public byte[] getLevelInfo(int levelId) {
+        if (!dataStore.isLocal()) {
+            return load(dataStore::getLevelInfo, levelId, UserInfo::getUserId).json;
+        }
+        return levelResponses.get(levelId,
+                id -> load(dataStore::getLevelInfo, id, UserInfo::getUserId)).json;
+    }
+
+    /**
+     * Returns the serialized top results of a user, loading them from the storage on a cache miss.
+     *
+     * @param userId the ID of the user
+     * @return the JSON array of the top {@link UserInfo} objects of the user
+     */
+    public byte[] getUserInfo(int userId) {
+        if (!dataStore.isLocal()) {
+            return load(dataStore::getUserInfo, userId, UserInfo::getLevelId).json;
+        }
+        return userResponses.get(userId,
+                id -> load(dataStore::getUserInfo, id, UserInfo::getLevelId)).json;
+    }
+
+    @Override
+    public void onResultImproved(int userId, int levelId, int previousResult, int result) {
+        invalidateIfChanged(levelResponses, levelId, userId, result);
+        invalidateIfChanged(userResponses, userId, levelId, result);
+    }
+
+    /**
+     * Drops every cached response, since the results loaded in bulk or recovered on startup are not
+     * notified one by one.
+     */
+    @Override
+    public void onResultsLoaded() {
+        levelResponses.invalidateAll();
+        userResponses.invalidateAll();
+    }
+
+    /**
+     * Returns the hit ratio and eviction statistics of the level and user response caches.
+     *
+     * @return the {@link CacheStats} of the cache
+     */
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats levels = levelResponses.stats();
+        com.github.benmanes.caffeine.cache.stats.CacheStats users = userResponses.stats();
+
+        return CacheStats.builder()
+                .levelEntries(levelResponses.estimatedSize())
+                .levelHitRatio(levels.hitRate())
+                .levelEvictions(levels.evictionCount())
+                .userEntries(userResponses.estimatedSize())
+                .userHitRatio(users.hitRate())
+                .userEvictions(users.evictionCount())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private CachedResponse load(IntFunction<List<UserInfo>> loader, int key, ToIntFunction<UserInfo> idExtractor) {
+        List<UserInfo> top = loader.apply(key);
+        int[] ids = top.stream().mapToInt(idExtractor).toArray();
+        UserInfo last = top.get(top.size() - 1);
+
+        try {
+            return new CachedResponse(objectMapper.writeValueAsBytes(top), ids, top.size() >= resultsLimit,
+                    last.getResult(), idExtractor.applyAsInt(last));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void invalidateIfChanged(Cache<Integer, CachedResponse> cache, int key, int id, int result) {
+        cache.asMap().computeIfPresent(key, (k, response) -> {
+            if (response.isChangedBy(id, result)) {
+                invalidations.increment();
+                return null;
+            }
+            return response;
+        });
+    }
+
+    private static final class CachedResponse {
+        private final byte[] json;
+        private final int[] ids;
+        private final boolean full;
+        private final int lastResult;
+        private final int lastId;
+
+        private CachedResponse(byte[] json, int[] ids, boolean full, int lastResult, int lastId) {
+            this.json = json;
+            this.ids = ids;
+            this.full = full;
+            this.lastResult = lastResult;
+            this.lastId = lastId;
+        }
+
+        private boolean isChangedBy(int id, int result) {
+            if (!full || result > lastResult || (result == lastResult && id > lastId)) {
+                return true;
+            }
+            for (int listedId : ids) {
+                if (listedId == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
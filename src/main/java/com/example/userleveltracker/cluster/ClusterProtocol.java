@@ -0,0 +1,174 @@
+package com.example.userleveltracker.cluster;
+
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol spoken between the nodes of a cluster.
+ *
+ * <p>A request is an operation code followed by its {@code int} arguments, and a response is a status byte
+ * followed by the result of the operation or by the message of the error. A connection carries one request
+ * at a time, so neither needs a length prefix. A list of results is written as its size followed by a
+ * triple of user ID, level ID and result per entry. A list holds at most {@value #MAX_LIST_SIZE} entries:
+ * the clients split longer batches, and a negative or larger size is read as a broken connection, so a
+ * corrupt size cannot make a node allocate an arbitrary amount of memory.</p>
+ *
+ * <p>A request rejected as invalid answers {@link #STATUS_ERROR}, one the storage cannot serve, such as a
+ * write after its write-ahead log failed, {@link #STATUS_UNAVAILABLE}, and one that failed unexpectedly
+ * {@link #STATUS_FAILED}, so the caller gets the error the node would have thrown locally instead of
+ * seeing the node as unreachable.</p>
+ */
+final class ClusterProtocol {
+    static final byte SET_INFO = 1;
+    static final byte SET_INFO_BATCH = 2;
+    static final byte GET_LEVEL_INFO = 3;
+    static final byte GET_USER_INFO = 4;
+    static final byte GET_LEVEL_RANK = 5;
+    static final byte LOAD_RESULTS = 6;
+    static final byte COMPLETE_LOAD = 7;
+    static final byte GET_STORAGE_STATS = 8;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+    static final byte STATUS_UNAVAILABLE = 2;
+    static final byte STATUS_FAILED = 3;
+
+    /**
+     * The largest number of entries of a list sent in one message.
+     */
+    static final int MAX_LIST_SIZE = 64 * 1024;
+
+    /**
+     * The limit requesting the configured number of top results instead of a page.
+     */
+    static final int DEFAULT_LIMIT = -1;
+
+    private static final long NO_LONG = Long.MIN_VALUE;
+
+    private ClusterProtocol() {
+    }
+
+    static void writeUserInfo(DataOutput out, UserInfo info) throws IOException {
+        out.writeInt(info.getUserId());
+        out.writeInt(info.getLevelId());
+        out.writeInt(info.getResult());
+    }
+
+    static UserInfo readUserInfo(DataInput in) throws IOException {
+        return UserInfo.builder().userId(in.readInt()).levelId(in.readInt()).result(in.readInt()).build();
+    }
+
+    /**
+     * Writes an optional cursor as a presence flag followed by the entry.
+     */
+    static void writeCursor(DataOutput out, UserInfo after) throws IOException {
+        out.writeBoolean(after != null);
+        if (after != null) {
+            writeUserInfo(out, after);
+        }
+    }
+
+    static UserInfo readCursor(DataInput in) throws IOException {
+        return in.readBoolean() ? readUserInfo(in) : null;
+    }
+
+    static void writeList(DataOutput out, List<UserInfo> list) throws IOException {
+        out.writeInt(list.size());
+        for (UserInfo info : list) {
+            writeUserInfo(out, info);
+        }
+    }
+
+    static List<UserInfo> readList(DataInput in) throws IOException {
+        int size = readListSize(in);
+        List<UserInfo> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readUserInfo(in));
+        }
+        return list;
+    }
+
+    static int readListSize(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_LIST_SIZE) {
+            throw new IOException("Invalid list size " + size + ", a list holds at most " + MAX_LIST_SIZE
+                    + " entries");
+        }
+        return size;
+    }
+
+    static void writeRank(DataOutput out, UserRank rank) throws IOException {
+        out.writeInt(rank.getUserId());
+        out.writeInt(rank.getLevelId());
+        out.writeInt(rank.getResult());
+        out.writeLong(rank.getRank());
+        out.writeLong(rank.getTotal());
+        out.writeDouble(rank.getPercentile());
+        writeList(out, rank.getAbove());
+        writeList(out, rank.getBelow());
+    }
+
+    static UserRank readRank(DataInput in) throws IOException {
+        return UserRank.builder()
+                .userId(in.readInt())
+                .levelId(in.readInt())
+                .result(in.readInt())
+                .rank(in.readLong())
+                .total(in.readLong())
+                .percentile(in.readDouble())
+                .above(readList(in))
+                .below(readList(in))
+                .build();
+    }
+
+    /**
+     * Writes the statistics of an engine, with {@link Long#MIN_VALUE} and {@link Double#NaN} standing for
+     * the figures the engine does not report.
+     */
+    static void writeStats(DataOutput out, StorageStats stats) throws IOException {
+        out.writeUTF(stats.getEngine());
+        out.writeLong(stats.getEntries());
+        writeOptional(out, stats.getFootprintBytes());
+        writeOptional(out, stats.getResidentUsers());
+        writeOptional(out, stats.getSpilledUsers());
+        writeOptional(out, stats.getSpillFileBytes());
+        writeOptional(out, stats.getPageIns());
+        out.writeDouble(stats.getPageInP50Micros() == null ? Double.NaN : stats.getPageInP50Micros());
+        out.writeDouble(stats.getPageInP99Micros() == null ? Double.NaN : stats.getPageInP99Micros());
+    }
+
+    static StorageStats readStats(DataInput in) throws IOException {
+        return StorageStats.builder()
+                .engine(in.readUTF())
+                .entries(in.readLong())
+                .footprintBytes(readOptionalLong(in))
+                .residentUsers(readOptionalLong(in))
+                .spilledUsers(readOptionalLong(in))
+                .spillFileBytes(readOptionalLong(in))
+                .pageIns(readOptionalLong(in))
+                .pageInP50Micros(readOptionalDouble(in))
+                .pageInP99Micros(readOptionalDouble(in))
+                .build();
+    }
+
+    private static void writeOptional(DataOutput out, Long value) throws IOException {
+        out.writeLong(value == null ? NO_LONG : value);
+    }
+
+    private static Long readOptionalLong(DataInput in) throws IOException {
+        long value = in.readLong();
+        return value == NO_LONG ? null : value;
+    }
+
+    private static Double readOptionalDouble(DataInput in) throws IOException {
+        double value = in.readDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+}
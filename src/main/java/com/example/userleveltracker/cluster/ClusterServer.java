@@ -0,0 +1,245 @@
+package com.example.userleveltracker.cluster;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.DataStorageService;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Server answering the {@link ClusterProtocol} requests of the other nodes from the local storage engine.
+ *
+ * <p>Every connection is served by its own thread, which reads a whole request before executing it, so a
+ * request never holds the engine while waiting for the network. The nodes keep their connections open in
+ * pools, so the threads are created once per pooled connection and not once per request. At most
+ * {@code maxConnections} connections are served at once; a connection beyond them is closed as soon as it is
+ * accepted, and the other node sees the node as unavailable until a connection is freed.</p>
+ */
+@Log4j2
+public class ClusterServer implements AutoCloseable {
+    private static final ResponseWriter<Object> NO_RESULT = (out, none) -> {
+    };
+
+    private final DataStorageService engine;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private final ThreadPoolExecutor handlers;
+    private volatile boolean running;
+
+    /**
+     * Binds the server to a port. The server does not accept connections until it is started.
+     *
+     * @param engine         the local storage engine
+     * @param port           the port to listen on, or {@code 0} for any free port
+     * @param maxConnections the maximum number of connections served at once
+     * @throws IOException if the port cannot be bound
+     */
+    public ClusterServer(DataStorageService engine, int port, int maxConnections) throws IOException {
+        this.engine = engine;
+        AtomicInteger threads = new AtomicInteger();
+        this.handlers = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "cluster-connection-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        this.acceptor = new Thread(this::accept, "cluster-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        acceptor.start();
+        log.info("Serving cluster requests on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        handlers.shutdownNow();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                try {
+                    handlers.execute(() -> serve(connection));
+                } catch (RejectedExecutionException e) {
+                    connections.remove(connection);
+                    connection.close();
+                    if (running) {
+                        log.warn("Refused a cluster connection from {}: all {} connections are in use",
+                                connection.getRemoteSocketAddress(), handlers.getMaximumPoolSize());
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Cannot accept a cluster connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (running) {
+                handle(in, out);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            // the peer closed the connection
+        } catch (IOException e) {
+            log.error("Cluster connection from {} failed: {}", connection.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void handle(DataInputStream in, DataOutputStream out) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case ClusterProtocol.SET_INFO: {
+                int userId = in.readInt();
+                int levelId = in.readInt();
+                int result = in.readInt();
+                execute(out, () -> {
+                    engine.setInfo(userId, levelId, result);
+                    return null;
+                }, NO_RESULT);
+                break;
+            }
+            case ClusterProtocol.SET_INFO_BATCH: {
+                int size = ClusterProtocol.readListSize(in);
+                List<UserInfo> records = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    records.add(ClusterProtocol.readUserInfo(in));
+                }
+                execute(out, () -> {
+                    engine.setInfoBatch(records);
+                    return null;
+                }, NO_RESULT);
+                break;
+            }
+            case ClusterProtocol.LOAD_RESULTS: {
+                List<UserInfo> records = ClusterProtocol.readList(in);
+                execute(out, () -> engine.loadResults(records), DataOutput::writeInt);
+                break;
+            }
+            case ClusterProtocol.COMPLETE_LOAD: {
+                execute(out, () -> {
+                    engine.completeLoad();
+                    return null;
+                }, NO_RESULT);
+                break;
+            }
+            case ClusterProtocol.GET_STORAGE_STATS: {
+                execute(out, engine::getStorageStats, ClusterProtocol::writeStats);
+                break;
+            }
+            case ClusterProtocol.GET_LEVEL_INFO: {
+                int levelId = in.readInt();
+                UserInfo after = ClusterProtocol.readCursor(in);
+                int limit = in.readInt();
+                execute(out, () -> limit == ClusterProtocol.DEFAULT_LIMIT
+                        ? engine.getLevelInfo(levelId) : engine.getLevelInfo(levelId, after, limit),
+                        ClusterProtocol::writeList);
+                break;
+            }
+            case ClusterProtocol.GET_USER_INFO: {
+                int userId = in.readInt();
+                UserInfo after = ClusterProtocol.readCursor(in);
+                int limit = in.readInt();
+                execute(out, () -> engine.getUserInfo(userId, after, limit), ClusterProtocol::writeList);
+                break;
+            }
+            case ClusterProtocol.GET_LEVEL_RANK: {
+                int levelId = in.readInt();
+                int userId = in.readInt();
+                int neighbours = in.readInt();
+                execute(out, () -> engine.getLevelRank(levelId, userId, neighbours), ClusterProtocol::writeRank);
+                break;
+            }
+            default:
+                throw new IOException("Unknown cluster operation " + op);
+        }
+    }
+
+    /**
+     * Runs the operation and writes its status, followed by its result or by the message of the failure. A
+     * failed operation is answered like a rejected one, so the connection stays usable.
+     */
+    private static <T> void execute(DataOutputStream out, Supplier<T> operation, ResponseWriter<T> writer)
+            throws IOException {
+        T result;
+        try {
+            result = operation.get();
+        } catch (DataProcessingException e) {
+            writeFailure(out, ClusterProtocol.STATUS_ERROR, e);
+            return;
+        } catch (StorageUnavailableException e) {
+            writeFailure(out, ClusterProtocol.STATUS_UNAVAILABLE, e);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Cluster request failed", e);
+            writeFailure(out, ClusterProtocol.STATUS_FAILED, e);
+            return;
+        }
+        out.writeByte(ClusterProtocol.STATUS_OK);
+        writer.write(out, result);
+    }
+
+    private static void writeFailure(DataOutputStream out, byte status, RuntimeException failure)
+            throws IOException {
+        out.writeByte(status);
+        out.writeUTF(String.valueOf(failure.getMessage()));
+    }
+
+    @FunctionalInterface
+    private interface ResponseWriter<T> {
+        void write(DataOutput out, T result) throws IOException;
+    }
+}
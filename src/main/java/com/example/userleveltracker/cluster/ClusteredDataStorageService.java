@@ -0,0 +1,460 @@
+package com.example.userleveltracker.cluster;
+
+import com.example.userleveltracker.exception.ClusterNodeUnavailableException;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultConsumer;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.SubmissionListener;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link DataStorageService} of a node of a cluster, partitioning the levels across the nodes.
+ *
+ * <p>Every level is owned by one node, chosen by a {@link ConsistentHashRing} that all nodes build from the
+ * same list of nodes. The results of a level are stored only by its owner, so a write or a read of a
+ * level is served by the local storage engine if this node owns the level, and is forwarded to the owner
+ * over the {@link ClusterProtocol} otherwise. A batch is split by owner and every part is sent with one
+ * request.</p>
+ *
+ * <p>The results of a user are spread over the owners of their levels, so a read of a user's results is
+ * scattered to all nodes in parallel. Every node returns its own top results of the user after the cursor,
+ * and the pages are merged in the order of {@link #getUserInfo(int)} and cut to the limit, which yields
+ * the global page since each node's page holds all of its results that can make the global one.</p>
+ *
+ * <p>The calls to the other nodes run on a pool of at most {@code poolSize} threads per other node, which is
+ * as many requests as the connection pools let through at once; when all threads are busy, the caller
+ * sends its request itself.</p>
+ *
+ * <p>The statistics are gathered from all nodes and added up. The walks over the results and the listeners
+ * are not supported, since they would cover the levels owned by this node only: the exports, the windowed
+ * leaderboards, the global leaderboard and the level change feed refuse the clustered mode, and the
+ * write-ahead log of every node logs the results of its own engine.</p>
+ */
+public class ClusteredDataStorageService implements DataStorageService, AutoCloseable {
+    private static final Comparator<UserInfo> USER_ORDER = Comparator.comparingInt(UserInfo::getResult)
+            .thenComparingInt(UserInfo::getLevelId).reversed();
+
+    private final DataStorageService engine;
+    private final ConsistentHashRing ring;
+    private final int nodeIndex;
+    private final NodeClient[] clients;
+    private final ExecutorService scatterExecutor;
+
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+    @Value("${api.user.top.results.max-limit}")
+    private int maxResultsLimit;
+
+    /**
+     * Creates the service of a node.
+     *
+     * @param engine       the local storage engine
+     * @param nodes        the addresses of the cluster servers of all nodes, in the same order on every node
+     * @param nodeIndex    the index of this node in the list
+     * @param virtualNodes the number of points of every node on the hash ring
+     * @param poolSize     the maximum number of connections to every other node
+     * @param timeoutMs    the timeout of connecting to and waiting for another node
+     */
+    public ClusteredDataStorageService(DataStorageService engine, List<InetSocketAddress> nodes, int nodeIndex,
+                                       int virtualNodes, int poolSize, int timeoutMs) {
+        if (nodeIndex < 0 || nodeIndex >= nodes.size()) {
+            throw new IllegalArgumentException("The node index " + nodeIndex + " is not in the list of "
+                    + nodes.size() + " nodes");
+        }
+
+        this.engine = engine;
+        this.ring = new ConsistentHashRing(nodes.size(), virtualNodes);
+        this.nodeIndex = nodeIndex;
+        this.clients = new NodeClient[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i != nodeIndex) {
+                clients[i] = new NodeClient(nodes.get(i), poolSize, timeoutMs);
+            }
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        this.scatterExecutor = new ThreadPoolExecutor(0, Math.max(1, (nodes.size() - 1) * poolSize),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, "cluster-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new ClusterNodeUnavailableException("The cluster client is closed", null);
+            }
+            task.run();
+        });
+    }
+
+    /**
+     * Returns the node owning a level.
+     *
+     * @param levelId the ID of the level
+     * @return the index of the owning node
+     */
+    public int ownerOf(int levelId) {
+        return ring.ownerOf(levelId);
+    }
+
+    @Override
+    public void setInfo(int userId, int levelId, int result) {
+        int owner = ring.ownerOf(levelId);
+        if (owner == nodeIndex) {
+            engine.setInfo(userId, levelId, result);
+        } else {
+            clients[owner].setInfo(userId, levelId, result);
+        }
+    }
+
+    /**
+     * Stores or updates the results of many users and levels at once. The records are split by the owners
+     * of their levels, the parts of the other nodes are sent in parallel and the local part is applied
+     * meanwhile. Every part is applied even if another one fails, and since a result only replaces a lower
+     * one, the whole batch can be sent again to apply the parts that failed.
+     *
+     * @param records the results to be set, each one for the user at the level of the record
+     * @throws ClusterNodeUnavailableException if the owners of some of the records cannot be reached; the
+     *                                         message names every such node with the number of its records,
+     *                                         and all the other records are applied
+     */
+    @Override
+    public void setInfoBatch(List<UserInfo> records) {
+        List<List<UserInfo>> parts = splitByOwner(records);
+
+        Map<Integer, Future<?>> sent = new LinkedHashMap<>();
+        for (int i = 0; i < clients.length; i++) {
+            List<UserInfo> part = parts.get(i);
+            if (i != nodeIndex && !part.isEmpty()) {
+                NodeClient client = clients[i];
+                sent.put(i, scatterExecutor.submit(() -> client.setInfoBatch(part)));
+            }
+        }
+        RuntimeException failure = null;
+        if (!parts.get(nodeIndex).isEmpty()) {
+            try {
+                engine.setInfoBatch(parts.get(nodeIndex));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        StringBuilder unavailable = new StringBuilder();
+        ClusterNodeUnavailableException unavailableCause = null;
+        for (Map.Entry<Integer, Future<?>> node : sent.entrySet()) {
+            try {
+                await(node.getValue());
+            } catch (ClusterNodeUnavailableException e) {
+                unavailable.append(unavailable.length() == 0 ? "" : ", ").append(clients[node.getKey()].getName())
+                        .append(" (").append(parts.get(node.getKey()).size()).append(" records)");
+                unavailableCause = e;
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        if (unavailableCause != null) {
+            throw new ClusterNodeUnavailableException("The records of the unavailable cluster nodes " + unavailable
+                    + " were not applied, all the other records were", unavailableCause);
+        }
+    }
+
+    /**
+     * Stores results recovered or imported outside the write path. The records are split by the owners of
+     * their levels like the ones of {@link #setInfoBatch(List)}, and every owner stores its part without
+     * notifying its listeners.
+     *
+     * @param records the results to be stored
+     * @return the number of records that improved the best result of their user on their level
+     * @throws ClusterNodeUnavailableException if the owner of some of the records cannot be reached; the
+     *                                         parts of the other owners are still stored
+     */
+    @Override
+    public int loadResults(List<UserInfo> records) {
+        List<List<UserInfo>> parts = splitByOwner(records);
+        List<Future<Integer>> sent = new ArrayList<>();
+        for (int i = 0; i < clients.length; i++) {
+            List<UserInfo> part = parts.get(i);
+            if (i != nodeIndex && !part.isEmpty()) {
+                NodeClient client = clients[i];
+                sent.add(scatterExecutor.submit(() -> client.loadResults(part)));
+            }
+        }
+        int stored = parts.get(nodeIndex).isEmpty() ? 0 : engine.loadResults(parts.get(nodeIndex));
+        for (Future<Integer> future : sent) {
+            stored += await(future);
+        }
+        return stored;
+    }
+
+    /**
+     * Tells the result listeners of every node that results were loaded.
+     *
+     * @throws ClusterNodeUnavailableException if some node cannot be reached
+     */
+    @Override
+    public void completeLoad() {
+        engine.completeLoad();
+        for (NodeClient client : clients) {
+            if (client != null) {
+                client.completeLoad();
+            }
+        }
+    }
+
+    @Override
+    public List<UserInfo> getUserInfo(int userId) {
+        return getUserInfo(userId, resultsLimit);
+    }
+
+    @Override
+    public List<UserInfo> getUserInfo(int userId, int limit) {
+        return getUserInfo(userId, null, limit);
+    }
+
+    /**
+     * Retrieves up to {@code limit} results for a specific user ranked after the given result, gathered
+     * from all nodes. A node holding no results of the user contributes an empty page.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param after  the last result of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's results after the given one
+     * @throws DataProcessingException         if the limit is less than 1 or no node holds results of the
+     *                                         specified user ID
+     * @throws ClusterNodeUnavailableException if some node cannot be reached
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId, UserInfo after, int limit) {
+        if (limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        List<Future<List<UserInfo>>> pages = new ArrayList<>(clients.length);
+        for (NodeClient client : clients) {
+            if (client != null) {
+                pages.add(scatterExecutor.submit(() -> pageOrNull(() -> client.getUserInfo(userId, after, limit))));
+            }
+        }
+
+        List<UserInfo> merged = new ArrayList<>();
+        List<UserInfo> localPage = pageOrNull(() -> engine.getUserInfo(userId, after, limit));
+        boolean found = localPage != null;
+        if (found) {
+            merged.addAll(localPage);
+        }
+        for (Future<List<UserInfo>> page : pages) {
+            List<UserInfo> nodePage = await(page);
+            if (nodePage != null) {
+                found = true;
+                merged.addAll(nodePage);
+            }
+        }
+
+        if (!found) {
+            throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId);
+        }
+
+        merged.sort(USER_ORDER);
+        int pageSize = Math.min(limit, maxResultsLimit);
+        return merged.size() > pageSize ? new ArrayList<>(merged.subList(0, pageSize)) : merged;
+    }
+
+    @Override
+    public List<UserInfo> getLevelInfo(int levelId) {
+        int owner = ring.ownerOf(levelId);
+        return owner == nodeIndex ? engine.getLevelInfo(levelId)
+                : clients[owner].getLevelInfo(levelId, null, ClusterProtocol.DEFAULT_LIMIT);
+    }
+
+    @Override
+    public List<UserInfo> getLevelInfo(int levelId, UserInfo after, int limit) {
+        int owner = ring.ownerOf(levelId);
+        return owner == nodeIndex ? engine.getLevelInfo(levelId, after, limit)
+                : clients[owner].getLevelInfo(levelId, after, limit);
+    }
+
+    @Override
+    public UserRank getLevelRank(int levelId, int userId, int neighbours) {
+        int owner = ring.ownerOf(levelId);
+        return owner == nodeIndex ? engine.getLevelRank(levelId, userId, neighbours)
+                : clients[owner].getLevelRank(levelId, userId, neighbours);
+    }
+
+    /**
+     * Returns the statistics of all nodes added up. The page-in latencies are the highest of the nodes, and
+     * the footprint is reported only if every node reports it.
+     *
+     * @return the statistics of the whole cluster
+     * @throws ClusterNodeUnavailableException if some node cannot be reached
+     */
+    @Override
+    public StorageStats getStorageStats() {
+        List<Future<StorageStats>> gathered = new ArrayList<>(clients.length);
+        for (NodeClient client : clients) {
+            if (client != null) {
+                gathered.add(scatterExecutor.submit(client::getStorageStats));
+            }
+        }
+        List<StorageStats> nodeStats = new ArrayList<>(clients.length);
+        nodeStats.add(engine.getStorageStats());
+        for (Future<StorageStats> stats : gathered) {
+            nodeStats.add(await(stats));
+        }
+
+        long entries = 0;
+        Long footprintBytes = 0L;
+        for (StorageStats stats : nodeStats) {
+            entries += stats.getEntries();
+            footprintBytes = footprintBytes == null || stats.getFootprintBytes() == null ? null
+                    : footprintBytes + stats.getFootprintBytes();
+        }
+        return StorageStats.builder()
+                .engine(nodeStats.get(0).getEngine())
+                .entries(entries)
+                .footprintBytes(footprintBytes)
+                .bytesPerEntry(footprintBytes == null || entries == 0 ? null : (double) footprintBytes / entries)
+                .residentUsers(sum(nodeStats, StorageStats::getResidentUsers))
+                .spilledUsers(sum(nodeStats, StorageStats::getSpilledUsers))
+                .spillFileBytes(sum(nodeStats, StorageStats::getSpillFileBytes))
+                .pageIns(sum(nodeStats, StorageStats::getPageIns))
+                .pageInP50Micros(max(nodeStats, StorageStats::getPageInP50Micros))
+                .pageInP99Micros(max(nodeStats, StorageStats::getPageInP99Micros))
+                .build();
+    }
+
+    /**
+     * Not supported, since only the results of the levels owned by this node could be walked.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void forEachResult(ResultConsumer action) {
+        throw new UnsupportedOperationException("Walking the results is not supported in clustered mode");
+    }
+
+    /**
+     * Not supported, since only the results of the levels owned by this node could be walked.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void forEachLevelResult(int levelId, ResultConsumer action) {
+        throw new UnsupportedOperationException("Walking the results is not supported in clustered mode");
+    }
+
+    /**
+     * Not supported, since the listener would not be notified of the results stored by other nodes.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addResultListener(ResultListener listener) {
+        throw new UnsupportedOperationException("Result listeners are not supported in clustered mode");
+    }
+
+    /**
+     * Not supported, since the listener would not be notified of the results submitted to other nodes.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addSubmissionListener(SubmissionListener listener) {
+        throw new UnsupportedOperationException("Submission listeners are not supported in clustered mode");
+    }
+
+    /**
+     * Returns {@code false}, since the results stored by other nodes can neither be walked nor listened to.
+     */
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        scatterExecutor.shutdownNow();
+        for (NodeClient client : clients) {
+            if (client != null) {
+                client.close();
+            }
+        }
+    }
+
+    private List<List<UserInfo>> splitByOwner(List<UserInfo> records) {
+        List<List<UserInfo>> parts = new ArrayList<>(clients.length);
+        for (int i = 0; i < clients.length; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (UserInfo record : records) {
+            parts.get(ring.ownerOf(record.getLevelId())).add(record);
+        }
+        return parts;
+    }
+
+    private static Long sum(List<StorageStats> nodeStats, Function<StorageStats, Long> figure) {
+        Long sum = null;
+        for (StorageStats stats : nodeStats) {
+            Long value = figure.apply(stats);
+            if (value != null) {
+                sum = sum == null ? value : sum + value;
+            }
+        }
+        return sum;
+    }
+
+    private static Double max(List<StorageStats> nodeStats, Function<StorageStats, Double> figure) {
+        Double max = null;
+        for (StorageStats stats : nodeStats) {
+            Double value = figure.apply(stats);
+            if (value != null) {
+                max = max == null ? value : Math.max(max, value);
+            }
+        }
+        return max;
+    }
+
+    private static List<UserInfo> pageOrNull(Supplier<List<UserInfo>> page) {
+        try {
+            return page.get();
+        } catch (DataProcessingException e) {
+            return null;
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterNodeUnavailableException("Interrupted while waiting for a cluster node", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
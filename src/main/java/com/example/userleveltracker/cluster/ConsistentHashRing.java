@@ -0,0 +1,68 @@
+package com.example.userleveltracker.cluster;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring assigning every level ID to one of the nodes of a cluster.
+ *
+ * <p>Every node is placed on the ring at {@code virtualNodes} pseudo-random points, and a key is owned by
+ * the node of the first point at or after the hash of the key. Adding a node to a cluster of {@code n}
+ * nodes moves about {@code 1 / (n + 1)} of the keys, and the virtual nodes spread the keys evenly.</p>
+ *
+ * <p>The ring is immutable and built the same way on every node, so all nodes agree on the owners.</p>
+ */
+public class ConsistentHashRing {
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Creates the ring of a cluster.
+     *
+     * @param nodes        the number of nodes
+     * @param virtualNodes the number of points of every node on the ring
+     */
+    public ConsistentHashRing(int nodes, int virtualNodes) {
+        long[] placed = new long[nodes * virtualNodes];
+        for (int node = 0; node < nodes; node++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // the seeds are above the int range, so no point lands on the hash of a key; the low bits
+                // hold the node, so sorting the placed points keeps their owners
+                long seed = ((long) (node + 1) << 32) | i;
+                placed[node * virtualNodes + i] = (hash(seed) & ~0xFFFFL) | node;
+            }
+        }
+        Arrays.sort(placed);
+
+        points = new long[placed.length];
+        owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i] & ~0xFFFFL;
+            owners[i] = (int) (placed[i] & 0xFFFFL);
+        }
+    }
+
+    /**
+     * Returns the node owning the key.
+     *
+     * @param key the key, a level ID
+     * @return the index of the owning node
+     */
+    public int ownerOf(int key) {
+        long hash = hash(key) & ~0xFFFFL;
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads consecutive keys over the whole {@code long} range.
+     */
+    private static long hash(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.userleveltracker.cluster;
+
+import com.example.userleveltracker.exception.ClusterNodeUnavailableException;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client of the {@link ClusterServer} of another node, holding a pool of connections to it.
+ *
+ * <p>At most {@code poolSize} requests are in flight at once, each one on its own connection. A connection
+ * is opened on first use and returned to the pool after its response is read, so a busy node reuses its
+ * connections instead of paying a TCP handshake per request. A connection that fails is closed instead
+ * of being returned, and the failure is thrown as a {@link ClusterNodeUnavailableException}. A request
+ * rejected by the other node is thrown as the {@link DataProcessingException} the node would have thrown
+ * locally, one its storage cannot serve as a {@link StorageUnavailableException}, and one that failed there
+ * as an {@link IllegalStateException}. A batch longer than {@link ClusterProtocol#MAX_LIST_SIZE} records is
+ * sent in several requests.</p>
+ */
+class NodeClient implements AutoCloseable {
+    private final InetSocketAddress address;
+    private final String name;
+    private final int timeoutMs;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    NodeClient(InetSocketAddress address, int poolSize, int timeoutMs) {
+        this.address = address;
+        this.name = address.getHostString() + ":" + address.getPort();
+        this.timeoutMs = timeoutMs;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Returns the {@code host:port} address of the node.
+     */
+    String getName() {
+        return name;
+    }
+
+    void setInfo(int userId, int levelId, int result) {
+        call(out -> {
+            out.writeByte(ClusterProtocol.SET_INFO);
+            out.writeInt(userId);
+            out.writeInt(levelId);
+            out.writeInt(result);
+        }, in -> null);
+    }
+
+    void setInfoBatch(List<UserInfo> records) {
+        for (int from = 0; from < records.size(); from += ClusterProtocol.MAX_LIST_SIZE) {
+            List<UserInfo> part = records.subList(from, Math.min(records.size(), from + ClusterProtocol.MAX_LIST_SIZE));
+            call(out -> {
+                out.writeByte(ClusterProtocol.SET_INFO_BATCH);
+                ClusterProtocol.writeList(out, part);
+            }, in -> null);
+        }
+    }
+
+    int loadResults(List<UserInfo> records) {
+        int stored = 0;
+        for (int from = 0; from < records.size(); from += ClusterProtocol.MAX_LIST_SIZE) {
+            List<UserInfo> part = records.subList(from, Math.min(records.size(), from + ClusterProtocol.MAX_LIST_SIZE));
+            stored += call(out -> {
+                out.writeByte(ClusterProtocol.LOAD_RESULTS);
+                ClusterProtocol.writeList(out, part);
+            }, DataInput::readInt);
+        }
+        return stored;
+    }
+
+    void completeLoad() {
+        call(out -> out.writeByte(ClusterProtocol.COMPLETE_LOAD), in -> null);
+    }
+
+    List<UserInfo> getLevelInfo(int levelId, UserInfo after, int limit) {
+        return call(out -> {
+            out.writeByte(ClusterProtocol.GET_LEVEL_INFO);
+            out.writeInt(levelId);
+            ClusterProtocol.writeCursor(out, after);
+            out.writeInt(limit);
+        }, ClusterProtocol::readList);
+    }
+
+    List<UserInfo> getUserInfo(int userId, UserInfo after, int limit) {
+        return call(out -> {
+            out.writeByte(ClusterProtocol.GET_USER_INFO);
+            out.writeInt(userId);
+            ClusterProtocol.writeCursor(out, after);
+            out.writeInt(limit);
+        }, ClusterProtocol::readList);
+    }
+
+    UserRank getLevelRank(int levelId, int userId, int neighbours) {
+        return call(out -> {
+            out.writeByte(ClusterProtocol.GET_LEVEL_RANK);
+            out.writeInt(levelId);
+            out.writeInt(userId);
+            out.writeInt(neighbours);
+        }, ClusterProtocol::readRank);
+    }
+
+    StorageStats getStorageStats() {
+        return call(out -> out.writeByte(ClusterProtocol.GET_STORAGE_STATS), ClusterProtocol::readStats);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private <T> T call(RequestWriter request, ResponseReader<T> response) {
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ClusterNodeUnavailableException("No connection to the cluster node " + name
+                        + " became free in " + timeoutMs + " ms", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterNodeUnavailableException("Interrupted while waiting for the cluster node " + name, e);
+        }
+
+        Connection connection = null;
+        try {
+            connection = idle.poll();
+            if (connection == null) {
+                connection = new Connection();
+            }
+
+            request.write(connection.out);
+            connection.out.flush();
+            byte status = connection.in.readByte();
+            String error = status == ClusterProtocol.STATUS_OK ? null : connection.in.readUTF();
+            T result = error == null ? response.read(connection.in) : null;
+            release(connection);
+            connection = null;
+
+            if (status == ClusterProtocol.STATUS_ERROR) {
+                throw new DataProcessingException(error);
+            } else if (status == ClusterProtocol.STATUS_UNAVAILABLE) {
+                throw new StorageUnavailableException("The cluster node " + name + " cannot store results: "
+                        + error, null);
+            } else if (status != ClusterProtocol.STATUS_OK) {
+                throw new IllegalStateException("The request failed on the cluster node " + name + ": " + error);
+            }
+            return result;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new ClusterNodeUnavailableException("The cluster node " + name + " is unavailable", e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection() throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeoutMs);
+                // the address is resolved on every connect, so a node that moved is found again
+                socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), timeoutMs);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // the connection is dropped anyway
+            }
+        }
+    }
+}
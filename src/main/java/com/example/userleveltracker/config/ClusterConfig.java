@@ -0,0 +1,69 @@
+package com.example.userleveltracker.config;
+
+import com.example.userleveltracker.cluster.ClusterServer;
+import com.example.userleveltracker.cluster.ClusteredDataStorageService;
+import com.example.userleveltracker.service.DataStorageService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the clustered mode, enabled with {@code cluster.enabled=true}.
+ *
+ * <p>{@code cluster.nodes} lists the {@code host:port} addresses of the cluster servers of all nodes, in
+ * the same order on every node, and {@code cluster.node-index} is the position of this node in the list.
+ * This node serves the other nodes on the port of its own address, from the storage engine selected with
+ * {@code storage.engine}, and the {@link ClusteredDataStorageService} routing the requests to the owners of
+ * the levels replaces the engine everywhere else.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Value("${cluster.nodes}")
+    private List<String> nodes;
+    @Value("${cluster.node-index}")
+    private int nodeIndex;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ClusterServer clusterServer(@Qualifier("storageEngine") DataStorageService engine,
+                                       @Value("${cluster.server.max-connections}") int maxConnections)
+            throws IOException {
+        return new ClusterServer(engine, nodeAddresses().get(nodeIndex).getPort(), maxConnections);
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public ClusteredDataStorageService clusteredDataStorageService(
+            @Qualifier("storageEngine") DataStorageService engine,
+            @Value("${cluster.virtual-nodes}") int virtualNodes,
+            @Value("${cluster.pool-size}") int poolSize,
+            @Value("${cluster.timeout-ms}") int timeoutMs) {
+        return new ClusteredDataStorageService(engine, nodeAddresses(), nodeIndex, virtualNodes, poolSize,
+                timeoutMs);
+    }
+
+    private List<InetSocketAddress> nodeAddresses() {
+        List<InetSocketAddress> addresses = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            int separator = node.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("cluster.nodes must list host:port addresses, got " + node);
+            }
+            addresses.add(InetSocketAddress.createUnresolved(node.substring(0, separator).trim(),
+                    Integer.parseInt(node.substring(separator + 1).trim())));
+        }
+        if (nodeIndex < 0 || nodeIndex >= addresses.size()) {
+            throw new IllegalArgumentException("cluster.node-index must be between 0 and " + (addresses.size() - 1));
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.userleveltracker.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration of the threads serving the requests, selected with the {@code web.execution-mode} property.
+ *
+ * <p>In the default {@code platform} mode every in-flight request holds a thread of Tomcat's pool. In the
+ * {@code virtual} mode Tomcat runs every request on its own virtual thread, so a request waiting for a
+ * result to be applied or written to disk does not hold a platform thread. Virtual threads need Java 21 or
+ * later, while the application is built for Java 11, so the runtime version is checked on startup, the
+ * executor is looked up reflectively, and the application fails to start on an older runtime.</p>
+ *
+ * <p>Tomcat does not shut down an executor it is given, so the executor is a bean shut down with the
+ * context, after the web server stopped. Being an {@code Executor} bean, it keeps Spring Boot from creating
+ * its {@code applicationTaskExecutor}, so in the {@code virtual} mode the asynchronous requests, such as the
+ * exports, are explicitly run on the virtual thread executor too.</p>
+ *
+ * <p>Only the {@code virtual} mode raises Tomcat's connection limits, to {@code web.virtual.max-connections}
+ * and {@code web.virtual.accept-count}, since a virtual thread per connection is cheap. The {@code platform}
+ * mode keeps Tomcat's defaults as the baseline to compare with.</p>
+ */
+@Configuration
+@Log4j2
+public class WebServerConfig {
+    private static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
+    @Value("${web.virtual.max-connections}")
+    private int maxConnections;
+    @Value("${web.virtual.accept-count}")
+    private int acceptCount;
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "web.execution-mode", havingValue = "virtual")
+    public ExecutorService virtualThreadExecutor() {
+        if (Runtime.version().feature() < VIRTUAL_THREADS_FEATURE_VERSION) {
+            throw new IllegalStateException("web.execution-mode=virtual requires Java "
+                    + VIRTUAL_THREADS_FEATURE_VERSION + " or later, running on " + Runtime.version());
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor on " + Runtime.version(), e);
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "web.execution-mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer(
+            @Qualifier("virtualThreadExecutor") ExecutorService virtualThreadExecutor) {
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * Raises the connection limits of the connector. They are set by a connector customizer, which Tomcat
+     * runs after the protocol handler customizers and this one after the customizer of the
+     * {@code server.tomcat.*} properties, so the limits are not reset to their defaults.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "web.execution-mode", havingValue = "virtual")
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadConnectionsCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol) {
+                AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+                protocol.setMaxConnections(maxConnections);
+                protocol.setAcceptCount(acceptCount);
+            }
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "web.execution-mode", havingValue = "virtual")
+    public WebMvcConfigurer virtualThreadAsyncSupportConfigurer(
+            @Qualifier("virtualThreadExecutor") ExecutorService virtualThreadExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.userleveltracker.config;
+
+import com.example.userleveltracker.wire.VarintRecordsHttpMessageConverter;
+import com.example.userleveltracker.wire.WireFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configuration registering the {@link WireFormat#VARINT_RECORDS} format.
+ *
+ * <p>The converter is added after the default ones, so JSON stays the format of a request that accepts
+ * any media type, and the binary format is used only when it is asked for explicitly. A binary body is read
+ * only up to {@code api.varint.max-body-bytes}.</p>
+ */
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    @Value("${api.varint.max-body-bytes}")
+    private int maxBodyBytes;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new VarintRecordsHttpMessageConverter(maxBodyBytes));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.userleveltracker.controller;
+
+import com.example.userleveltracker.bulkload.BulkLoadFormat;
+import com.example.userleveltracker.bulkload.BulkLoader;
+import com.example.userleveltracker.model.BulkLoadResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class for loading files of results into the running application, enabled with
+ * {@code storage.bulk-load.admin-enabled=true}.
+ */
+@RestController
+@ConditionalOnProperty(name = "storage.bulk-load.admin-enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class BulkLoadController {
+    private final BulkLoader bulkLoader;
+
+    /**
+     * Loads a file of the {@code storage.bulk-load.directory} directory and waits until it is stored.
+     *
+     * @param file   the name of the file, relative to the directory
+     * @param format the format of the file, {@code csv} or {@code binary}
+     * @return the {@link BulkLoadResult} of the load, with its rate in records per second
+     */
+    @PostMapping("/admin/bulk-load")
+    public ResponseEntity<BulkLoadResult> load(@RequestParam String file,
+                                               @RequestParam(defaultValue = "csv") String format) {
+        return ResponseEntity.ok(bulkLoader.loadFromDirectory(file, BulkLoadFormat.of(format)));
+    }
+}
@@ -1,28 +1,44 @@
 package com.example.userleveltracker.controller;
 
+import com.example.userleveltracker.exception.ClusterNodeUnavailableException;
 import com.example.userleveltracker.exception.DataProcessingException;
 import com.example.userleveltracker.exception.ErrorDetails;
+import com.example.userleveltracker.exception.IngestionQueueFullException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Global exception handler for handling specific exceptions across the application.
+ * The error details are always written as JSON, whatever format the client asked for.
+ *
+ * <p>Errors are logged at most once per {@code api.error.log-interval-ms}, and the number of errors not
+ * logged in between is reported with the next logged one, so a client flooding the service with bad
+ * requests cannot flood the log.</p>
  */
 @ControllerAdvice
 @Log4j2
 public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
+    private final AtomicLong nextErrorLogNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder unloggedErrors = new LongAdder();
+    private long errorLogIntervalNanos;
+
+    @Value("${api.error.log-interval-ms}")
+    public void setErrorLogIntervalMs(long errorLogIntervalMs) {
+        this.errorLogIntervalNanos = TimeUnit.MILLISECONDS.toNanos(errorLogIntervalMs);
+    }
 
     /**
      * Handles exceptions to type {@code DataProcessingException}.
@@ -33,32 +49,72 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(DataProcessingException.class)
     public ResponseEntity<?> dataNotFoundExceptionHandling(Exception exception, WebRequest request) {
-        log.error("An error occurred! Message: {}", exception.getMessage());
+        logError(exception.getMessage());
+
+        return errorResponse(exception.getMessage(), request, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles exceptions to type {@code IngestionQueueFullException}, telling the client to back off.
+     *
+     * @param exception The exception to handle.
+     * @param request   The web request associated with the exception.
+     * @return A {@link ResponseEntity} containing details of the error.
+     */
+    @ExceptionHandler(IngestionQueueFullException.class)
+    public ResponseEntity<?> ingestionQueueFullExceptionHandling(Exception exception, WebRequest request) {
+        return errorResponse(exception.getMessage(), request, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Handles exceptions to type {@code ClusterNodeUnavailableException}, raised when another node of the
+     * cluster cannot serve its part of the request.
+     *
+     * @param exception The exception to handle.
+     * @param request   The web request associated with the exception.
+     * @return A {@link ResponseEntity} containing details of the error.
+     */
+    @ExceptionHandler(ClusterNodeUnavailableException.class)
+    public ResponseEntity<?> clusterNodeUnavailableExceptionHandling(Exception exception, WebRequest request) {
+        logError(exception.getMessage());
 
-        return new ResponseEntity<>(new ErrorDetails(new Date(), exception.getMessage(),
-                request.getDescription(false)), HttpStatus.BAD_REQUEST);
+        return errorResponse(exception.getMessage(), request, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     /**
-     * Handles method argument validation errors.
+     * Handles exceptions to type {@code StorageUnavailableException}, raised when the write-ahead log failed
+     * and no write can be made durable anymore.
      *
-     * @param ex      The validation exception to handle.
-     * @param headers The headers for the response.
-     * @param status  The HTTP status for the response.
-     * @param request The web request associated with the validation exception.
-     * @return A {@link ResponseEntity} containing details of the validation errors.
+     * @param exception The exception to handle.
+     * @param request   The web request associated with the exception.
+     * @return A {@link ResponseEntity} containing details of the error.
      */
-    @Override
-    protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
-                                                                  HttpHeaders headers, HttpStatus status,
-                                                                  WebRequest request) {
-        List<String> errors = ex.getBindingResult().getFieldErrors().stream()
-                .map(FieldError::getDefaultMessage)
-                .collect(Collectors.toList());
+    @ExceptionHandler(StorageUnavailableException.class)
+    public ResponseEntity<?> storageUnavailableExceptionHandling(Exception exception, WebRequest request) {
+        logError(exception.getMessage());
+
+        return errorResponse(exception.getMessage(), request, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private void logError(String message) {
+        long now = System.nanoTime();
+        long next = nextErrorLogNanos.get();
+        if (now - next < 0 || !nextErrorLogNanos.compareAndSet(next, now + errorLogIntervalNanos)) {
+            unloggedErrors.increment();
+            return;
+        }
 
-        log.error("An error occurred! Message: {}", errors.toString());
+        long unlogged = unloggedErrors.sumThenReset();
+        if (unlogged == 0) {
+            log.error("An error occurred! Message: {}", message);
+        } else {
+            log.error("An error occurred! Message: {} ({} more errors since the last one logged)", message, unlogged);
+        }
+    }
 
-        return new ResponseEntity<>(new ErrorDetails(new Date(), errors.toString(),
-                request.getDescription(false)), HttpStatus.BAD_REQUEST);
+    private static ResponseEntity<Object> errorResponse(String message, WebRequest request, HttpStatus status) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ErrorDetails(new Date(), message, request.getDescription(false)));
     }
 }
@@ -0,0 +1,185 @@
+package com.example.userleveltracker.controller;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.export.ExportFormat;
+import com.example.userleveltracker.export.ResultExporter;
+import com.example.userleveltracker.service.DataStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Controller class for exporting the stored results.
+ * The results are streamed to the response as they are walked, gzip-compressed if the client accepts it.
+ *
+ * <p>An export runs asynchronously, on the task executor of Spring MVC, for at most
+ * {@code export.timeout-ms} milliseconds, so a long export does not need a longer timeout for every other
+ * asynchronous request. An export that times out is interrupted and stops at its next write.</p>
+ */
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+    private static final String GZIP = "gzip";
+
+    private final DataStorageService dataStore;
+    private final ResultExporter resultExporter;
+
+    @Value("${export.timeout-ms}")
+    private long timeoutMs;
+
+    /**
+     * Exports the best result of every user on every level.
+     *
+     * @param format         the format of the records, {@code ndjson} or {@code binary}
+     * @param acceptEncoding the encodings accepted by the client
+     * @param response       the response the results are written to
+     * @return the task writing the results
+     */
+    @GetMapping("/export")
+    @ResponseStatus(HttpStatus.OK)
+    public WebAsyncTask<Void> exportAll(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return stream(exportFormat, acceptEncoding, response, out -> resultExporter.exportAll(exportFormat, out));
+    }
+
+    /**
+     * Exports the best result of every user on a level.
+     *
+     * @param levelId        the ID of the level
+     * @param format         the format of the records, {@code ndjson} or {@code binary}
+     * @param acceptEncoding the encodings accepted by the client
+     * @param response       the response the results are written to
+     * @return the task writing the results
+     */
+    @GetMapping("/export/{levelId}")
+    @ResponseStatus(HttpStatus.OK)
+    public WebAsyncTask<Void> exportLevel(
+            @PathVariable int levelId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        // fails with a DataProcessingException before the response is committed if the level has no results
+        dataStore.getLevelInfo(levelId, null, 1);
+        return stream(exportFormat, acceptEncoding, response,
+                out -> resultExporter.exportLevel(levelId, exportFormat, out));
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header accepts gzip: if it lists {@code gzip}, or else
+     * {@code *}, with a quality above 0.
+     *
+     * @param acceptEncoding the value of the header, or {@code null} if it is missing
+     * @return {@code true} if the response may be gzip-compressed
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            double quality = quality(parameters);
+            if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if ("*".equals(name)) {
+                wildcardQuality = quality;
+            }
+        }
+
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    /**
+     * Returns the {@code q} parameter of a content coding, 1 if it has none, or 0 if it is malformed.
+     */
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                    && parameter.charAt(1) == '=') {
+                try {
+                    double quality = Double.parseDouble(parameter.substring(2).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private WebAsyncTask<Void> stream(ExportFormat format, String acceptEncoding, HttpServletResponse response,
+                                      Export export) {
+        if (!dataStore.isLocal()) {
+            throw new DataProcessingException("Exports are not supported in clustered mode");
+        }
+        response.setContentType(format.getContentType());
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        return new WebAsyncTask<>(timeoutMs, () -> {
+            OutputStream out = new InterruptibleOutputStream(response.getOutputStream());
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                export.writeTo(compressed);
+                compressed.finish();
+            } else {
+                export.writeTo(out);
+            }
+            out.flush();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Stream failing its next write once the thread of the export is interrupted, which Spring MVC does when
+     * the export times out.
+     */
+    private static final class InterruptibleOutputStream extends FilterOutputStream {
+
+        private InterruptibleOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("The export timed out");
+            }
+            out.write(bytes, offset, length);
+        }
+    }
+}
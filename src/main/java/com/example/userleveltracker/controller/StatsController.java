@@ -0,0 +1,84 @@
+package com.example.userleveltracker.controller;
+
+import com.example.userleveltracker.cache.LeaderboardCache;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.ingestion.AsyncIngestionPipeline;
+import com.example.userleveltracker.metrics.ServiceMetrics;
+import com.example.userleveltracker.model.CacheStats;
+import com.example.userleveltracker.model.IngestionStats;
+import com.example.userleveltracker.model.MethodLatency;
+import com.example.userleveltracker.model.RuntimeStats;
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.WalStats;
+import com.example.userleveltracker.persistence.WriteAheadLog;
+import com.example.userleveltracker.service.DataStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * Controller class for reporting runtime statistics of the application.
+ */
+@RestController
+@RequiredArgsConstructor
+public class StatsController {
+    private final DataStorageService dataStore;
+    private final ObjectProvider<WriteAheadLog> writeAheadLog;
+    private final ServiceMetrics serviceMetrics;
+    private final LeaderboardCache leaderboardCache;
+    private final ObjectProvider<AsyncIngestionPipeline> ingestionPipeline;
+    @Value("${web.execution-mode}")
+    private String executionMode;
+
+    @GetMapping("/stats/latency")
+    public ResponseEntity<List<MethodLatency>> getLatencies() {
+        return ResponseEntity.ok(serviceMetrics.getLatencies());
+    }
+
+    @GetMapping("/stats/storage")
+    public ResponseEntity<StorageStats> getStorageStats() {
+        return ResponseEntity.ok(dataStore.getStorageStats());
+    }
+
+    @GetMapping("/stats/cache")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(leaderboardCache.getStats());
+    }
+
+    @GetMapping("/stats/wal")
+    public ResponseEntity<WalStats> getWalStats() {
+        WriteAheadLog wal = writeAheadLog.getIfAvailable();
+        if (wal == null) {
+            throw new DataProcessingException("The write-ahead log is not enabled");
+        }
+        return ResponseEntity.ok(wal.getStats());
+    }
+
+    @GetMapping("/stats/ingestion")
+    public ResponseEntity<IngestionStats> getIngestionStats() {
+        AsyncIngestionPipeline pipeline = ingestionPipeline.getIfAvailable();
+        if (pipeline == null) {
+            throw new DataProcessingException("The asynchronous write pipeline is not enabled");
+        }
+        return ResponseEntity.ok(pipeline.getStats());
+    }
+
+    @GetMapping("/stats/runtime")
+    public ResponseEntity<RuntimeStats> getRuntimeStats() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        return ResponseEntity.ok(RuntimeStats.builder()
+                .executionMode(executionMode)
+                .liveThreads(ManagementFactory.getThreadMXBean().getThreadCount())
+                .heapUsedBytes(memory.getHeapMemoryUsage().getUsed())
+                .nonHeapUsedBytes(memory.getNonHeapMemoryUsage().getUsed())
+                .build());
+    }
+}
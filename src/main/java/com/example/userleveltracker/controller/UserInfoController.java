@@ -1,14 +1,40 @@
 package com.example.userleveltracker.controller;
 
+import com.example.userleveltracker.cache.LeaderboardCache;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.IngestionQueueFullException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.feed.LevelChangeFeed;
+import com.example.userleveltracker.feed.LevelFeedEmitter;
+import com.example.userleveltracker.global.GlobalLeaderboard;
+import com.example.userleveltracker.ingestion.AsyncIngestionPipeline;
+import com.example.userleveltracker.model.BatchResult;
+import com.example.userleveltracker.model.GlobalRank;
 import com.example.userleveltracker.model.UserInfo;
 import com.example.userleveltracker.model.UserInfoRq;
-import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.model.UserRank;
+import com.example.userleveltracker.model.UserScore;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.window.LeaderboardWindow;
+import com.example.userleveltracker.window.WindowedLeaderboards;
+import com.example.userleveltracker.wire.WireFormat;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
 
 /**
  * Controller class for handling user information and level results.
@@ -17,21 +43,354 @@ import java.util.List;
 @RestController
 @RequiredArgsConstructor
 public class UserInfoController {
-    private final InMemoryDataStorageService dataStore;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
+    private final DataStorageService dataStore;
+    private final LeaderboardCache leaderboardCache;
+    private final Optional<AsyncIngestionPipeline> ingestionPipeline;
+    private final Optional<WindowedLeaderboards> windowedLeaderboards;
+    private final Optional<GlobalLeaderboard> globalLeaderboard;
+    private final Optional<LevelChangeFeed> levelChangeFeed;
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+    @Value("${api.batch.max-records}")
+    private int maxBatchRecords;
+    @Value("${ingestion.async.sync-timeout-ms}")
+    private long syncTimeoutMs;
+
+    /**
+     * Returns the top results of a user. The JSON response for the default limit is served from the
+     * {@link LeaderboardCache}, a response for another limit or a following page, or in the
+     * {@link WireFormat#VARINT_RECORDS} format, is built from the storage. A page is continued by passing
+     * the {@code X-Next-Cursor} header of the previous page as {@code cursor}.
+     *
+     * @param userId the ID of the user
+     * @param limit  the maximum number of results to return, the configured default if not given
+     * @param cursor the cursor of the page, the first page if not given
+     * @param accept the media types accepted by the client
+     * @return the top results of the user
+     */
     @GetMapping("/userinfo/{userId}")
-    public ResponseEntity<List<UserInfo>> getUserInfo(@PathVariable int userId) {
-        return ResponseEntity.ok(dataStore.getUserInfo(userId));
+    public ResponseEntity<?> getUserInfo(@PathVariable int userId, @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit == null && cursor == null && !acceptsVarintRecords(accept)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(leaderboardCache.getUserInfo(userId));
+        }
+
+        UserInfo after = null;
+        if (cursor != null) {
+            int[] position = parseCursor(cursor);
+            after = UserInfo.builder().userId(userId).result(position[0]).levelId(position[1]).build();
+        }
+        List<UserInfo> page = dataStore.getUserInfo(userId, after, limit == null ? resultsLimit : limit);
+        return pageResponse(page, page.isEmpty() ? null : formatCursor(page, UserInfo::getLevelId));
     }
 
+    /**
+     * Returns the top users of a level. The JSON response for the default limit is served from the
+     * {@link LeaderboardCache}, a response for another limit or a following page, or in the
+     * {@link WireFormat#VARINT_RECORDS} format, is built from the storage. A page is continued by passing
+     * the {@code X-Next-Cursor} header of the previous page as {@code cursor}.
+     * With a {@code daily} or {@code weekly} window, the best results submitted in the current window, or in
+     * the window {@code offset} windows back, are returned from the {@link WindowedLeaderboards}.
+     *
+     * @param levelId the ID of the level
+     * @param limit   the maximum number of users to return, the configured default if not given
+     * @param cursor  the cursor of the page, the first page if not given
+     * @param window  the window of the results, {@code all-time} if not given
+     * @param offset  the number of windows back from the current one
+     * @param accept  the media types accepted by the client
+     * @return the top users of the level
+     */
     @GetMapping("/levelinfo/{levelId}")
-    public ResponseEntity<List<UserInfo>> getLevelInfo(@PathVariable int levelId) {
-        return ResponseEntity.ok(dataStore.getLevelInfo(levelId));
+    public ResponseEntity<?> getLevelInfo(@PathVariable int levelId, @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = LeaderboardWindow.ALL_TIME) String window,
+                                          @RequestParam(defaultValue = "0") int offset,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean allTime = LeaderboardWindow.ALL_TIME.equalsIgnoreCase(window);
+        if (allTime && offset != 0) {
+            throw new DataProcessingException("Offset is only supported with the daily and weekly windows");
+        }
+        if (allTime && limit == null && cursor == null && !acceptsVarintRecords(accept)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(leaderboardCache.getLevelInfo(levelId));
+        }
+
+        UserInfo after = null;
+        if (cursor != null) {
+            int[] position = parseCursor(cursor);
+            after = UserInfo.builder().levelId(levelId).result(position[0]).userId(position[1]).build();
+        }
+
+        List<UserInfo> page;
+        if (allTime) {
+            page = dataStore.getLevelInfo(levelId, after, limit == null ? resultsLimit : limit);
+        } else {
+            LeaderboardWindow leaderboardWindow = LeaderboardWindow.of(window);
+            page = windowedLeaderboards
+                    .orElseThrow(() -> new DataProcessingException("Windowed leaderboards are not enabled"))
+                    .getLevelInfo(leaderboardWindow, offset, levelId, after, limit);
+        }
+        return pageResponse(page, page.isEmpty() ? null : formatCursor(page, UserInfo::getUserId));
+    }
+
+    /**
+     * Returns the rank and percentile of a user on a level and the users ranked right above and below them.
+     *
+     * @param levelId    the ID of the level
+     * @param userId     the ID of the user
+     * @param neighbours the maximum number of users to return above and below the user
+     * @return the rank of the user on the level
+     */
+    @GetMapping("/levelinfo/{levelId}/rank/{userId}")
+    public ResponseEntity<UserRank> getLevelRank(@PathVariable int levelId, @PathVariable int userId,
+                                                 @RequestParam(defaultValue = "2") int neighbours) {
+        return ResponseEntity.ok(dataStore.getLevelRank(levelId, userId, neighbours));
+    }
+
+    /**
+     * Subscribes to the changes of the top users of a level as a stream of Server-Sent Events: a
+     * {@code snapshot} event with the current top, then a {@code change} event whenever the top changes, at
+     * most one per {@code leaderboard.feed.interval-ms}.
+     *
+     * @param levelId the ID of the level
+     * @return the event stream
+     */
+    @GetMapping(value = "/levelinfo/{levelId}/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public LevelFeedEmitter getLevelFeed(@PathVariable int levelId) {
+        return levelChangeFeed
+                .orElseThrow(() -> new DataProcessingException("Level change feed is not enabled"))
+                .subscribe(levelId);
     }
 
+    /**
+     * Returns the top users by total score, the sum of their best results on all levels, from the
+     * {@link GlobalLeaderboard}. A page is continued by passing the {@code X-Next-Cursor} header of the
+     * previous page as {@code cursor}.
+     *
+     * @param limit  the maximum number of users to return, the configured default if not given
+     * @param cursor the cursor of the page, the first page if not given
+     * @return the top users by total score
+     */
+    @GetMapping("/leaderboard/global")
+    public ResponseEntity<List<UserScore>> getGlobalLeaderboard(@RequestParam(required = false) Integer limit,
+                                                                @RequestParam(required = false) String cursor) {
+        UserScore after = null;
+        if (cursor != null) {
+            int separator = cursor.indexOf(':');
+            try {
+                after = UserScore.builder()
+                        .score(Long.parseLong(cursor.substring(0, separator)))
+                        .userId(Integer.parseInt(cursor.substring(separator + 1))).build();
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new DataProcessingException("Cursor must be in the format <score>:<id>");
+            }
+        }
+
+        List<UserScore> page = globalLeaderboard().getTop(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!page.isEmpty()) {
+            UserScore last = page.get(page.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, last.getScore() + ":" + last.getUserId());
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Returns the rank and percentile of a user by total score and the users ranked right above and below
+     * them.
+     *
+     * @param userId     the ID of the user
+     * @param neighbours the maximum number of users to return above and below the user
+     * @return the rank of the user on the global leaderboard
+     */
+    @GetMapping("/leaderboard/global/rank/{userId}")
+    public ResponseEntity<GlobalRank> getGlobalRank(@PathVariable int userId,
+                                                    @RequestParam(defaultValue = "2") int neighbours) {
+        return ResponseEntity.ok(globalLeaderboard().getRank(userId, neighbours));
+    }
+
+    /**
+     * Sets a result. If the asynchronous write pipeline is enabled, the result is queued and the request
+     * is answered with {@code 202 Accepted}, unless {@code sync} is set, in which case the request waits
+     * until the result is applied, so the caller can read its own write, or answers
+     * {@code 503 Service Unavailable} if it is not applied within {@code ingestion.async.sync-timeout-ms}.
+     * The result is sent as a JSON object or as one record of the {@link WireFormat#VARINT_RECORDS} format,
+     * and its fields are checked by {@link UserInfoRq#validate()}.
+     *
+     * @param userInfo the result to be set
+     * @param sync     whether to wait until a queued result is applied
+     * @return {@code 200 OK} once the result is applied or {@code 202 Accepted} once it is queued
+     */
     @PutMapping("/setinfo")
-    public ResponseEntity<Void> setInfo(@RequestBody @Valid UserInfoRq userInfo) {
-        dataStore.setInfo(userInfo.getUserId(), userInfo.getLevelId(), userInfo.getResult());
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> setInfo(@RequestBody UserInfoRq userInfo,
+                                        @RequestParam(defaultValue = "false") boolean sync) {
+        String error = userInfo.validate();
+        if (error != null) {
+            throw new DataProcessingException(error);
+        }
+
+        if (ingestionPipeline.isEmpty()) {
+            dataStore.setInfo(userInfo.getUserId(), userInfo.getLevelId(), userInfo.getResult());
+            return ResponseEntity.ok().build();
+        }
+
+        AsyncIngestionPipeline pipeline = ingestionPipeline.get();
+        if (sync) {
+            awaitApplied(pipeline.submitTracked(userInfo.getUserId(), userInfo.getLevelId(), userInfo.getResult()));
+            return ResponseEntity.ok().build();
+        }
+        pipeline.submit(userInfo.getUserId(), userInfo.getLevelId(), userInfo.getResult());
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Sets many results at once. Every record is validated on its own: the valid records are stored
+     * and the invalid ones are reported in the response without failing the whole batch. The results are
+     * sent as a JSON array or as records of the {@link WireFormat#VARINT_RECORDS} format, at most
+     * {@code api.batch.max-records} of them.
+     *
+     * <p>If the asynchronous write pipeline is enabled, the valid records are queued like the results of
+     * {@link #setInfo}: the request is answered with {@code 202 Accepted} once they are queued, or with
+     * {@code 200 OK} once they are applied if {@code sync} is set, within the same timeout. A record whose
+     * queue is full is reported as rejected, and the other records are still queued.</p>
+     *
+     * <p>In clustered mode, a batch whose records are owned by an unreachable node is answered with
+     * {@code 503 Service Unavailable} naming the node, although the records of the other nodes are stored.
+     * A result only replaces a lower one, so the client can send the whole batch again.</p>
+     *
+     * @param records the results to be set
+     * @param sync    whether to wait until the queued records are applied
+     * @return a {@link BatchResult} with the number of accepted records and the errors of the rejected ones
+     */
+    @PutMapping("/setinfo/batch")
+    public ResponseEntity<BatchResult> setInfoBatch(@RequestBody List<UserInfoRq> records,
+                                                    @RequestParam(defaultValue = "false") boolean sync) {
+        if (records.size() > maxBatchRecords) {
+            throw new DataProcessingException("A batch must hold at most " + maxBatchRecords + " records, got "
+                    + records.size());
+        }
+
+        List<UserInfo> accepted = new ArrayList<>(records.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(records.size());
+        List<BatchResult.RecordError> errors = new ArrayList<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            UserInfoRq record = records.get(i);
+            String error = validate(record);
+            if (error == null) {
+                accepted.add(UserInfo.builder()
+                        .userId(record.getUserId())
+                        .levelId(record.getLevelId())
+                        .result(record.getResult()).build());
+                acceptedIndexes.add(i);
+            } else {
+                errors.add(BatchResult.RecordError.builder().index(i).message(error).build());
+            }
+        }
+
+        if (ingestionPipeline.isEmpty()) {
+            dataStore.setInfoBatch(accepted);
+            return ResponseEntity.ok(batchResult(accepted.size(), errors));
+        }
+
+        AsyncIngestionPipeline pipeline = ingestionPipeline.get();
+        List<CompletableFuture<Void>> applied = new ArrayList<>();
+        int queued = 0;
+        for (int i = 0; i < accepted.size(); i++) {
+            UserInfo record = accepted.get(i);
+            try {
+                if (sync) {
+                    applied.add(pipeline.submitTracked(record.getUserId(), record.getLevelId(), record.getResult()));
+                } else {
+                    pipeline.submit(record.getUserId(), record.getLevelId(), record.getResult());
+                }
+                queued++;
+            } catch (IngestionQueueFullException e) {
+                errors.add(BatchResult.RecordError.builder()
+                        .index(acceptedIndexes.get(i))
+                        .message("[" + e.getMessage() + "]").build());
+            }
+        }
+        errors.sort(Comparator.comparingInt(BatchResult.RecordError::getIndex));
+
+        if (sync) {
+            awaitApplied(CompletableFuture.allOf(applied.toArray(new CompletableFuture[0])));
+            return ResponseEntity.ok(batchResult(queued, errors));
+        }
+        return ResponseEntity.accepted().body(batchResult(queued, errors));
+    }
+
+    /**
+     * Waits for queued results to be applied, for at most {@code ingestion.async.sync-timeout-ms}.
+     */
+    private void awaitApplied(CompletableFuture<Void> applied) {
+        try {
+            applied.get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new StorageUnavailableException("The results were queued but not applied within "
+                    + syncTimeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted while waiting for the results to be applied", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new StorageUnavailableException("The results could not be applied", e.getCause());
+        }
+    }
+
+    private GlobalLeaderboard globalLeaderboard() {
+        return globalLeaderboard.orElseThrow(() -> new DataProcessingException("Global leaderboard is not enabled"));
+    }
+
+    private static BatchResult batchResult(int accepted, List<BatchResult.RecordError> errors) {
+        return BatchResult.builder()
+                .accepted(accepted)
+                .rejected(errors.size())
+                .errors(errors).build();
+    }
+
+    private static ResponseEntity<List<UserInfo>> pageResponse(List<UserInfo> page, String nextCursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(page);
+    }
+
+    private static boolean acceptsVarintRecords(String accept) {
+        try {
+            return accept != null && MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(WireFormat.VARINT_RECORDS::equalsTypeAndSubtype);
+        } catch (InvalidMediaTypeException e) {
+            // left to the content negotiation to reject
+            return false;
+        }
+    }
+
+    private static String formatCursor(List<UserInfo> page, ToIntFunction<UserInfo> idExtractor) {
+        UserInfo last = page.get(page.size() - 1);
+        return last.getResult() + ":" + idExtractor.applyAsInt(last);
+    }
+
+    private static int[] parseCursor(String cursor) {
+        int separator = cursor.indexOf(':');
+        try {
+            return new int[]{Integer.parseInt(cursor.substring(0, separator)),
+                    Integer.parseInt(cursor.substring(separator + 1))};
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new DataProcessingException("Cursor must be in the format <result>:<id>");
+        }
+    }
+
+    private static String validate(UserInfoRq record) {
+        return record == null ? "[Record cannot be null]" : record.validate();
     }
 }
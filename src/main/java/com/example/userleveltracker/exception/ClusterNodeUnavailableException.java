@@ -0,0 +1,16 @@
+package com.example.userleveltracker.exception;
+
+/**
+ * Exception thrown to indicate that a node of the cluster cannot be reached.
+ */
+public class ClusterNodeUnavailableException extends RuntimeException {
+    /**
+     * Constructs a new ClusterNodeUnavailableException with the specified detail message and cause.
+     *
+     * @param message The error message.
+     * @param cause   The failure of the connection to the node.
+     */
+    public ClusterNodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,6 +2,11 @@ package com.example.userleveltracker.exception;
 
 /**
  * Exception thrown to indicate a problem during data processing.
+ *
+ * <p>The exception reports a rejected request, such as an invalid argument or a lookup of a missing user
+ * or level, which is answered with its message only. It therefore records no stack trace and no
+ * suppressed exceptions, so a client flooding the service with bad requests does not make every one of
+ * them walk the stack.</p>
  */
 public class DataProcessingException extends RuntimeException {
     /**
@@ -10,6 +15,6 @@ public class DataProcessingException extends RuntimeException {
      * @param message The error message.
      */
     public DataProcessingException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,15 @@
+package com.example.userleveltracker.exception;
+
+/**
+ * Exception thrown to indicate that a submitted result cannot be queued because the queue is full.
+ */
+public class IngestionQueueFullException extends RuntimeException {
+    /**
+     * Constructs a new IngestionQueueFullException with the specified detail message.
+     *
+     * @param message The error message.
+     */
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
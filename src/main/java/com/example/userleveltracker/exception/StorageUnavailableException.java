@@ -0,0 +1,16 @@
+package com.example.userleveltracker.exception;
+
+/**
+ * Exception thrown to indicate that a result cannot be made durable because the write-ahead log failed.
+ */
+public class StorageUnavailableException extends RuntimeException {
+    /**
+     * Constructs a new StorageUnavailableException with the specified detail message and cause.
+     *
+     * @param message The error message.
+     * @param cause   The failure of the write-ahead log.
+     */
+    public StorageUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.userleveltracker.export;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Format of the records written by a {@link ResultExporter}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    /**
+     * One JSON object with the {@code user_id}, {@code level_id} and {@code result} fields per line.
+     */
+    NDJSON("application/x-ndjson"),
+    /**
+     * Records of 12 bytes: the user ID, the level ID and the result as big-endian {@code int} values.
+     */
+    BINARY("application/octet-stream");
+
+    private final String contentType;
+
+    /**
+     * Returns the format with the given name, ignoring case.
+     *
+     * @param name the name of the format
+     * @return the format with the name
+     * @throws DataProcessingException if there is no format with the name
+     */
+    public static ExportFormat of(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new DataProcessingException("Format must be one of: ndjson, binary");
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.userleveltracker.export;
+
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultConsumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the best results of the storage to an output stream without materializing them.
+ *
+ * <p>The results are walked with {@link DataStorageService#forEachResult} or
+ * {@link DataStorageService#forEachLevelResult}, which do not block writers, and every result is encoded
+ * into a fixed buffer that is written to the stream whenever it fills up. The memory taken by an export
+ * is the buffer only, whatever the size of the data.</p>
+ *
+ * <p>Results are never removed and only improve, so every result stored when an export starts is written
+ * exactly once, with the value it had at that time or a later, higher one. Results stored during the
+ * export may or may not be written.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ResultExporter {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final byte[] USER_ID_FIELD = "{\"user_id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LEVEL_ID_FIELD = ",\"level_id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESULT_FIELD = ",\"result\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RECORD_END = "}\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final DataStorageService dataStore;
+
+    /**
+     * Writes the best result of every user on every level.
+     *
+     * @param format the format of the records
+     * @param out    the stream to write to, which is flushed but not closed
+     * @return the number of written records
+     * @throws IOException if writing to the stream fails
+     */
+    public long exportAll(ExportFormat format, OutputStream out) throws IOException {
+        RecordWriter writer = new RecordWriter(format, out);
+        try {
+            dataStore.forEachResult(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes the best result of every user on a specific level.
+     *
+     * @param levelId the ID of the level
+     * @param format  the format of the records
+     * @param out     the stream to write to, which is flushed but not closed
+     * @return the number of written records
+     * @throws IOException if writing to the stream fails
+     */
+    public long exportLevel(int levelId, ExportFormat format, OutputStream out) throws IOException {
+        RecordWriter writer = new RecordWriter(format, out);
+        try {
+            dataStore.forEachLevelResult(levelId, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Encodes results into a buffer and writes the buffer to the stream whenever it cannot hold another
+     * record. A record takes at most 12 bytes in binary and 70 bytes in NDJSON.
+     */
+    private static final class RecordWriter implements ResultConsumer {
+        private static final int MAX_RECORD_BYTES = 70;
+
+        private final ExportFormat format;
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position;
+        private long records;
+
+        private RecordWriter(ExportFormat format, OutputStream out) {
+            this.format = format;
+            this.out = out;
+        }
+
+        @Override
+        public void accept(int userId, int levelId, int result) {
+            if (position > buffer.length - MAX_RECORD_BYTES) {
+                writeBuffer();
+            }
+            if (format == ExportFormat.BINARY) {
+                putInt(userId);
+                putInt(levelId);
+                putInt(result);
+            } else {
+                put(USER_ID_FIELD);
+                putDecimal(userId);
+                put(LEVEL_ID_FIELD);
+                putDecimal(levelId);
+                put(RESULT_FIELD);
+                putDecimal(result);
+                put(RECORD_END);
+            }
+            records++;
+        }
+
+        private long finish() throws IOException {
+            try {
+                writeBuffer();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            return records;
+        }
+
+        private void writeBuffer() {
+            try {
+                out.write(buffer, 0, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+        }
+
+        private void put(byte[] bytes) {
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void putInt(int value) {
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        private void putDecimal(int value) {
+            long remaining = value;
+            if (remaining < 0) {
+                buffer[position++] = '-';
+                remaining = -remaining;
+            }
+            int digits = 1;
+            for (long bound = 10; bound <= remaining; bound *= 10) {
+                digits++;
+            }
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + remaining % 10);
+                remaining /= 10;
+            }
+            position += digits;
+        }
+    }
+}
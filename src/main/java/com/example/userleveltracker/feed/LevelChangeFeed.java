@@ -0,0 +1,434 @@
+package com.example.userleveltracker.feed;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.LevelChange;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Push feed of the changes of the top users of levels, enabled with {@code leaderboard.feed.enabled=true}.
+ *
+ * <p>A subscriber of a level receives a {@code snapshot} event with the current top of the level, then a
+ * {@code change} event with a {@link LevelChange} whenever the top changes. The feed listens to the
+ * improved results of the {@link DataStorageService} and marks a watched level as changed only if the
+ * improvement can change its top: if the top has fewer entries than the limit or the new result ranks ahead
+ * of its last entry. Every other improvement, and every improvement of a level nobody watches, costs a map
+ * lookup.</p>
+ *
+ * <p>The changes are coalesced: every {@code leaderboard.feed.interval-ms}, the top of every changed level
+ * is read once, compared with the top last pushed, and the difference is serialized once into a complete
+ * event frame that is written as is to all subscribers of the level. A burst of writes thus costs at most
+ * one event per interval, and the cost of an event grows with the subscribers only by the bytes written to
+ * them.</p>
+ *
+ * <p>No frame is written under a lock, and the publisher never waits for a client. Every subscriber has a
+ * queue of at most {@code leaderboard.feed.max-pending-events} frames, drained by one of
+ * {@code leaderboard.feed.sender-threads} sender threads. A client too slow to keep up, whose queue
+ * overflows, is dropped: its stream is completed after the frame being written, and the client reconnects
+ * to get a new snapshot. A client that stops reading holds one sender thread until its write fails, while
+ * the other sender threads serve the other subscribers.</p>
+ *
+ * <p>A topic is registered before its top is first read, so an improvement made meanwhile marks it as
+ * changed and is pushed with the next change. The frames of a level are queued and its subscribers are
+ * added under the monitor of the level, so a subscriber receives every change after its snapshot exactly
+ * once. A topic whose last subscriber leaves is closed and removed, and a subscriber racing with the
+ * removal registers a new topic. The storage must be {@link DataStorageService#isLocal() local}, since a
+ * node of a cluster is not notified of the results of the levels it does not own.</p>
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "leaderboard.feed.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LevelChangeFeed implements ResultListener {
+    private static final byte[] SNAPSHOT_PREFIX = "event: snapshot\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CHANGE_PREFIX = "event: change\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FRAME_SUFFIX = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final DataStorageService dataStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${leaderboard.feed.interval-ms}")
+    private long intervalMs;
+    @Value("${leaderboard.feed.timeout-ms}")
+    private long timeoutMs;
+    @Value("${leaderboard.feed.max-pending-events}")
+    private int maxPendingEvents;
+    @Value("${leaderboard.feed.sender-threads}")
+    private int senderThreads;
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+
+    private final Map<Integer, Topic> topics = new ConcurrentHashMap<>();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder droppedSubscribers = new LongAdder();
+    private ScheduledExecutorService publisher;
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void start() {
+        if (!dataStore.isLocal()) {
+            throw new IllegalStateException("The level change feed is not supported in clustered mode");
+        }
+        dataStore.addResultListener(this);
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "level-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publishQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        AtomicInteger threads = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "level-feed-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+        topics.values().forEach(Topic::close);
+        senders.shutdown();
+    }
+
+    /**
+     * Subscribes to the changes of the top users of a level. The snapshot of the top is queued to the
+     * stream before the stream is returned. The stream is completed after {@code leaderboard.feed.timeout-ms},
+     * and the client reconnects to get a new snapshot.
+     *
+     * @param levelId the ID of the level
+     * @return the event stream of the subscriber
+     */
+    public LevelFeedEmitter subscribe(int levelId) {
+        Subscriber subscriber = new Subscriber(levelId, new LevelFeedEmitter(timeoutMs));
+        Runnable unsubscribe = () -> subscriber.drop(false);
+        subscriber.emitter.onCompletion(unsubscribe);
+        subscriber.emitter.onTimeout(unsubscribe);
+        subscriber.emitter.onError(e -> unsubscribe.run());
+
+        while (!topics.computeIfAbsent(levelId, Topic::new).add(subscriber)) {
+            // the topic was closed by its last subscriber leaving, it is being removed
+            Thread.onSpinWait();
+        }
+        return subscriber.emitter;
+    }
+
+    @Override
+    public void onResultImproved(int userId, int levelId, int previousResult, int result) {
+        Topic topic = topics.get(levelId);
+        if (topic != null && topic.isChangedBy(userId, result)) {
+            topic.changed = true;
+        }
+    }
+
+    /**
+     * Marks every watched level as changed, since the results loaded in bulk are not notified one by one.
+     */
+    @Override
+    public void onResultsLoaded() {
+        for (Topic topic : topics.values()) {
+            topic.changed = true;
+        }
+    }
+
+    /**
+     * Returns the number of change events pushed since the start, each one counted once however many
+     * subscribers it was written to.
+     *
+     * @return the number of pushed events
+     */
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * Returns the number of subscribers dropped since the start for not keeping up with their events.
+     *
+     * @return the number of dropped subscribers
+     */
+    public long getDroppedSubscribers() {
+        return droppedSubscribers.sum();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Topic topic = topics.get(subscriber.levelId);
+        if (topic != null && topic.remove(subscriber)) {
+            topics.remove(subscriber.levelId, topic);
+        }
+    }
+
+    private void publishQuietly() {
+        for (Topic topic : topics.values()) {
+            try {
+                topic.publish();
+            } catch (RuntimeException e) {
+                log.error("Cannot publish the changes of level {}: {}", topic.levelId, e.getMessage());
+            }
+        }
+    }
+
+    private List<UserInfo> readTop(int levelId) {
+        try {
+            return dataStore.getLevelInfo(levelId);
+        } catch (DataProcessingException e) {
+            // no results yet
+            return Collections.emptyList();
+        }
+    }
+
+    private static long pack(int result, int userId) {
+        return (long) result << 32 | userId & 0xFFFFFFFFL;
+    }
+
+    private byte[] frame(byte[] prefix, LevelChange change) {
+        try {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            frame.write(prefix);
+            frame.write(objectMapper.writeValueAsBytes(change));
+            frame.write(FRAME_SUFFIX);
+            return frame.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Subscribers of one level and the top last pushed to them.
+     */
+    private final class Topic {
+        private final int levelId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private volatile boolean changed;
+        /**
+         * The result and user ID of the last entry of a full top packed into one value, which an entry must
+         * rank ahead of to change the top, or {@link Long#MIN_VALUE} while the top is not full.
+         */
+        private volatile long threshold = Long.MIN_VALUE;
+        private List<UserInfo> top;
+        private byte[] snapshot;
+        private boolean closed;
+
+        private Topic(int levelId) {
+            this.levelId = levelId;
+        }
+
+        private boolean isChangedBy(int userId, int result) {
+            return pack(result, userId) > threshold;
+        }
+
+        /**
+         * Queues the snapshot to the subscriber and adds it, unless the topic is closed.
+         */
+        private synchronized boolean add(Subscriber subscriber) {
+            if (closed) {
+                return false;
+            }
+            if (top == null) {
+                // cleared before the top is read, like in publish
+                changed = false;
+                setTop(readTop(levelId));
+            }
+            if (snapshot == null) {
+                snapshot = frame(SNAPSHOT_PREFIX, LevelChange.builder()
+                        .levelId(levelId)
+                        .changed(top)
+                        .removed(Collections.emptyList()).build());
+            }
+            subscribers.add(subscriber);
+            subscriber.enqueue(snapshot);
+            return true;
+        }
+
+        /**
+         * Removes the subscriber and closes the topic if it has no subscribers left.
+         *
+         * @return {@code true} if the topic was closed
+         */
+        private synchronized boolean remove(Subscriber subscriber) {
+            if (!subscribers.remove(subscriber) || !subscribers.isEmpty()) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        private synchronized void publish() {
+            if (!changed || top == null) {
+                return;
+            }
+            // cleared before the top is read, so an improvement made after the read marks the level again
+            changed = false;
+
+            List<UserInfo> previous = top;
+            setTop(readTop(levelId));
+            LevelChange change = diff(previous, top);
+            if (change.getChanged().isEmpty() && change.getRemoved().isEmpty()) {
+                return;
+            }
+
+            snapshot = null;
+            byte[] frame = frame(CHANGE_PREFIX, change);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.enqueue(frame);
+            }
+            events.increment();
+        }
+
+        private void close() {
+            List<Subscriber> closing;
+            synchronized (this) {
+                closed = true;
+                closing = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            closing.forEach(subscriber -> subscriber.drop(true));
+        }
+
+        private void setTop(List<UserInfo> top) {
+            this.top = top;
+            if (top.size() < resultsLimit) {
+                threshold = Long.MIN_VALUE;
+            } else {
+                UserInfo last = top.get(top.size() - 1);
+                threshold = pack(last.getResult(), last.getUserId());
+            }
+        }
+
+        private LevelChange diff(List<UserInfo> previous, List<UserInfo> current) {
+            Map<Integer, Integer> previousResults = new HashMap<>();
+            for (UserInfo info : previous) {
+                previousResults.put(info.getUserId(), info.getResult());
+            }
+
+            List<UserInfo> changedEntries = new ArrayList<>();
+            for (UserInfo info : current) {
+                Integer result = previousResults.remove(info.getUserId());
+                if (result == null || !result.equals(info.getResult())) {
+                    changedEntries.add(info);
+                }
+            }
+
+            return LevelChange.builder()
+                    .levelId(levelId)
+                    .changed(changedEntries)
+                    .removed(new ArrayList<>(previousResults.keySet())).build();
+        }
+    }
+
+    /**
+     * Stream of a subscriber with the frames queued to it, written by at most one sender thread at a time.
+     */
+    private final class Subscriber {
+        private final int levelId;
+        private final LevelFeedEmitter emitter;
+        private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(maxPendingEvents);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private volatile boolean completing;
+        private boolean completed;
+
+        private Subscriber(int levelId, LevelFeedEmitter emitter) {
+            this.levelId = levelId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues the frame without waiting, or drops the subscriber if its queue is full.
+         */
+        private void enqueue(byte[] frame) {
+            if (dropped.get()) {
+                return;
+            }
+            if (!pending.offer(frame)) {
+                droppedSubscribers.increment();
+                log.warn("Dropped a subscriber of level {} falling {} events behind", levelId, maxPendingEvents);
+                drop(true);
+                return;
+            }
+            scheduleSend();
+        }
+
+        /**
+         * Stops queueing frames to the subscriber and removes it from its topic. The stream is completed by a
+         * sender thread, after the frame it may be writing, if {@code complete} is set, and by the container
+         * otherwise.
+         */
+        private void drop(boolean complete) {
+            if (!dropped.compareAndSet(false, true)) {
+                return;
+            }
+            completing = complete;
+            pending.clear();
+            unsubscribe(this);
+            if (complete) {
+                scheduleSend();
+            }
+        }
+
+        private void scheduleSend() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // the feed is stopped, the container completes the stream
+                    sending.set(false);
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                byte[] frame;
+                while (!dropped.get() && (frame = pending.poll()) != null) {
+                    emitter.send(frame);
+                }
+                if (completing && !completed) {
+                    completed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the subscriber is gone, the container completes its stream
+                drop(false);
+            } finally {
+                sending.set(false);
+            }
+            // a frame queued or a drop made after the loop above found nothing to do
+            if (dropped.get() ? completing && !completed : !pending.isEmpty()) {
+                scheduleSend();
+            }
+        }
+    }
+}
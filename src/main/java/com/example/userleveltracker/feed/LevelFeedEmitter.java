@@ -0,0 +1,35 @@
+package com.example.userleveltracker.feed;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Server-Sent Events stream of a subscriber of a {@link LevelChangeFeed}.
+ *
+ * <p>Unlike an {@link SseEmitter}, which formats every event for every subscriber, the stream is sent
+ * complete event frames, so a frame serialized once is written as is to all subscribers.</p>
+ */
+public class LevelFeedEmitter extends ResponseBodyEmitter {
+    private static final MediaType EVENT_STREAM = new MediaType(MediaType.TEXT_EVENT_STREAM, StandardCharsets.UTF_8);
+
+    /**
+     * Creates a stream completed by the container after the given time.
+     *
+     * @param timeoutMs the time in milliseconds after which the stream times out
+     */
+    public LevelFeedEmitter(long timeoutMs) {
+        super(timeoutMs);
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        super.extendResponse(outputMessage);
+        if (outputMessage.getHeaders().getContentType() == null) {
+            outputMessage.getHeaders().setContentType(EVENT_STREAM);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.userleveltracker.global;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.GlobalRank;
+import com.example.userleveltracker.model.UserScore;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.impl.IntIntHashTable;
+import com.example.userleveltracker.service.impl.OrderStatisticSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leaderboard of the users by total score, the sum of their best results on all levels, enabled with
+ * {@code leaderboard.global.enabled=true}.
+ *
+ * <p>The totals are kept up to date incrementally: whenever the best result of a user on a level improves,
+ * the storage notifies the previous and the new best result, and the difference is added to the user's
+ * total. The leaderboard holds one score per user and no copy of the stored results, and a read never walks
+ * them. The totals are held in {@link OrderStatisticSet}s sorted by score, so the top users, a page after a
+ * cursor and the rank of a user are read in {@code O(log n)} plus the size of the answer, and an update
+ * costs {@code O(log n)}.</p>
+ *
+ * <p>The users are split over {@code leaderboard.global.shards} shards by user ID, each one with its own
+ * monitor and its own ranking. Writers of different shards never wait for each other, so the leaderboard
+ * adds no global lock to the write path. A page and a rank are gathered from every shard in turn, each one
+ * read under its own monitor, so a total is never observed half-way, but a read may see a concurrent update
+ * of one shard and not yet the one of another.</p>
+ *
+ * <p>The totals are rebuilt from the stored results when the application starts and after results are
+ * loaded without notifications. While the stored results are walked, every shard keeps the best result of
+ * every user and level it saw, from the walk and from the improvements notified meanwhile, in temporary
+ * {@link IntIntHashTable}s that are summed into the new totals and dropped once the walk ends. An
+ * improvement notified during the walk is thus counted once whether the walk sees it or not, and the
+ * leaderboard listens to the storage before it walks. Only an improvement stored during the walk but
+ * notified after it ended, a window of a few instructions of the writer, may be counted twice until the
+ * next rebuild. The storage must be
+ * {@link DataStorageService#isLocal() local}, since a node of a cluster is not notified of the results of
+ * the levels it does not own.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "leaderboard.global.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class GlobalLeaderboard implements ResultListener {
+    private static final Comparator<UserScore> SCORE_ORDER = Comparator.comparingLong(UserScore::getScore)
+            .thenComparingInt(UserScore::getUserId).reversed();
+
+    private final DataStorageService dataStore;
+
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+    @Value("${api.user.top.results.max-limit}")
+    private int maxResultsLimit;
+    @Value("${leaderboard.global.shards}")
+    private int shardCount;
+
+    private final Object rebuildLock = new Object();
+    private Shard[] shards;
+
+    @PostConstruct
+    public void init() {
+        if (!dataStore.isLocal()) {
+            throw new IllegalStateException("The global leaderboard is not supported in clustered mode");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        dataStore.addResultListener(this);
+        rebuild();
+    }
+
+    @Override
+    public void onResultImproved(int userId, int levelId, int previousResult, int result) {
+        shardOf(userId).improve(userId, levelId, previousResult, result);
+    }
+
+    /**
+     * Rebuilds the totals from the stored results, since the results loaded in bulk or recovered on startup
+     * are not notified one by one.
+     */
+    @Override
+    public void onResultsLoaded() {
+        rebuild();
+    }
+
+    /**
+     * Retrieves up to {@code limit} users and their total scores ranked after the given score, in
+     * descending order of score and user ID.
+     *
+     * @param after the last score of the previous page, or {@code null} for the first page
+     * @param limit the maximum number of users to return, {@code null} for the configured default;
+     *              capped by the {@code api.user.top.results.max-limit} property
+     * @return a list of {@link UserScore} objects representing the top users
+     * @throws DataProcessingException if the limit is less than 1 or no results are stored yet
+     */
+    public List<UserScore> getTop(UserScore after, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        int pageSize = limit == null ? resultsLimit : Math.min(limit, maxResultsLimit);
+        List<UserScore> page = new ArrayList<>();
+        boolean empty = true;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                empty &= shard.scores.isEmpty();
+                page.addAll(shard.ranking.range(after == null ? 0 : shard.ranking.higherIndex(after), pageSize));
+            }
+        }
+        if (empty) {
+            throw new DataProcessingException("Oops! There are no results yet");
+        }
+
+        page.sort(SCORE_ORDER);
+        return page.size() > pageSize ? new ArrayList<>(page.subList(0, pageSize)) : page;
+    }
+
+    /**
+     * Returns the rank and percentile of a user by total score and the users ranked right above and below
+     * them.
+     *
+     * @param userId     the ID of the user
+     * @param neighbours the maximum number of users to return above and below the user, capped by the
+     *                   {@code api.user.top.results.max-limit} property
+     * @return the {@link GlobalRank} of the user
+     * @throws DataProcessingException if the number of neighbours is negative or no results are found for
+     *                                 the specified user ID
+     */
+    public GlobalRank getRank(int userId, int neighbours) {
+        if (neighbours < 0) {
+            throw new DataProcessingException("Neighbours must be greater than or equal to 0");
+        }
+
+        int limit = Math.min(neighbours, maxResultsLimit);
+        List<UserScore> above = new ArrayList<>();
+        List<UserScore> below = new ArrayList<>();
+        Shard own = shardOf(userId);
+        UserScore score;
+        long index;
+        long total;
+        synchronized (own) {
+            score = own.scores.get(userId);
+            if (score == null) {
+                throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId);
+            }
+            int position = own.ranking.indexOf(score);
+            own.addNeighbours(position, position + 1, limit, above, below);
+            index = position;
+            total = own.ranking.size();
+        }
+        // the other shards do not hold the user, so their users ranked ahead of the score are all before it
+        for (Shard shard : shards) {
+            if (shard != own) {
+                synchronized (shard) {
+                    int before = shard.ranking.higherIndex(score);
+                    shard.addNeighbours(before, before, limit, above, below);
+                    index += before;
+                    total += shard.ranking.size();
+                }
+            }
+        }
+        above.sort(SCORE_ORDER);
+        below.sort(SCORE_ORDER);
+
+        return GlobalRank.builder()
+                .userId(userId)
+                .score(score.getScore())
+                .rank(index + 1)
+                .total(total)
+                .percentile((double) (total - index) * 100 / total)
+                .above(new ArrayList<>(above.subList(Math.max(above.size() - limit, 0), above.size())))
+                .below(new ArrayList<>(below.subList(0, Math.min(below.size(), limit))))
+                .build();
+    }
+
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            for (Shard shard : shards) {
+                shard.startRebuild();
+            }
+            dataStore.forEachResult((userId, levelId, result) -> shardOf(userId).merge(userId, levelId, result));
+            for (Shard shard : shards) {
+                shard.finishRebuild();
+            }
+        }
+    }
+
+    private Shard shardOf(int userId) {
+        return shards[Math.floorMod(userId, shards.length)];
+    }
+
+    /**
+     * Users of one shard and their ranking by total score, and while the totals are rebuilt, the best result
+     * of every user and level seen by the rebuild.
+     */
+    private static final class Shard {
+        private final Map<Integer, UserScore> scores = new HashMap<>();
+        private OrderStatisticSet<UserScore> ranking = new OrderStatisticSet<>(SCORE_ORDER);
+        private Map<Integer, IntIntHashTable> rebuilt;
+
+        private synchronized void improve(int userId, int levelId, int previousResult, int result) {
+            add(userId, (long) result - previousResult);
+            if (rebuilt != null) {
+                merge(userId, levelId, result);
+            }
+        }
+
+        private synchronized void merge(int userId, int levelId, int result) {
+            rebuilt.computeIfAbsent(userId, k -> new IntIntHashTable()).putMax(levelId, result);
+        }
+
+        private synchronized void startRebuild() {
+            rebuilt = new HashMap<>();
+        }
+
+        private synchronized void finishRebuild() {
+            scores.clear();
+            ranking = new OrderStatisticSet<>(SCORE_ORDER);
+            long[] total = new long[1];
+            rebuilt.forEach((userId, levels) -> {
+                total[0] = 0;
+                levels.forEach((levelId, result) -> total[0] += result);
+                add(userId, total[0]);
+            });
+            rebuilt = null;
+        }
+
+        private void add(int userId, long delta) {
+            UserScore current = scores.get(userId);
+            UserScore updated = UserScore.builder()
+                    .userId(userId)
+                    .score((current == null ? 0 : current.getScore()) + delta).build();
+            if (current != null) {
+                ranking.remove(current);
+            }
+            scores.put(userId, updated);
+            ranking.add(updated);
+        }
+
+        /**
+         * Adds the users ranked right before {@code before} and from {@code after} on.
+         */
+        private void addNeighbours(int before, int after, int limit, List<UserScore> above, List<UserScore> below) {
+            int aboveFrom = Math.max(before - limit, 0);
+            above.addAll(ranking.range(aboveFrom, before - aboveFrom));
+            below.addAll(ranking.range(after, limit));
+        }
+    }
+}
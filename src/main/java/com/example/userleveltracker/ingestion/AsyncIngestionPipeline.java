@@ -0,0 +1,274 @@
+package com.example.userleveltracker.ingestion;
+
+import com.example.userleveltracker.exception.IngestionQueueFullException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.IngestionStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.DataStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous write pipeline of submitted results, enabled with {@code ingestion.async.enabled=true}.
+ *
+ * <p>Submissions are sharded by level ID over {@code ingestion.async.shards} bounded queues of
+ * {@code ingestion.async.queue-capacity} entries each. Every shard has a single writer thread, so the
+ * submissions of a level are applied by one thread and never contend with each other for the monitor of
+ * the level's index. Writes that bypass the pipeline still do: bulk loads and the recovery of the
+ * write-ahead log store through {@link DataStorageService#loadResults}, and in clustered mode the results
+ * forwarded by other nodes are stored by the cluster server. The writer drains its queue in batches,
+ * coalesces the submissions for the same user and level to the highest result and applies the batch with
+ * {@link DataStorageService#setInfoBatch}.</p>
+ *
+ * <p>A submission to a full queue is rejected with an {@link IngestionQueueFullException}. A caller
+ * that needs to read its own write waits for the future returned by {@link #submitTracked}, which
+ * completes once the batch holding the submission is applied, or exceptionally if the batch fails.</p>
+ *
+ * <p>Once the pipeline is stopped, submissions are rejected with a {@link StorageUnavailableException}, and
+ * the writers apply the submissions already queued before they exit. A submission racing with the stop is
+ * either applied or rejected, never silently dropped. If a writer dies, on an {@link Error} or an
+ * interrupt, its shard rejects the queued submissions, failing their futures, and every later one.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "ingestion.async.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Log4j2
+public class AsyncIngestionPipeline {
+    private final DataStorageService dataStore;
+
+    @Value("${ingestion.async.shards}")
+    private int shardCount;
+    @Value("${ingestion.async.queue-capacity}")
+    private int queueCapacity;
+    @Value("${ingestion.async.max-batch}")
+    private int maxBatch;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private Shard[] shards;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].thread.start();
+        }
+    }
+
+    /**
+     * Stops accepting submissions and waits for the writers to apply the queued ones.
+     *
+     * @throws InterruptedException if interrupted while waiting for a writer
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    /**
+     * Submits a result to be stored asynchronously.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the result to be set for the user at the specified level
+     * @throws IngestionQueueFullException if the queue of the level's shard is full
+     */
+    public void submit(int userId, int levelId, int result) {
+        enqueue(new Submission(userId, levelId, result, null));
+    }
+
+    /**
+     * Submits a result to be stored asynchronously and tracks when it is applied.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the result to be set for the user at the specified level
+     * @return a future completed once the result is applied to the storage
+     * @throws IngestionQueueFullException if the queue of the level's shard is full
+     */
+    public CompletableFuture<Void> submitTracked(int userId, int levelId, int result) {
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        enqueue(new Submission(userId, levelId, result, applied));
+        return applied;
+    }
+
+    /**
+     * Returns the number of submitted, applied and rejected results, the number of results written to the
+     * storage after coalescing, and the number of queued ones.
+     *
+     * @return the {@link IngestionStats} of the pipeline
+     */
+    public IngestionStats getStats() {
+        long queued = 0;
+        for (Shard shard : shards) {
+            queued += shard.queue.size();
+        }
+
+        return IngestionStats.builder()
+                .submitted(submitted.sum())
+                .applied(applied.sum())
+                .written(written.sum())
+                .rejected(rejected.sum())
+                .queued(queued)
+                .build();
+    }
+
+    private void enqueue(Submission submission) {
+        Shard shard = shards[Math.floorMod(submission.levelId, shardCount)];
+        if (!shard.isAccepting()) {
+            rejected.increment();
+            throw new StorageUnavailableException("The ingestion pipeline is stopped", null);
+        }
+        if (!shard.queue.offer(submission)) {
+            rejected.increment();
+            throw new IngestionQueueFullException("Too many results submitted, try again later");
+        }
+        // The writer drains its queue after the stop, so a submission queued before it is applied. One queued
+        // after the writer exited is taken back, or was already failed by the exiting writer, and is rejected.
+        if (!shard.isAccepting() && !shard.keep(submission)) {
+            rejected.increment();
+            throw new StorageUnavailableException("The ingestion pipeline is stopped", null);
+        }
+        submitted.increment();
+    }
+
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Submission> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+        private volatile boolean alive = true;
+
+        private Shard(int index) {
+            thread = new Thread(this, "ingestion-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        private boolean isAccepting() {
+            return running && alive;
+        }
+
+        /**
+         * Tells whether a submission queued while the shard stopped accepting was taken by the writer.
+         */
+        private synchronized boolean keep(Submission submission) {
+            return !queue.remove(submission) && !submission.abandoned;
+        }
+
+        @Override
+        public void run() {
+            List<Submission> batch = new ArrayList<>(maxBatch);
+            Map<Long, UserInfo> coalesced = new HashMap<>();
+
+            try {
+                while (running || !queue.isEmpty()) {
+                    try {
+                        Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                        queue.drainTo(batch, maxBatch - 1);
+                        apply(batch, coalesced);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to apply a batch of {} submitted results", batch.size(), e);
+                        batch.forEach(submission -> submission.fail(e));
+                    } catch (Error e) {
+                        batch.forEach(submission -> submission.fail(e));
+                        throw e;
+                    } finally {
+                        batch.clear();
+                        coalesced.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                abandon();
+            }
+        }
+
+        /**
+         * Rejects the submissions left in the queue by a writer that exits before the pipeline is stopped.
+         */
+        private synchronized void abandon() {
+            alive = false;
+            List<Submission> abandoned = new ArrayList<>();
+            queue.drainTo(abandoned);
+            if (abandoned.isEmpty()) {
+                return;
+            }
+            abandoned.forEach(submission -> submission.abandoned = true);
+
+            log.error("The writer of {} stopped, {} queued results are not applied", thread.getName(),
+                    abandoned.size());
+            StorageUnavailableException cause = new StorageUnavailableException(
+                    "The ingestion pipeline stopped before the result was applied", null);
+            abandoned.forEach(submission -> submission.fail(cause));
+        }
+
+        private void apply(List<Submission> batch, Map<Long, UserInfo> coalesced) {
+            for (Submission submission : batch) {
+                coalesced.merge(((long) submission.userId << 32) | (submission.levelId & 0xFFFFFFFFL),
+                        UserInfo.builder()
+                                .userId(submission.userId)
+                                .levelId(submission.levelId)
+                                .result(submission.result).build(),
+                        (existing, candidate) -> existing.getResult() < candidate.getResult() ? candidate : existing);
+            }
+
+            dataStore.setInfoBatch(new ArrayList<>(coalesced.values()));
+            applied.add(batch.size());
+            written.add(coalesced.size());
+            batch.forEach(Submission::complete);
+        }
+    }
+
+    private static final class Submission {
+        private final int userId;
+        private final int levelId;
+        private final int result;
+        private final CompletableFuture<Void> applied;
+        private boolean abandoned;
+
+        private Submission(int userId, int levelId, int result, CompletableFuture<Void> applied) {
+            this.userId = userId;
+            this.levelId = levelId;
+            this.result = result;
+            this.applied = applied;
+        }
+
+        private void complete() {
+            if (applied != null) {
+                applied.complete(null);
+            }
+        }
+
+        private void fail(Throwable cause) {
+            if (applied != null) {
+                applied.completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userleveltracker.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with a bounded relative error, in the style of
+ * HdrHistogram.
+ *
+ * <p>Values below {@value #SUB_BUCKETS} have their own bucket. Every higher power-of-two range is split
+ * into {@value #SUB_BUCKETS} linear buckets, so a recorded value is off by at most about 3% and the
+ * histogram covers the whole {@code long} range with a fixed array. Recording a value increments one
+ * atomic counter and allocates nothing.</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the highest recorded latency in nanoseconds
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latencies at the given percentiles. The counters are read once for all percentiles.
+     *
+     * @param percentiles the percentiles, in ascending order, from {@code 0} to {@code 100}
+     * @return the highest latency of the bucket holding each percentile, in nanoseconds
+     */
+    public long[] valuesAt(double... percentiles) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+
+        int bucket = 0;
+        long seen = snapshot[0];
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percentiles[p] / 100 * total));
+            while (seen < rank) {
+                seen += snapshot[++bucket];
+            }
+            values[p] = Math.min(highestValueOf(bucket), max.get());
+        }
+        return values;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.userleveltracker.metrics;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration applying {@link ServiceMetrics} to the methods of the service implementation classes
+ * within the package {@code com.example.userleveltracker.service.impl}.
+ *
+ * <p>The interceptor is registered as an {@link Advisor} rather than an {@code @Aspect}, because the
+ * invocation it receives exposes the invoked {@link java.lang.reflect.Method} directly, without
+ * building a signature object on every call.</p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public Advisor serviceMetricsAdvisor(ServiceMetrics serviceMetrics) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("execution(* com.example.userleveltracker.service.impl.*.*(..))");
+        return new DefaultPointcutAdvisor(pointcut, serviceMetrics);
+    }
+}
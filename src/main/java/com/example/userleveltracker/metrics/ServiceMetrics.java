@@ -0,0 +1,118 @@
+package com.example.userleveltracker.metrics;
+
+import com.example.userleveltracker.model.MethodLatency;
+import lombok.extern.log4j.Log4j2;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Interceptor measuring the execution time of the methods in the service implementation classes
+ * (see {@link MetricsConfig}).
+ *
+ * <p>Every method has a {@link LatencyHistogram}, looked up by the {@link Method} of the invocation, so in the
+ * steady state a measured call does no I/O and allocates nothing. A call slower than
+ * {@code metrics.slow-call.threshold-ms} is logged, at most once per {@code metrics.slow-call.log-interval-ms},
+ * and a threshold of {@code 0} disables the slow-call log.</p>
+ */
+@Component
+@Log4j2
+public class ServiceMetrics implements MethodInterceptor {
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private final Map<Method, MethodHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong nextSlowCallLogNanos = new AtomicLong(System.nanoTime());
+    private long slowCallThresholdNanos;
+    private long slowCallLogIntervalNanos;
+
+    @Value("${metrics.slow-call.threshold-ms}")
+    public void setSlowCallThresholdMs(long slowCallThresholdMs) {
+        this.slowCallThresholdNanos = slowCallThresholdMs > 0
+                ? TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMs) : Long.MAX_VALUE;
+    }
+
+    @Value("${metrics.slow-call.log-interval-ms}")
+    public void setSlowCallLogIntervalMs(long slowCallLogIntervalMs) {
+        this.slowCallLogIntervalNanos = TimeUnit.MILLISECONDS.toNanos(slowCallLogIntervalMs);
+    }
+
+    /**
+     * Proceeds with the invocation and records its execution time.
+     *
+     * @param invocation the method invocation being measured
+     * @return the result of the method invocation
+     * @throws Throwable if the method invocation throws an exception
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long end = System.nanoTime();
+            long elapsed = end - start;
+            MethodHistogram histogram = histograms.get(invocation.getMethod());
+            if (histogram == null) {
+                histogram = histograms.computeIfAbsent(invocation.getMethod(), MethodHistogram::new);
+            }
+            histogram.histogram.record(elapsed);
+
+            if (elapsed >= slowCallThresholdNanos) {
+                logSlowCall(histogram.name, elapsed, end);
+            }
+        }
+    }
+
+    /**
+     * Returns the latency statistics of every measured method.
+     *
+     * @return the {@link MethodLatency} of every measured method, ordered by method name
+     */
+    public List<MethodLatency> getLatencies() {
+        List<MethodLatency> latencies = new ArrayList<>(histograms.size());
+        for (MethodHistogram method : histograms.values()) {
+            long[] values = method.histogram.valuesAt(PERCENTILES);
+            latencies.add(MethodLatency.builder()
+                    .method(method.name)
+                    .count(method.histogram.count())
+                    .p50Micros(values[0] / 1_000.0)
+                    .p99Micros(values[1] / 1_000.0)
+                    .p999Micros(values[2] / 1_000.0)
+                    .maxMicros(method.histogram.max() / 1_000.0)
+                    .build());
+        }
+        latencies.sort(Comparator.comparing(MethodLatency::getMethod));
+        return latencies;
+    }
+
+    private void logSlowCall(String method, long elapsedNanos, long now) {
+        long next = nextSlowCallLogNanos.get();
+        if (now - next >= 0 && nextSlowCallLogNanos.compareAndSet(next, now + slowCallLogIntervalNanos)) {
+            log.warn("Slow call of {} : {} ms", method, elapsedNanos / 1_000_000.0);
+        }
+    }
+
+    private static final class MethodHistogram {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private MethodHistogram(Method method) {
+            this.name = method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                    + Arrays.stream(method.getParameterTypes())
+                    .map(Class::getSimpleName)
+                    .collect(Collectors.joining(",", "(", ")"));
+        }
+    }
+}
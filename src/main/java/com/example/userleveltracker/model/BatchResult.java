@@ -0,0 +1,34 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data class representing the outcome of a batch of submitted results.
+ * Each rejected record is reported with its index in the batch and the reason of the rejection.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"accepted", "rejected", "errors"})
+public class BatchResult {
+    private int accepted;
+
+    private int rejected;
+
+    private List<RecordError> errors;
+
+    /**
+     * Data class representing the reason a record of a batch was rejected.
+     */
+    @Getter
+    @Builder
+    @JsonPropertyOrder({"index", "message"})
+    public static class RecordError {
+        private int index;
+
+        private String message;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the outcome of a bulk load: the valid and rejected records read, the records that
+ * improved a stored result, and the time and rate of the load. The rate counts the valid records.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"file", "format", "bytes", "records", "rejected", "stored", "parallelism", "millis",
+        "records_per_second"})
+public class BulkLoadResult {
+    private String file;
+
+    private String format;
+
+    private long bytes;
+
+    private long records;
+
+    private long rejected;
+
+    private long stored;
+
+    private int parallelism;
+
+    private long millis;
+
+    @JsonProperty("records_per_second")
+    private long recordsPerSecond;
+}
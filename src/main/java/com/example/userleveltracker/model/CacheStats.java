@@ -0,0 +1,35 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the size, hit ratio and evictions of the leaderboard response caches.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"level_entries", "level_hit_ratio", "level_evictions",
+        "user_entries", "user_hit_ratio", "user_evictions", "invalidations"})
+public class CacheStats {
+    @JsonProperty("level_entries")
+    private long levelEntries;
+
+    @JsonProperty("level_hit_ratio")
+    private double levelHitRatio;
+
+    @JsonProperty("level_evictions")
+    private long levelEvictions;
+
+    @JsonProperty("user_entries")
+    private long userEntries;
+
+    @JsonProperty("user_hit_ratio")
+    private double userHitRatio;
+
+    @JsonProperty("user_evictions")
+    private long userEvictions;
+
+    private long invalidations;
+}
@@ -0,0 +1,33 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data class representing the position of a user on the global leaderboard, ranked by total score.
+ * The rank starts at 1 for the highest score, and the percentile is the share of the users ranked at or
+ * below the user. The neighbours are the users ranked right above and right below the user.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"user_id", "score", "rank", "total", "percentile", "above", "below"})
+public class GlobalRank {
+    @JsonProperty("user_id")
+    private int userId;
+
+    private long score;
+
+    private long rank;
+
+    private long total;
+
+    private double percentile;
+
+    private List<UserScore> above;
+
+    private List<UserScore> below;
+}
@@ -0,0 +1,25 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the throughput and backlog of the asynchronous write pipeline.
+ * The applied count is the number of submissions applied, and the written count the number of results left
+ * after coalescing them and written to the storage.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"submitted", "applied", "written", "rejected", "queued"})
+public class IngestionStats {
+    private long submitted;
+
+    private long applied;
+
+    private long written;
+
+    private long rejected;
+
+    private long queued;
+}
@@ -0,0 +1,25 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data class representing a change of the top users of a level, pushed to the subscribers of the level.
+ * The changed entries are the users that entered the top or improved their result in it, and the removed
+ * entries are the IDs of the users that dropped out of it. A snapshot lists the whole top as changed.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"level_id", "changed", "removed"})
+public class LevelChange {
+    @JsonProperty("level_id")
+    private int levelId;
+
+    private List<UserInfo> changed;
+
+    private List<Integer> removed;
+}
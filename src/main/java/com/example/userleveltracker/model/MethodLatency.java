@@ -0,0 +1,30 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the number of calls of a service method and their latency percentiles.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"method", "count", "p50_micros", "p99_micros", "p999_micros", "max_micros"})
+public class MethodLatency {
+    private String method;
+
+    private long count;
+
+    @JsonProperty("p50_micros")
+    private double p50Micros;
+
+    @JsonProperty("p99_micros")
+    private double p99Micros;
+
+    @JsonProperty("p999_micros")
+    private double p999Micros;
+
+    @JsonProperty("max_micros")
+    private double maxMicros;
+}
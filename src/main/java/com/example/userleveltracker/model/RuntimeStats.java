@@ -0,0 +1,26 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the threads and memory used by the running application.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"execution_mode", "live_threads", "heap_used_bytes", "non_heap_used_bytes"})
+public class RuntimeStats {
+    @JsonProperty("execution_mode")
+    private String executionMode;
+
+    @JsonProperty("live_threads")
+    private int liveThreads;
+
+    @JsonProperty("heap_used_bytes")
+    private long heapUsedBytes;
+
+    @JsonProperty("non_heap_used_bytes")
+    private long nonHeapUsedBytes;
+}
@@ -0,0 +1,47 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the size of the data held by a storage engine.
+ * The footprint is only reported by engines able to measure it, and the spill figures only by an engine
+ * spilling the results of inactive users to disk.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"engine", "entries", "footprint_bytes", "bytes_per_entry", "resident_users", "spilled_users",
+        "spill_file_bytes", "page_ins", "page_in_p50_micros", "page_in_p99_micros"})
+public class StorageStats {
+    private String engine;
+
+    private long entries;
+
+    @JsonProperty("footprint_bytes")
+    private Long footprintBytes;
+
+    @JsonProperty("bytes_per_entry")
+    private Double bytesPerEntry;
+
+    @JsonProperty("resident_users")
+    private Long residentUsers;
+
+    @JsonProperty("spilled_users")
+    private Long spilledUsers;
+
+    @JsonProperty("spill_file_bytes")
+    private Long spillFileBytes;
+
+    @JsonProperty("page_ins")
+    private Long pageIns;
+
+    @JsonProperty("page_in_p50_micros")
+    private Double pageInP50Micros;
+
+    @JsonProperty("page_in_p99_micros")
+    private Double pageInP99Micros;
+}
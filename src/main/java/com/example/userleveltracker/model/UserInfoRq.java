@@ -10,6 +10,8 @@ import javax.validation.constraints.NotNull;
 
 /**
  * Request data class representing user information to be submitted for a specific level and result.
+ * The constraints of the fields are declared with Bean Validation annotations and checked by hand in
+ * {@link #validate()}, which the submission endpoints call instead of the reflective validator.
  */
 @Getter
 @Setter
@@ -28,4 +30,30 @@ public class UserInfoRq {
     @NotNull(message = "Result cannot be null")
     @Min(value = 0, message = "Result must be greater than or equal to 0")
     private Integer result;
+
+    /**
+     * Checks the fields against their constraints. A valid request is checked without allocating, and the
+     * messages of an invalid one are the messages of the annotations, in the order of Bean Validation's
+     * sorted violations.
+     *
+     * @return {@code null} if the request is valid, or the list of the violated constraints' messages
+     */
+    public String validate() {
+        StringBuilder errors = null;
+        errors = check(errors, levelId, 1, "Level ID");
+        errors = check(errors, result, 0, "Result");
+        errors = check(errors, userId, 1, "User ID");
+        return errors == null ? null : errors.append(']').toString();
+    }
+
+    private static StringBuilder check(StringBuilder errors, Integer value, int min, String field) {
+        if (value != null && value >= min) {
+            return errors;
+        }
+
+        StringBuilder messages = errors == null ? new StringBuilder("[") : errors.append(", ");
+        messages.append(field);
+        return value == null ? messages.append(" cannot be null")
+                : messages.append(" must be greater than or equal to ").append(min);
+    }
 }
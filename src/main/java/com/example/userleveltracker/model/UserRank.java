@@ -0,0 +1,36 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Data class representing the position of a user on a level.
+ * The rank starts at 1 for the best result, and the percentile is the share of the level's users
+ * ranked at or below the user. The neighbours are the users ranked right above and right below the user.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"user_id", "level_id", "result", "rank", "total", "percentile", "above", "below"})
+public class UserRank {
+    @JsonProperty("user_id")
+    private int userId;
+
+    @JsonProperty("level_id")
+    private int levelId;
+
+    private int result;
+
+    private long rank;
+
+    private long total;
+
+    private double percentile;
+
+    private List<UserInfo> above;
+
+    private List<UserInfo> below;
+}
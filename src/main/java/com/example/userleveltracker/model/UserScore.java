@@ -0,0 +1,19 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the total score of a user, the sum of their best results on all levels.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"user_id", "score"})
+public class UserScore {
+    @JsonProperty("user_id")
+    private int userId;
+
+    private long score;
+}
@@ -0,0 +1,34 @@
+package com.example.userleveltracker.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Data class representing the write-path and recovery statistics of the write-ahead log.
+ */
+@Getter
+@Builder
+@JsonPropertyOrder({"failed", "appended_records", "syncs", "average_append_micros", "average_sync_micros",
+        "recovered_records", "recovery_millis"})
+public class WalStats {
+    private boolean failed;
+
+    @JsonProperty("appended_records")
+    private long appendedRecords;
+
+    private long syncs;
+
+    @JsonProperty("average_append_micros")
+    private double averageAppendMicros;
+
+    @JsonProperty("average_sync_micros")
+    private double averageSyncMicros;
+
+    @JsonProperty("recovered_records")
+    private long recoveredRecords;
+
+    @JsonProperty("recovery_millis")
+    private long recoveryMillis;
+}
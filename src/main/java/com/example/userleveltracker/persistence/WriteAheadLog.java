@@ -0,0 +1,534 @@
+package com.example.userleveltracker.persistence;
+
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.WalStats;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.SubmissionListener;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable write-ahead log of the results submitted to the local storage engine, enabled with
+ * {@code storage.wal.enabled=true}.
+ *
+ * <p>The log is a {@link SubmissionListener}, which the engine calls before it stores a result, so every
+ * submitted result is logged before it is applied, including the ones that turn out not to improve the
+ * best result of the user. It is the first submission listener called, so a result it rejects is not
+ * recorded by any other listener, such as the windowed leaderboards. A result is appended as a 16-byte
+ * record ({@code userId}, {@code levelId}, {@code result} and the CRC-32C of the three) to an in-memory
+ * buffer. A background flusher writes the
+ * buffer to the current log segment with a {@link FileChannel} and forces it to disk every
+ * {@code storage.wal.fsync-interval-ms} milliseconds, so all records appended in an interval share one fsync
+ * (group commit). With {@code storage.wal.sync-writes=true} an append waits until its record is on disk, so
+ * a result is stored, and visible to readers, only once it is durable, and a batch waits once for all of its
+ * records. With {@code storage.wal.sync-writes=false} the results appended in the last interval are lost if
+ * the process crashes.</p>
+ *
+ * <p>If a flush fails, the log stops: the records not yet on disk are dropped and reported in the error
+ * log, the appends waiting for them fail with a {@link StorageUnavailableException}, and so does every
+ * later append until the application is restarted. A write is thus never acknowledged as durable when it
+ * is not, and the log never writes a record twice or out of order by retrying a partly written buffer.</p>
+ *
+ * <p>Every {@code storage.wal.snapshot-interval-ms} milliseconds the log switches to a new segment and
+ * a snapshot of all best results, in the same record format, is written. The older snapshots and the
+ * segments before the one preceding the new snapshot are deleted afterwards: a result logged just before the
+ * switch may be stored only after the snapshot read it, so its segment is kept until the next snapshot.</p>
+ *
+ * <p>On startup the latest snapshot and the segments kept with it are read in chunks and loaded straight
+ * into the engine with {@link DataStorageService#loadResults(List)}, so no listener takes the recovered
+ * results for new submissions. Replaying a record that is already reflected in the snapshot is harmless,
+ * because the storage keeps the highest result. The replay of a file stops at its first record whose
+ * checksum does not match, such as a record torn by a crash.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "storage.wal.enabled", havingValue = "true")
+@Log4j2
+public class WriteAheadLog implements SubmissionListener, Ordered {
+    private static final int RECORD_BYTES = 4 * Integer.BYTES;
+    private static final int REPLAY_CHUNK_RECORDS = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final DataStorageService engine;
+
+    @Value("${storage.wal.directory}")
+    private String directory;
+    @Value("${storage.wal.fsync-interval-ms}")
+    private long fsyncIntervalMs;
+    @Value("${storage.wal.sync-writes}")
+    private boolean syncWrites;
+    @Value("${storage.wal.buffer-records}")
+    private int bufferRecords;
+    @Value("${storage.wal.snapshot-interval-ms}")
+    private long snapshotIntervalMs;
+
+    private final Object bufferLock = new Object();
+    private final Object segmentLock = new Object();
+    private final CRC32C checksum = new CRC32C();
+    private final AtomicLong appendNanos = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong syncNanos = new AtomicLong();
+    private Path path;
+    private ByteBuffer buffer;
+    private ByteBuffer spareBuffer;
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private long generation;
+    private FileChannel segment;
+    private long recoveredRecords;
+    private long recoveryMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates the log of the local storage engine, which in clustered mode holds the levels this node owns.
+     *
+     * @param engine the local storage engine
+     */
+    public WriteAheadLog(@Qualifier("storageEngine") DataStorageService engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Orders the log before the other submission listeners.
+     *
+     * @return the highest precedence
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Recovers the storage from the latest snapshot and the log segments written after it, opens a new
+     * log segment and starts the flusher and the snapshotter.
+     *
+     * @throws IOException if the log directory cannot be read or written
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        path = Paths.get(directory);
+        Files.createDirectories(path);
+        buffer = ByteBuffer.allocateDirect(bufferRecords * RECORD_BYTES);
+        spareBuffer = ByteBuffer.allocateDirect(bufferRecords * RECORD_BYTES);
+
+        recover();
+
+        generation++;
+        segment = openSegment(generation);
+        engine.addSubmissionListener(this);
+
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "wal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flushes the buffered records, stops the background tasks and closes the log segment.
+     *
+     * @throws IOException if the buffered records cannot be written
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdown();
+        try {
+            flush();
+        } finally {
+            synchronized (segmentLock) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Appends the submitted result to the log before it is stored. If writes are synchronous, waits until
+     * the record is on disk.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the submitted result of the user at the level
+     * @throws StorageUnavailableException if the log stopped, so the result must not be stored
+     */
+    @Override
+    public void onResultSubmitted(int userId, int levelId, int result) {
+        long start = System.nanoTime();
+        long sequence;
+
+        synchronized (bufferLock) {
+            sequence = append(userId, levelId, result);
+        }
+
+        if (syncWrites) {
+            awaitDurable(sequence);
+        }
+
+        appendNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Appends the submitted results to the log before any of them is stored. If writes are synchronous,
+     * waits once until the last record is on disk.
+     *
+     * @param records the submitted results
+     * @throws StorageUnavailableException if the log stopped, so the results must not be stored
+     */
+    @Override
+    public void onResultsSubmitted(List<UserInfo> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long sequence = 0;
+
+        synchronized (bufferLock) {
+            for (UserInfo record : records) {
+                sequence = append(record.getUserId(), record.getLevelId(), record.getResult());
+            }
+        }
+
+        if (syncWrites) {
+            awaitDurable(sequence);
+        }
+
+        appendNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the buffered records to the current log segment and forces them to disk. If that fails, the
+     * log stops as described in the class documentation.
+     *
+     * @throws IOException if the records cannot be written, or the log stopped after an earlier failure
+     */
+    public void flush() throws IOException {
+        synchronized (segmentLock) {
+            ByteBuffer full;
+            long target;
+            synchronized (bufferLock) {
+                if (failure != null) {
+                    throw new IOException("The write-ahead log stopped after a failed flush", failure);
+                }
+                if (appended == durable) {
+                    return;
+                }
+                full = buffer;
+                buffer = spareBuffer;
+                spareBuffer = full;
+                target = appended;
+            }
+
+            long start = System.nanoTime();
+            try {
+                full.flip();
+                while (full.hasRemaining()) {
+                    segment.write(full);
+                }
+                segment.force(false);
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            } finally {
+                full.clear();
+            }
+            syncs.incrementAndGet();
+            syncNanos.addAndGet(System.nanoTime() - start);
+
+            synchronized (bufferLock) {
+                durable = target;
+                bufferLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Switches the log to a new segment and writes a snapshot of all best results. The snapshots and
+     * segments that are covered by the new snapshot are deleted afterwards.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        long snapshotGeneration;
+        synchronized (segmentLock) {
+            flush();
+            segment.close();
+            snapshotGeneration = ++generation;
+            segment = openSegment(snapshotGeneration);
+        }
+
+        long start = System.nanoTime();
+        Path temporary = path.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX + ".tmp");
+        long records;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            records = writeSnapshot(output);
+            output.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, path.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX),
+                StandardCopyOption.ATOMIC_MOVE);
+
+        for (long older : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < snapshotGeneration) {
+                Files.deleteIfExists(path.resolve(SNAPSHOT_PREFIX + older + SNAPSHOT_SUFFIX));
+            }
+        }
+        for (long older : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < snapshotGeneration - 1) {
+                Files.deleteIfExists(path.resolve(SEGMENT_PREFIX + older + SEGMENT_SUFFIX));
+            }
+        }
+
+        log.info("Snapshot {} of {} results written in {} ms", snapshotGeneration, records,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the statistics of the log: whether it stopped, the appended records, the fsync calls, the average time an append
+     * and an fsync took, and the size and time of the recovery on startup.
+     *
+     * @return the {@link WalStats} of the log
+     */
+    public WalStats getStats() {
+        long records;
+        boolean failed;
+        synchronized (bufferLock) {
+            records = appended;
+            failed = failure != null;
+        }
+        long syncCount = syncs.get();
+
+        return WalStats.builder()
+                .failed(failed)
+                .appendedRecords(records)
+                .syncs(syncCount)
+                .averageAppendMicros(records == 0 ? 0 : appendNanos.get() / 1_000.0 / records)
+                .averageSyncMicros(syncCount == 0 ? 0 : syncNanos.get() / 1_000.0 / syncCount)
+                .recoveredRecords(recoveredRecords)
+                .recoveryMillis(recoveryMillis)
+                .build();
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        List<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+
+        if (snapshotGeneration > 0) {
+            recoveredRecords += replay(path.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX));
+        }
+        generation = snapshotGeneration;
+        for (long segmentGeneration : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (segmentGeneration >= snapshotGeneration - 1) {
+                recoveredRecords += replay(path.resolve(SEGMENT_PREFIX + segmentGeneration + SEGMENT_SUFFIX));
+                generation = Math.max(generation, segmentGeneration);
+            }
+        }
+        engine.completeLoad();
+
+        recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Recovered {} records from {} in {} ms", recoveredRecords, path, recoveryMillis);
+    }
+
+    /**
+     * Loads the records of a file into the engine, {@value #REPLAY_CHUNK_RECORDS} at a time, up to the end of
+     * the file or its first corrupt record, and returns the number of records loaded.
+     */
+    private long replay(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(REPLAY_CHUNK_RECORDS * RECORD_BYTES);
+        List<UserInfo> records = new ArrayList<>(REPLAY_CHUNK_RECORDS);
+        long replayed = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                chunk.clear();
+                while (chunk.hasRemaining() && !endOfFile) {
+                    endOfFile = channel.read(chunk) < 0;
+                }
+                chunk.flip();
+
+                while (chunk.remaining() >= RECORD_BYTES) {
+                    int userId = chunk.getInt();
+                    int levelId = chunk.getInt();
+                    int result = chunk.getInt();
+                    if (chunk.getInt() != checksum(crc, userId, levelId, result)) {
+                        engine.loadResults(records);
+                        log.warn("Stopped replaying {} at record {}, whose checksum does not match", file,
+                                replayed + records.size());
+                        return replayed + records.size();
+                    }
+                    records.add(UserInfo.builder().userId(userId).levelId(levelId).result(result).build());
+                }
+                engine.loadResults(records);
+                replayed += records.size();
+                records.clear();
+
+                if (chunk.hasRemaining()) {
+                    log.warn("Ignored a torn record at the end of {}", file);
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private long writeSnapshot(DataOutputStream output) throws IOException {
+        CRC32C crc = new CRC32C();
+        long[] records = new long[1];
+        try {
+            engine.forEachResult((userId, levelId, result) -> {
+                try {
+                    output.writeInt(userId);
+                    output.writeInt(levelId);
+                    output.writeInt(result);
+                    output.writeInt(checksum(crc, userId, levelId, result));
+                    records[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records[0];
+    }
+
+    /**
+     * Appends a record to the buffer, whose lock the caller holds, and returns its sequence number.
+     */
+    private long append(int userId, int levelId, int result) {
+        checkNotFailed();
+        while (buffer.remaining() < RECORD_BYTES) {
+            flushOnOverflow();
+        }
+        buffer.putInt(userId).putInt(levelId).putInt(result).putInt(checksum(checksum, userId, levelId, result));
+        return ++appended;
+    }
+
+    private static int checksum(CRC32C crc, int userId, int levelId, int result) {
+        crc.reset();
+        update(crc, userId);
+        update(crc, levelId);
+        update(crc, result);
+        return (int) crc.getValue();
+    }
+
+    private static void update(CRC32C crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    private FileChannel openSegment(long segmentGeneration) throws IOException {
+        return FileChannel.open(path.resolve(SEGMENT_PREFIX + segmentGeneration + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private void flushOnOverflow() {
+        // Called with the buffer lock held, which the flush takes again after acquiring the segment
+        // lock, so the lock is released while waiting for the flusher to swap the buffers.
+        long target = appended;
+        scheduler.execute(this::flushQuietly);
+        awaitDurable(target);
+    }
+
+    /**
+     * Stops the log after a failed flush: drops the records appended since the last flush, which the
+     * caller has taken out of the buffer it failed to write, and wakes up the appends waiting for them.
+     */
+    private void fail(IOException cause) {
+        synchronized (bufferLock) {
+            failure = cause;
+            log.error("Failed to flush the write-ahead log, {} records are not durable and writes are rejected "
+                    + "until restart", appended - durable, cause);
+            buffer.clear();
+            bufferLock.notifyAll();
+        }
+        scheduler.shutdown();
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new StorageUnavailableException("The write-ahead log failed, results cannot be stored", failure);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        synchronized (bufferLock) {
+            while (durable < sequence) {
+                checkNotFailed();
+                try {
+                    bufferLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            log.error("Failed to flush the write-ahead log", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Failed to write a snapshot", e);
+        }
+    }
+}
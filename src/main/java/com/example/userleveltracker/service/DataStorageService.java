@@ -1,6 +1,8 @@
 package com.example.userleveltracker.service;
 
+import com.example.userleveltracker.model.StorageStats;
 import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
 
 import java.util.List;
 
@@ -19,6 +21,32 @@ public interface DataStorageService {
      */
     void setInfo(int userId, int levelId, int result);
 
+    /**
+     * Stores or updates the results of many users and levels at once. The records are grouped by level,
+     * so the data of each level is updated once per batch.
+     *
+     * @param records the results to be set, each one for the user at the level of the record
+     */
+    void setInfoBatch(List<UserInfo> records);
+
+    /**
+     * Stores results recovered or imported outside the write path, such as the records of the write-ahead
+     * log or of a bulk load. The records are merged like the ones of {@link #setInfoBatch(List)}, keeping the
+     * best result of every user on every level, but no listener is notified of them: they are not live
+     * submissions. Once all records of a load are stored, {@link #completeLoad()} tells the result listeners
+     * to catch up with them.
+     *
+     * @param records the results to be stored
+     * @return the number of records that improved the best result of their user on their level
+     */
+    int loadResults(List<UserInfo> records);
+
+    /**
+     * Tells the result listeners with {@link ResultListener#onResultsLoaded()} that results were stored with
+     * {@link #loadResults(List)}.
+     */
+    void completeLoad();
+
     /**
      * Retrieves the top results for a specific user across all levels.
      *
@@ -27,6 +55,26 @@ public interface DataStorageService {
      */
     List<UserInfo> getUserInfo(int userId);
 
+    /**
+     * Retrieves up to {@code limit} top results for a specific user across all levels.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's results across all levels
+     */
+    List<UserInfo> getUserInfo(int userId, int limit);
+
+    /**
+     * Retrieves up to {@code limit} results for a specific user ranked after the given result, in the
+     * order of {@link #getUserInfo(int)}. A page of results is continued by passing its last result.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param after  the last result of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's results after the given one
+     */
+    List<UserInfo> getUserInfo(int userId, UserInfo after, int limit);
+
     /**
      * Retrieves the top users and their results for a specific level.
      *
@@ -34,4 +82,76 @@ public interface DataStorageService {
      * @return a list of {@link UserInfo} objects representing the top users for the specified level
      */
     List<UserInfo> getLevelInfo(int levelId);
+
+    /**
+     * Retrieves up to {@code limit} users and their results for a specific level ranked after the given
+     * result, in the order of {@link #getLevelInfo(int)}. A page of results is continued by passing its
+     * last result.
+     *
+     * @param levelId the ID of the level for which information is to be retrieved
+     * @param after   the last result of the previous page, or {@code null} for the first page
+     * @param limit   the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the users ranked after the given result
+     */
+    List<UserInfo> getLevelInfo(int levelId, UserInfo after, int limit);
+
+    /**
+     * Retrieves the rank and percentile of a user on a specific level and the users ranked around them.
+     *
+     * @param levelId    the ID of the level
+     * @param userId     the ID of the user whose rank is to be retrieved
+     * @param neighbours the maximum number of users to return above and below the user
+     * @return the {@link UserRank} of the user on the level
+     */
+    UserRank getLevelRank(int levelId, int userId, int neighbours);
+
+    /**
+     * Retrieves the number of stored results and, if the storage can measure it, the memory they take.
+     *
+     * @return the {@link StorageStats} of the storage
+     */
+    StorageStats getStorageStats();
+
+    /**
+     * Performs the action for the best result of every user on every level. The walk does not block
+     * writers, so results stored during the walk may or may not be seen by it.
+     *
+     * @param action the action to perform for each result
+     */
+    void forEachResult(ResultConsumer action);
+
+    /**
+     * Performs the action for the best result of every user on a specific level. Like
+     * {@link #forEachResult(ResultConsumer)}, the walk does not block writers.
+     *
+     * @param levelId the ID of the level
+     * @param action  the action to perform for each result
+     */
+    void forEachLevelResult(int levelId, ResultConsumer action);
+
+    /**
+     * Registers a listener notified whenever the best result of a user on a level improves.
+     *
+     * @param listener the listener to register
+     */
+    void addResultListener(ResultListener listener);
+
+    /**
+     * Registers a listener notified of every submitted result, including the ones that do not improve the
+     * best result of the user on the level. The listeners are called in their
+     * {@link org.springframework.core.Ordered} order, so a listener that may reject a submission, such as the
+     * write-ahead log, runs before the ones recording it.
+     *
+     * @param listener the listener to register
+     */
+    void addSubmissionListener(SubmissionListener listener);
+
+    /**
+     * Checks whether all results are stored by this process, so the listeners are notified of every change.
+     *
+     * @return {@code true} unless the results are partitioned across several processes
+     */
+    default boolean isLocal() {
+        return true;
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.userleveltracker.service;
+
+/**
+ * Action performed for a stored result when walking the results of a {@link DataStorageService}.
+ */
+@FunctionalInterface
+public interface ResultConsumer {
+
+    /**
+     * Performs the action for the best result of a user on a level.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the best result of the user at the level
+     */
+    void accept(int userId, int levelId, int result);
+}
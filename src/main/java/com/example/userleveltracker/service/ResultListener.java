@@ -0,0 +1,27 @@
+package com.example.userleveltracker.service;
+
+/**
+ * Listener notified by a {@link DataStorageService} whenever the best result of a user on a level improves.
+ * The listener is called on the thread that stored the result, after the result is visible to readers.
+ */
+@FunctionalInterface
+public interface ResultListener {
+
+    /**
+     * Called when the best result of a user on a level improves.
+     *
+     * @param userId         the ID of the user
+     * @param levelId        the ID of the level
+     * @param previousResult the previous best result of the user at the level, or {@code 0} if the user had
+     *                       no result at the level
+     * @param result         the new best result of the user at the level
+     */
+    void onResultImproved(int userId, int levelId, int previousResult, int result);
+
+    /**
+     * Called once results were stored with {@link DataStorageService#loadResults}, which notifies no
+     * improvement. A listener that derives state from the stored results rebuilds it from the storage.
+     */
+    default void onResultsLoaded() {
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.userleveltracker.service;
+
+import com.example.userleveltracker.model.UserInfo;
+
+import java.util.List;
+
+/**
+ * Listener notified by a {@link DataStorageService} of every submitted result, whether or not it improves
+ * the best result of the user on the level. The listener is called on the thread that stores the result,
+ * before the result is stored, so a listener that throws rejects the submission, and the listeners after it
+ * are not called. A listener that may reject submissions implements {@link org.springframework.core.Ordered}
+ * to run first.
+ *
+ * @see ResultListener
+ */
+@FunctionalInterface
+public interface SubmissionListener {
+
+    /**
+     * Called when a result of a user on a level is submitted.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the submitted result of the user at the level
+     */
+    void onResultSubmitted(int userId, int levelId, int result);
+
+    /**
+     * Called when a batch of results is submitted, before any of them is stored. By default every result
+     * is passed to {@link #onResultSubmitted(int, int, int)}.
+     *
+     * @param records the submitted results
+     */
+    default void onResultsSubmitted(List<UserInfo> records) {
+        for (UserInfo record : records) {
+            onResultSubmitted(record.getUserId(), record.getLevelId(), record.getResult());
+        }
+    }
+}
@@ -1,73 +1,223 @@
 package com.example.userleveltracker.service.impl;
 
 import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.metrics.LatencyHistogram;
+import com.example.userleveltracker.model.StorageStats;
 import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
 import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultConsumer;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.SubmissionListener;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.OrderComparator;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * In-memory implementation of the {@link DataStorageService} interface.
  * This service stores and retrieves user results and level information using in-memory data structures.
  * It is designed to handle concurrent access and ensures data consistency in a multithreaded environment.
  *
- * <p>The user results are stored in a {@code Map<Integer, Map<Integer, UserInfo>>}, where the outer map
- * key is the user ID, and the inner map key is the level ID. The results for each level are stored in a
- * {@code Map<Integer, Queue<UserInfo>>}, where the map key is the level ID.</p>
+ * <p>The user results are stored in a {@code Map<Integer, Leaderboard>}, where the map key is the user ID
+ * and the {@link Leaderboard} keeps the user's entries ordered by result and level ID. The results for each
+ * level are stored in another {@code Map<Integer, Leaderboard>}, where the map key is the level ID and the
+ * {@link Leaderboard} keeps the level's entries ordered by result and user ID. The top results of a user or
+ * a level are read without sorting, and a page after a cursor is read by seeking into the ordered entries
+ * instead of skipping the entries of the previous pages.</p>
+ *
+ * <p>There is no service-wide lock. Every user and level leaderboard is guarded by its own monitor, and a
+ * result that does not improve the best result of a user on a level is rejected without locking, so
+ * updates for different users and levels proceed in parallel while reads stay linearizable.</p>
  *
  * <p>The class also includes logic to limit the number of results returned by the service, which is
- * configurable through the {@code api.user.top.results.limit} property.</p>
+ * configurable through the {@code api.user.top.results.limit} property. A caller may ask for another
+ * number of user results, capped by the {@code api.user.top.results.max-limit} property.</p>
+ *
+ * <p>With {@code storage.spill.enabled=true} at most {@code storage.spill.max-resident-users} user
+ * leaderboards are kept in memory. The user leaderboards are then held in a Caffeine cache, which tracks
+ * their use, and an evicted user's results are written to a memory-mapped {@link UserSpillFile}. A spilled
+ * user is loaded back on the next read or write of their results. The user leaderboards become the store of
+ * every result, and each level keeps only its best {@code storage.spill.max-resident-level-entries} entries
+ * in memory in a {@link LevelTop}, so the heap no longer grows with the number of users. The top results of
+ * a level and the ranks and pages within its resident entries are read from memory, while a deeper rank or
+ * page, an export and a walk of the results read the user leaderboards and the spill file. Users are neither
+ * spilled nor loaded back during such a walk, so it sees every user exactly once.</p>
+ *
+ * <p>This is the default storage engine, selected with {@code storage.engine=in-memory}.</p>
  */
-@Service
+@Service("storageEngine")
+@ConditionalOnProperty(name = "storage.engine", havingValue = "in-memory", matchIfMissing = true)
+@Log4j2
 public class InMemoryDataStorageService implements DataStorageService {
-    private final Map<Integer, Map<Integer, UserInfo>> userResults = new ConcurrentHashMap<>();
-    private final Map<Integer, Queue<UserInfo>> levelResults = new ConcurrentHashMap<>();
+    private static final Comparator<UserInfo> USER_ORDER = Comparator.comparingInt(UserInfo::getResult)
+            .thenComparingInt(UserInfo::getLevelId).reversed();
+    private static final Comparator<UserInfo> LEVEL_ORDER = Comparator.comparingInt(UserInfo::getResult)
+            .thenComparingInt(UserInfo::getUserId).reversed();
+
+    private final Map<Integer, Leaderboard> userResults;
+    private final Map<Integer, Leaderboard> levelResults = new ConcurrentHashMap<>();
+    private final List<ResultListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<SubmissionListener> submissionListeners = new CopyOnWriteArrayList<>();
     @Value("${api.user.top.results.limit}")
     private int resultsLimit;
+    @Value("${api.user.top.results.max-limit}")
+    private int maxResultsLimit;
+
+    private final UserSpillFile spillFile;
+    private final Map<Integer, List<UserInfo>> unspilledUsers = new ConcurrentHashMap<>();
+    private final Map<Integer, LevelTop> levelTops = new ConcurrentHashMap<>();
+    private final int maxResidentLevelEntries;
+    private final ReadWriteLock migrationLock = new ReentrantReadWriteLock();
+    private final LatencyHistogram pageInLatency = new LatencyHistogram();
+    private final LongAdder pageIns = new LongAdder();
+
+    /**
+     * Creates a storage keeping all user leaderboards in memory.
+     */
+    public InMemoryDataStorageService() {
+        this(false, null, 0, 0);
+    }
+
+    /**
+     * Creates a storage and, if spilling is enabled, opens the spill file.
+     *
+     * @param spillEnabled     whether to spill the least recently used user leaderboards to a file
+     * @param spillDirectory   the directory of the spill file
+     * @param maxResidentUsers the maximum number of user leaderboards kept in memory when spilling
+     * @param maxResidentLevelEntries the maximum number of entries of each level kept in memory when spilling
+     */
+    @Autowired
+    public InMemoryDataStorageService(@Value("${storage.spill.enabled}") boolean spillEnabled,
+                                      @Value("${storage.spill.directory}") String spillDirectory,
+                                      @Value("${storage.spill.max-resident-users}") long maxResidentUsers,
+                                      @Value("${storage.spill.max-resident-level-entries}")
+                                      int maxResidentLevelEntries) {
+        this.maxResidentLevelEntries = maxResidentLevelEntries;
+        if (!spillEnabled) {
+            spillFile = null;
+            userResults = new ConcurrentHashMap<>();
+            return;
+        }
+
+        spillFile = new UserSpillFile(Paths.get(spillDirectory));
+        userResults = Caffeine.newBuilder()
+                .maximumSize(maxResidentUsers)
+                .evictionListener((Integer userId, Leaderboard userLevels, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        spill(userId, userLevels);
+                    }
+                })
+                .<Integer, Leaderboard>build()
+                .asMap();
+    }
+
+    /**
+     * Checks the limits of the results.
+     *
+     * @throws IllegalArgumentException if {@code api.user.top.results.limit} is less than 1 or greater than
+     *                                  {@code api.user.top.results.max-limit}, or if spilling is enabled and
+     *                                  {@code storage.spill.max-resident-level-entries} is less than
+     *                                  {@code api.user.top.results.max-limit}
+     */
+    @PostConstruct
+    public void init() {
+        checkResultsLimits(resultsLimit, maxResultsLimit);
+        if (spillFile != null && maxResidentLevelEntries < maxResultsLimit) {
+            throw new IllegalArgumentException("storage.spill.max-resident-level-entries must be at least "
+                    + "api.user.top.results.max-limit (" + maxResultsLimit + "), got " + maxResidentLevelEntries);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
 
     /**
      * Stores or updates the result of a user for a specific level.
-     * This method synchronizes access to ensure that updates to the user results are thread-safe.
-     * It checks if a user's result for a level already exists, and updates it if the new result
-     * is higher. The updated result is then added to the level's results queue.
+     * The new result is first offered to the user's leaderboard, which keeps the higher of the existing
+     * and the new result for the level. If the new result is not the user's best, nothing else is done.
+     * Otherwise, the new result is offered to the level's leaderboard, which replaces the user's entry in
+     * {@code O(log n)} while holding the monitor of that leaderboard only, so writers of other levels are
+     * never blocked and a lower result never replaces a higher one. If spilling is enabled, the user's
+     * leaderboard is the store of the result, and the level keeps it in memory only if it is among its best.
      *
      * @param userId  the ID of the user
      * @param levelId the ID of the level
      * @param result  the result to be set for the user at the specified level
      */
     @Override
-    public synchronized void setInfo(int userId, int levelId, int result) {
+    public void setInfo(int userId, int levelId, int result) {
         UserInfo newUserInfo = UserInfo.builder().userId(userId).levelId(levelId).result(result).build();
+        notifySubmissionListeners(userId, levelId, result);
 
-        userResults.computeIfAbsent(userId, k -> new ConcurrentHashMap<>());
-        Map<Integer, UserInfo> userLevels = userResults.get(userId);
-
-        if (userLevels.containsKey(levelId)) {
-            UserInfo existingUserInfo = userLevels.get(levelId);
-            if (existingUserInfo.getResult() < result) {
-                userLevels.put(levelId, newUserInfo);
-            }
+        UserInfo replaced = mergeUserResult(newUserInfo);
+        if (replaced == null) {
+            return;
+        }
+        if (spillFile == null) {
+            notifyListeners(newUserInfo, levelLeaderboard(levelId).improve(newUserInfo));
         } else {
-            userLevels.put(levelId, newUserInfo);
+            levelTop(levelId).offer(newUserInfo, replaced == newUserInfo);
+            notifyListeners(newUserInfo, Leaderboard.improvement(replaced, newUserInfo));
         }
+    }
 
-        levelResults.computeIfAbsent(levelId, k -> new ConcurrentLinkedQueue<>());
-        Queue<UserInfo> levelQueue = levelResults.get(levelId);
+    /**
+     * Stores or updates the results of many users and levels at once.
+     * The records are offered to the users' leaderboards one by one, and the records that improved a user's
+     * best result are then offered to each level's leaderboard while holding its monitor once per batch.
+     *
+     * @param records the results to be set, each one for the user at the level of the record
+     */
+    @Override
+    public void setInfoBatch(List<UserInfo> records) {
+        for (SubmissionListener listener : submissionListeners) {
+            listener.onResultsSubmitted(records);
+        }
+        mergeAll(records, true);
+    }
 
-        levelQueue.removeIf(info -> info.getUserId() == userId);
-        levelQueue.add(newUserInfo);
+    /**
+     * Stores results recovered or imported outside the write path, the same way as
+     * {@link #setInfoBatch(List)} but without notifying any listener.
+     *
+     * @param records the results to be stored
+     * @return the number of records that improved the best result of their user on their level
+     */
+    @Override
+    public int loadResults(List<UserInfo> records) {
+        return mergeAll(records, false);
+    }
+
+    @Override
+    public void completeLoad() {
+        for (ResultListener listener : listeners) {
+            listener.onResultsLoaded();
+        }
     }
 
     /**
      * Retrieves the top results for a specific user across all levels.
-     * This method sorts the user's results in descending order based on the result value and
-     * level ID. If no results are found for the specified user, a {@link DataProcessingException}
-     * is thrown.
+     * The number of results is limited by the {@code api.user.top.results.limit} property.
      *
      * @param userId the ID of the user whose information is to be retrieved
      * @return a list of {@link UserInfo} objects representing the user's top results
@@ -75,23 +225,58 @@ public class InMemoryDataStorageService implements DataStorageService {
      */
     @Override
     public List<UserInfo> getUserInfo(int userId) {
-        userResults.getOrDefault(userId, new HashMap<>()).values().stream()
-                .findAny()
-                .orElseThrow(() -> new DataProcessingException(
-                        "Oops! There are no results for the specified user ID: " + userId));
+        return getUserInfo(userId, resultsLimit);
+    }
 
-        return userResults.get(userId).values().stream()
-                .sorted(Comparator.comparingInt(UserInfo::getResult)
-                        .thenComparingInt(UserInfo::getLevelId).reversed())
-                .limit(resultsLimit)
-                .collect(Collectors.toList());
+    /**
+     * Retrieves up to {@code limit} top results for a specific user across all levels.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's top results
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified user ID
+     * @see #getUserInfo(int, UserInfo, int)
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId, int limit) {
+        return getUserInfo(userId, null, limit);
+    }
+
+    /**
+     * Retrieves up to {@code limit} results for a specific user ranked after the given result.
+     * The user's leaderboard is already ordered in descending order of result and level ID, so this
+     * method seeks to the position after the given result in {@code O(log n)} and walks the entries from
+     * there. The limit is capped by the {@code api.user.top.results.max-limit} property. If no results
+     * are found for the specified user, a {@link DataProcessingException} is thrown.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param after  the last result of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's results after the given one
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified user ID
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId, UserInfo after, int limit) {
+        if (limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        Leaderboard userLevels = existingUserLeaderboard(userId);
+        if (userLevels == null || userLevels.isEmpty()) {
+            throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId);
+        }
+
+        int pageSize = Math.min(limit, maxResultsLimit);
+        return after == null ? userLevels.top(pageSize) : userLevels.after(after, pageSize);
     }
 
     /**
      * Retrieves the top users and their results for a specific level.
-     * This method sorts the level's results in descending order based on the result value and
-     * user ID. If no results are found for the specified level, a {@link DataProcessingException}
-     * is thrown.
+     * The level's leaderboard is already ordered in descending order of result and user ID, so this
+     * method only walks the first entries of it. If no results are found for the specified level,
+     * a {@link DataProcessingException} is thrown.
      *
      * @param levelId the ID of the level for which information is to be retrieved
      * @return a list of {@link UserInfo} objects representing the top users for the specified level
@@ -99,15 +284,447 @@ public class InMemoryDataStorageService implements DataStorageService {
      */
     @Override
     public List<UserInfo> getLevelInfo(int levelId) {
-        levelResults.getOrDefault(levelId, new ConcurrentLinkedQueue<>()).stream()
-                .findAny()
-                .orElseThrow(() -> new DataProcessingException(
-                        "Oops! There are no results for the specified level ID: " + levelId));
-
-        return levelResults.get(levelId).stream()
-                .sorted(Comparator.comparingInt(UserInfo::getResult)
-                        .thenComparingInt(UserInfo::getUserId).reversed())
-                .limit(resultsLimit)
-                .collect(Collectors.toList());
+        if (spillFile != null) {
+            return spilledLevelPage(levelId, null, resultsLimit);
+        }
+
+        Leaderboard leaderboard = levelResults.get(levelId);
+
+        if (leaderboard == null || leaderboard.isEmpty()) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        return leaderboard.top(resultsLimit);
+    }
+
+    /**
+     * Retrieves up to {@code limit} users and their results for a specific level ranked after the given
+     * result. The level's leaderboard seeks to the position after the given result in {@code O(log n)},
+     * so a page costs the same wherever it starts. The limit is capped by the
+     * {@code api.user.top.results.max-limit} property.
+     *
+     * @param levelId the ID of the level for which information is to be retrieved
+     * @param after   the last result of the previous page, or {@code null} for the first page
+     * @param limit   the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the users ranked after the given result
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified level ID
+     */
+    @Override
+    public List<UserInfo> getLevelInfo(int levelId, UserInfo after, int limit) {
+        if (limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+        if (spillFile != null) {
+            return spilledLevelPage(levelId, after, Math.min(limit, maxResultsLimit));
+        }
+
+        Leaderboard leaderboard = levelResults.get(levelId);
+
+        if (leaderboard == null || leaderboard.isEmpty()) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        int pageSize = Math.min(limit, maxResultsLimit);
+        return after == null ? leaderboard.top(pageSize) : leaderboard.after(after, pageSize);
+    }
+
+    /**
+     * Retrieves the rank and percentile of a user on a specific level and the users ranked around them.
+     * The level's leaderboard counts the entries of its subtrees, so the rank is found in {@code O(log n)}
+     * and the neighbours are read from the position of the user without walking the entries before it.
+     * The number of neighbours is capped by the {@code api.user.top.results.max-limit} property.
+     *
+     * @param levelId    the ID of the level
+     * @param userId     the ID of the user whose rank is to be retrieved
+     * @param neighbours the maximum number of users to return above and below the user
+     * @return the {@link UserRank} of the user on the level
+     * @throws DataProcessingException if the number of neighbours is negative or no result is found for
+     *                                 the specified level ID or for the user on that level
+     */
+    @Override
+    public UserRank getLevelRank(int levelId, int userId, int neighbours) {
+        if (neighbours < 0) {
+            throw new DataProcessingException("Neighbours must be greater than or equal to 0");
+        }
+        if (spillFile != null) {
+            return spilledLevelRank(levelId, userId, Math.min(neighbours, maxResultsLimit));
+        }
+
+        Leaderboard leaderboard = levelResults.get(levelId);
+
+        if (leaderboard == null || leaderboard.isEmpty()) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        UserRank rank = leaderboard.rank(userId, Math.min(neighbours, maxResultsLimit));
+
+        if (rank == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId
+                    + " on level ID: " + levelId);
+        }
+
+        return rank;
+    }
+
+    /**
+     * Returns the number of stored results. The memory taken by the objects holding them is not measured.
+     * If spilling is enabled, the number of users held in memory and in the spill file and the latency of
+     * loading a spilled user are reported too.
+     *
+     * @return the storage statistics of the engine
+     */
+    @Override
+    public StorageStats getStorageStats() {
+        long entries = 0;
+        for (Leaderboard levelUsers : levelResults.values()) {
+            entries += levelUsers.size();
+        }
+        for (LevelTop levelTop : levelTops.values()) {
+            entries += levelTop.size();
+        }
+
+        StorageStats.StorageStatsBuilder stats = StorageStats.builder()
+                .engine("in-memory")
+                .entries(entries);
+        if (spillFile == null) {
+            return stats.build();
+        }
+
+        long[] latencies = pageInLatency.valuesAt(50, 99);
+        return stats
+                .residentUsers((long) userResults.size())
+                .spilledUsers((long) spillFile.size())
+                .spillFileBytes(spillFile.usedBytes())
+                .pageIns(pageIns.sum())
+                .pageInP50Micros(latencies[0] / 1000.0)
+                .pageInP99Micros(latencies[1] / 1000.0)
+                .build();
+    }
+
+    /**
+     * Performs the action for the best result of every user on every level. The level leaderboards are
+     * walked, or if spilling is enabled, the user leaderboards and the spill file, while no user is spilled
+     * or loaded back. A slow action then delays the writers and readers of the spilled users.
+     *
+     * @param action the action to perform for each result
+     */
+    @Override
+    public void forEachResult(ResultConsumer action) {
+        if (spillFile != null) {
+            forEachStoredResult(action);
+            return;
+        }
+        for (Leaderboard levelUsers : levelResults.values()) {
+            levelUsers.forEach(info -> action.accept(info.getUserId(), info.getLevelId(), info.getResult()));
+        }
+    }
+
+    /**
+     * Performs the action for the best result of every user on a specific level. If spilling is enabled,
+     * the level does not hold all its results, so every result is walked like in
+     * {@link #forEachResult(ResultConsumer)} and the ones of other levels are skipped.
+     *
+     * @param levelId the ID of the level
+     * @param action  the action to perform for each result
+     */
+    @Override
+    public void forEachLevelResult(int levelId, ResultConsumer action) {
+        if (spillFile != null) {
+            forEachStoredResult((userId, resultLevelId, result) -> {
+                if (resultLevelId == levelId) {
+                    action.accept(userId, levelId, result);
+                }
+            });
+            return;
+        }
+        Leaderboard leaderboard = levelResults.get(levelId);
+        if (leaderboard != null) {
+            leaderboard.forEach(info -> action.accept(info.getUserId(), info.getLevelId(), info.getResult()));
+        }
+    }
+
+    @Override
+    public void addResultListener(ResultListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void addSubmissionListener(SubmissionListener listener) {
+        submissionListeners.add(listener);
+        submissionListeners.sort(OrderComparator.INSTANCE);
+    }
+
+    /**
+     * Offers the result to the user's leaderboard and returns the entry it replaced, as returned by
+     * {@link Leaderboard#replace(UserInfo)}. A spilled leaderboard rejects the result, which is then offered
+     * again to the leaderboard loaded back, so it is never lost.
+     */
+    private UserInfo mergeUserResult(UserInfo userInfo) {
+        UserInfo replaced;
+        Leaderboard userLevels;
+        do {
+            userLevels = userLeaderboard(userInfo.getUserId());
+            replaced = userLevels.replace(userInfo);
+        } while (replaced == null && userLevels.isRetired());
+        return replaced;
+    }
+
+    /**
+     * Offers the records to the users' leaderboards, then the ones that improved a user's best result to
+     * the level's leaderboards, once per level, and returns the number of records accepted by the levels.
+     */
+    private int mergeAll(List<UserInfo> records, boolean notify) {
+        Map<Integer, List<UserInfo>> improvedByLevel = new HashMap<>();
+        Map<Integer, List<UserInfo>> replacedByLevel = new HashMap<>();
+        for (UserInfo record : records) {
+            UserInfo replaced = mergeUserResult(record);
+            if (replaced != null) {
+                improvedByLevel.computeIfAbsent(record.getLevelId(), k -> new ArrayList<>()).add(record);
+                replacedByLevel.computeIfAbsent(record.getLevelId(), k -> new ArrayList<>()).add(replaced);
+            }
+        }
+
+        int stored = 0;
+        for (Map.Entry<Integer, List<UserInfo>> level : improvedByLevel.entrySet()) {
+            List<UserInfo> improved = level.getValue();
+            int[] improvements = spillFile == null
+                    ? levelLeaderboard(level.getKey()).improveAll(improved)
+                    : offerToLevelTop(level.getKey(), improved, replacedByLevel.get(level.getKey()));
+            for (int i = 0; i < improvements.length; i++) {
+                if (improvements[i] >= 0) {
+                    stored++;
+                }
+                if (notify) {
+                    notifyListeners(improved.get(i), improvements[i]);
+                }
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Offers the records that improved a user's best result to the level's resident entries while holding
+     * its monitor once, and tells by how much every one of them raised the user's result on the level.
+     */
+    private int[] offerToLevelTop(int levelId, List<UserInfo> improved, List<UserInfo> replaced) {
+        int[] improvements = new int[improved.size()];
+        boolean[] added = new boolean[improved.size()];
+        for (int i = 0; i < improvements.length; i++) {
+            improvements[i] = Leaderboard.improvement(replaced.get(i), improved.get(i));
+            added[i] = replaced.get(i) == improved.get(i);
+        }
+        levelTop(levelId).offerAll(improved, added);
+        return improvements;
+    }
+
+    private Leaderboard userLeaderboard(int userId) {
+        return userResults.computeIfAbsent(userId, this::loadUser);
+    }
+
+    /**
+     * Returns the leaderboard of a user with results, loading it back if it is spilled, without creating one
+     * for an unknown user.
+     */
+    private Leaderboard existingUserLeaderboard(int userId) {
+        Leaderboard userLevels = userResults.get(userId);
+        if (userLevels == null && spillFile != null
+                && (spillFile.contains(userId) || unspilledUsers.containsKey(userId))) {
+            userLevels = userLeaderboard(userId);
+        }
+        return userLevels;
+    }
+
+    /**
+     * Creates the leaderboard of a user, filled with the user's results if they were spilled. A user who is
+     * not spilled cannot be spilled before the leaderboard is in the cache, since the cache evicts only the
+     * users it holds, so the spill file is only locked for a spilled user.
+     */
+    private Leaderboard loadUser(int userId) {
+        Leaderboard userLevels = new Leaderboard(USER_ORDER, UserInfo::getLevelId);
+        if (spillFile == null || !(spillFile.contains(userId) || unspilledUsers.containsKey(userId))) {
+            return userLevels;
+        }
+
+        migrationLock.readLock().lock();
+        try {
+            long start = System.nanoTime();
+            List<UserInfo> spilled = unspilledUsers.remove(userId);
+            if (spilled == null) {
+                spilled = spillFile.load(userId);
+            }
+            if (spilled != null) {
+                userLevels.offerAll(spilled);
+                pageIns.increment();
+                pageInLatency.record(System.nanoTime() - start);
+            }
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+        return userLevels;
+    }
+
+    private void spill(int userId, Leaderboard userLevels) {
+        migrationLock.readLock().lock();
+        try {
+            List<UserInfo> results = userLevels.retire();
+            try {
+                spillFile.write(userId, results);
+            } catch (RuntimeException e) {
+                log.error("Cannot spill the results of user {}, keeping them in memory: {}", userId,
+                        e.getMessage());
+                unspilledUsers.put(userId, results);
+            }
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs the action for every result held by the user leaderboards, the users whose spill failed and
+     * the spill file, in this order, while no user is spilled or loaded back.
+     */
+    private void forEachStoredResult(ResultConsumer action) {
+        migrationLock.writeLock().lock();
+        try {
+            for (Leaderboard userLevels : userResults.values()) {
+                userLevels.forEach(info -> action.accept(info.getUserId(), info.getLevelId(), info.getResult()));
+            }
+            for (List<UserInfo> results : unspilledUsers.values()) {
+                results.forEach(info -> action.accept(info.getUserId(), info.getLevelId(), info.getResult()));
+            }
+            spillFile.forEachResult(action);
+        } finally {
+            migrationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a page of a level from its resident entries, or if the page goes past them, from all the results
+     * of the level, keeping only the best {@code limit} results after the given one.
+     */
+    private List<UserInfo> spilledLevelPage(int levelId, UserInfo after, int limit) {
+        LevelTop levelTop = levelTops.get(levelId);
+        if (levelTop == null || levelTop.size() == 0) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        List<UserInfo> page = levelTop.after(after, limit);
+        if (page.size() == limit || levelTop.holdsAll()) {
+            return page;
+        }
+
+        TreeSet<UserInfo> best = new TreeSet<>(LEVEL_ORDER);
+        forEachStoredResult((userId, resultLevelId, result) -> {
+            if (resultLevelId != levelId) {
+                return;
+            }
+            UserInfo info = UserInfo.builder().userId(userId).levelId(levelId).result(result).build();
+            if (after == null || LEVEL_ORDER.compare(info, after) > 0) {
+                best.add(info);
+                if (best.size() > limit) {
+                    best.pollLast();
+                }
+            }
+        });
+        return new ArrayList<>(best);
+    }
+
+    /**
+     * Reads the rank of a user on a level from the level's resident entries, or if the user or their
+     * neighbours below are not resident, counts the results of the level ranked ahead of the user's result
+     * and keeps the neighbours on the way.
+     */
+    private UserRank spilledLevelRank(int levelId, int userId, int neighbours) {
+        LevelTop levelTop = levelTops.get(levelId);
+        if (levelTop == null || levelTop.size() == 0) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        UserRank rank = levelTop.rank(userId, neighbours);
+        if (rank != null && (rank.getBelow().size() == neighbours || levelTop.holdsAll())) {
+            return rank;
+        }
+
+        Leaderboard userLevels = existingUserLeaderboard(userId);
+        UserInfo user = userLevels == null ? null : userLevels.get(levelId);
+        if (user == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId
+                    + " on level ID: " + levelId);
+        }
+
+        long[] ahead = new long[1];
+        TreeSet<UserInfo> above = new TreeSet<>(LEVEL_ORDER);
+        TreeSet<UserInfo> below = new TreeSet<>(LEVEL_ORDER);
+        forEachStoredResult((resultUserId, resultLevelId, result) -> {
+            if (resultLevelId != levelId || resultUserId == userId) {
+                return;
+            }
+            UserInfo info = UserInfo.builder().userId(resultUserId).levelId(levelId).result(result).build();
+            if (LEVEL_ORDER.compare(info, user) < 0) {
+                ahead[0]++;
+                above.add(info);
+                if (above.size() > neighbours) {
+                    above.pollFirst();
+                }
+            } else {
+                below.add(info);
+                if (below.size() > neighbours) {
+                    below.pollLast();
+                }
+            }
+        });
+
+        long total = Math.max(levelTop.size(), ahead[0] + 1);
+        return UserRank.builder()
+                .userId(userId)
+                .levelId(levelId)
+                .result(user.getResult())
+                .rank(ahead[0] + 1)
+                .total(total)
+                .percentile((double) (total - ahead[0]) * 100 / total)
+                .above(new ArrayList<>(above))
+                .below(new ArrayList<>(below))
+                .build();
+    }
+
+    private Leaderboard levelLeaderboard(int levelId) {
+        return levelResults.computeIfAbsent(levelId, k -> new Leaderboard(LEVEL_ORDER, UserInfo::getUserId));
+    }
+
+    private LevelTop levelTop(int levelId) {
+        return levelTops.computeIfAbsent(levelId, k -> new LevelTop(LEVEL_ORDER, maxResidentLevelEntries));
+    }
+
+    /**
+     * Rejects a default number of results that the maximum would silently cap, since the top results of
+     * users and levels and the responses cached for them are all read with the default.
+     */
+    static void checkResultsLimits(int resultsLimit, int maxResultsLimit) {
+        if (resultsLimit < 1 || resultsLimit > maxResultsLimit) {
+            throw new IllegalArgumentException("api.user.top.results.limit must be between 1 and "
+                    + "api.user.top.results.max-limit (" + maxResultsLimit + "), got " + resultsLimit);
+        }
+    }
+
+    private void notifySubmissionListeners(int userId, int levelId, int result) {
+        for (SubmissionListener listener : submissionListeners) {
+            listener.onResultSubmitted(userId, levelId, result);
+        }
+    }
+
+    /**
+     * Notifies the listeners of a result accepted by the level's leaderboard. A result that improved the
+     * user's leaderboard but lost the race on the level's leaderboard to a higher concurrent result was never
+     * visible to readers, so it is not notified.
+     */
+    private void notifyListeners(UserInfo userInfo, int improvement) {
+        if (improvement < 0) {
+            return;
+        }
+        int result = userInfo.getResult();
+        for (ResultListener listener : listeners) {
+            listener.onResultImproved(userInfo.getUserId(), userInfo.getLevelId(), result - improvement, result);
+        }
     }
 }
@@ -0,0 +1,224 @@
+package com.example.userleveltracker.service.impl;
+
+/**
+ * Open-addressing hash table from {@code int} keys to {@code int} values that keeps the highest value
+ * per key.
+ *
+ * <p>Each entry is packed into one {@code long} slot, the key in the upper and the value in the lower
+ * 32 bits, so the table is a single {@code long[]} without boxed keys, values or entry objects.
+ * Collisions are resolved by linear probing. The key {@code 0} marks an empty slot, so an entry with
+ * that key is held in separate fields.</p>
+ *
+ * <p>The table is not thread-safe, callers synchronize on it. A large table can be walked in steps with
+ * {@link #forEachFrom}, releasing the lock between them.</p>
+ */
+public class IntIntHashTable {
+    /**
+     * The position returned by {@link #forEachFrom} once the whole table is walked.
+     */
+    public static final long END = 1L << Integer.SIZE;
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long EMPTY = 0L;
+
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /**
+     * Puts the value for the key if the key is absent or the value is higher than the current one.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return {@code true} if the value was put
+     */
+    public boolean putMax(int key, int value) {
+        if (key == 0) {
+            if (hasZeroKey && zeroKeyValue >= value) {
+                return false;
+            }
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == EMPTY) {
+                slots[i] = pack(key, value);
+                if (++size > slots.length * 3 / 4) {
+                    resize();
+                }
+                return true;
+            }
+            if (keyOf(slot) == key) {
+                if (valueOf(slot) >= value) {
+                    return false;
+                }
+                slots[i] = pack(key, value);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the value for the key.
+     *
+     * @param key          the key
+     * @param defaultValue the value to return if the key is absent
+     * @return the value for the key or {@code defaultValue}
+     */
+    public int get(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+
+        int mask = slots.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == EMPTY) {
+                return defaultValue;
+            }
+            if (keyOf(slot) == key) {
+                return valueOf(slot);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the table has an entry for the key.
+     *
+     * @param key the key
+     * @return {@code true} if the key is present
+     */
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+
+        int mask = slots.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == EMPTY) {
+                return false;
+            }
+            if (keyOf(slot) == key) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Performs the action for each entry of the table.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(IntIntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroKeyValue);
+        }
+        for (long slot : slots) {
+            if (slot != EMPTY) {
+                action.accept(keyOf(slot), valueOf(slot));
+            }
+        }
+    }
+
+    /**
+     * Performs the action for the entries of the table from a position of a walk, and returns the position
+     * to continue the walk from. The walk is started at position {@code 0}, and it is over once
+     * {@link #END} is returned.
+     *
+     * <p>The entries are walked in the bit-reversed order of their hashes' low bits, home slot by home slot,
+     * and a position is the reversed hash bits walked so far. Doubling the table splits every home slot in
+     * two that are adjacent in that order, so a position stays valid when the table grows between two
+     * steps. An entry present for the whole walk is visited exactly once, and an entry put during the walk
+     * may or may not be visited.</p>
+     *
+     * @param position   the position to start from
+     * @param minEntries the number of entries after which the step stops at the end of a home slot
+     * @param action     the action to perform
+     * @return the position to continue from, or {@link #END}
+     */
+    public long forEachFrom(long position, int minEntries, IntIntConsumer action) {
+        if (position == 0 && hasZeroKey) {
+            action.accept(0, zeroKeyValue);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(slots.length);
+        int mask = slots.length - 1;
+        long homes = position >>> (Integer.SIZE - bits);
+        int visited = 0;
+        while (homes < slots.length && visited < minEntries) {
+            int home = Integer.reverse((int) homes) >>> (Integer.SIZE - bits);
+            for (int i = home; slots[i] != EMPTY; i = (i + 1) & mask) {
+                int key = keyOf(slots[i]);
+                if ((hash(key) & mask) == home) {
+                    action.accept(key, valueOf(slots[i]));
+                    visited++;
+                }
+            }
+            homes++;
+        }
+        return homes << (Integer.SIZE - bits);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes held by the slots of the table.
+     *
+     * @return the size of the slot array in bytes
+     */
+    public long slotBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    private void resize() {
+        long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        int mask = slots.length - 1;
+
+        for (long slot : oldSlots) {
+            if (slot != EMPTY) {
+                int i = hash(keyOf(slot)) & mask;
+                while (slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = slot;
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long pack(int key, int value) {
+        return ((long) key << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int keyOf(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int valueOf(long slot) {
+        return (int) slot;
+    }
+
+    /**
+     * Action performed for an entry of the table.
+     */
+    @FunctionalInterface
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+}
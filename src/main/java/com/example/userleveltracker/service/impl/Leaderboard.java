@@ -0,0 +1,270 @@
+package com.example.userleveltracker.service.impl;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ordered index of {@link UserInfo} entries holding at most one entry per key.
+ *
+ * <p>Entries are kept in an {@link OrderStatisticSet} sorted by the given order, so the top entries are
+ * read by walking the head of the set instead of sorting on every read, and the rank of an entry is
+ * found in {@code O(log n)} without walking the entries before it. A side map from
+ * the key (e.g. the user ID on a level leaderboard) to the current entry is the store of the
+ * leaderboard: it finds the entry to replace in constant time, which keeps an update at {@code O(log n)},
+ * and rejects an entry that does not improve the result for its key in constant time without locking.</p>
+ *
+ * <p>Updates and reads of the ordered index are performed under the monitor of the leaderboard, so a
+ * replacement of an entry is never observed half-way.</p>
+ */
+public class Leaderboard {
+    private static final int REJECTED = -1;
+
+    private final Map<Integer, UserInfo> entries = new ConcurrentHashMap<>();
+    private final OrderStatisticSet<UserInfo> ranking;
+    private final ToIntFunction<UserInfo> keyExtractor;
+    private volatile boolean retired;
+
+    /**
+     * Creates an empty leaderboard.
+     *
+     * @param order        the order of the entries, best entry first
+     * @param keyExtractor the function extracting the key an entry is unique by
+     */
+    public Leaderboard(Comparator<UserInfo> order, ToIntFunction<UserInfo> keyExtractor) {
+        this.ranking = new OrderStatisticSet<>(order);
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Offers the entry to the leaderboard. The entry replaces the entry with the same key only if its
+     * result is higher, so the leaderboard always keeps the best result per key.
+     *
+     * @param info the entry to offer
+     * @return {@code true} if the entry was added or replaced the previous one
+     */
+    public boolean offer(UserInfo info) {
+        int key = keyExtractor.applyAsInt(info);
+        if (!improves(entries.get(key), info)) {
+            return false;
+        }
+
+        synchronized (this) {
+            return replaceIfImproves(info) != null;
+        }
+    }
+
+    /**
+     * Offers the entry to the leaderboard like {@link #offer(UserInfo)} and returns the entry it replaced, so
+     * the caller can tell a new key from an improved one.
+     *
+     * @param info the entry to offer
+     * @return the entry replaced by the given one, the given entry itself if it was added for a new key, or
+     * {@code null} if it was rejected
+     */
+    public UserInfo replace(UserInfo info) {
+        int key = keyExtractor.applyAsInt(info);
+        if (!improves(entries.get(key), info)) {
+            return null;
+        }
+
+        synchronized (this) {
+            return replaceIfImproves(info);
+        }
+    }
+
+    /**
+     * Offers the entry to the leaderboard like {@link #offer(UserInfo)} and tells by how much it raised the
+     * result for its key, so the caller can keep an aggregate of the results up to date. Results are
+     * non-negative, and a key without an entry counts as a result of {@code 0}.
+     *
+     * @param info the entry to offer
+     * @return the difference between the result of the entry and the result it replaced, or {@code -1} if
+     * the entry was rejected
+     */
+    public int improve(UserInfo info) {
+        int key = keyExtractor.applyAsInt(info);
+        if (!improves(entries.get(key), info)) {
+            return REJECTED;
+        }
+
+        synchronized (this) {
+            return improvement(replaceIfImproves(info), info);
+        }
+    }
+
+    /**
+     * Offers all the entries to the leaderboard while holding its monitor once, and tells by how much every
+     * one of them raised the result for its key.
+     *
+     * @param infos the entries to offer
+     * @return the improvement of every entry in order, as returned by {@link #improve(UserInfo)}
+     */
+    public synchronized int[] improveAll(List<UserInfo> infos) {
+        int[] improvements = new int[infos.size()];
+        for (int i = 0; i < improvements.length; i++) {
+            UserInfo info = infos.get(i);
+            improvements[i] = improvement(replaceIfImproves(info), info);
+        }
+        return improvements;
+    }
+
+    /**
+     * Offers all the entries to the leaderboard while holding its monitor once.
+     *
+     * @param infos the entries to offer
+     * @see #offer(UserInfo)
+     */
+    public synchronized void offerAll(Collection<UserInfo> infos) {
+        for (UserInfo info : infos) {
+            replaceIfImproves(info);
+        }
+    }
+
+    /**
+     * Returns the best entries of the leaderboard.
+     *
+     * @param limit the maximum number of entries to return
+     * @return the best entries in order, at most {@code limit} of them
+     */
+    public synchronized List<UserInfo> top(int limit) {
+        return ranking.range(0, limit);
+    }
+
+    /**
+     * Returns the entries ranked right after the given one. The given entry does not have to be in the
+     * leaderboard, the page starts at the first entry after its position in the order.
+     *
+     * @param after the entry to seek past
+     * @param limit the maximum number of entries to return
+     * @return the entries after the given one in order, at most {@code limit} of them
+     */
+    public synchronized List<UserInfo> after(UserInfo after, int limit) {
+        return ranking.range(ranking.higherIndex(after), limit);
+    }
+
+    /**
+     * Returns the rank of the entry with the given key and the entries ranked around it.
+     *
+     * @param key        the key of the entry
+     * @param neighbours the maximum number of entries to return above and below the entry
+     * @return the rank of the entry, or {@code null} if there is no entry with the key
+     */
+    public synchronized UserRank rank(int key, int neighbours) {
+        UserInfo info = entries.get(key);
+        if (info == null) {
+            return null;
+        }
+
+        int index = ranking.indexOf(info);
+        int total = ranking.size();
+        int aboveFrom = Math.max(index - neighbours, 0);
+
+        return UserRank.builder()
+                .userId(info.getUserId())
+                .levelId(info.getLevelId())
+                .result(info.getResult())
+                .rank(index + 1)
+                .total(total)
+                .percentile((double) (total - index) * 100 / total)
+                .above(ranking.range(aboveFrom, index - aboveFrom))
+                .below(ranking.range(index + 1, neighbours))
+                .build();
+    }
+
+    /**
+     * Performs the action for the current entry of every key. The walk does not take the monitor of the
+     * leaderboard, so entries replaced during the walk may or may not be seen by it.
+     *
+     * @param action the action to perform for each entry
+     */
+    public void forEach(Consumer<UserInfo> action) {
+        entries.values().forEach(action);
+    }
+
+    /**
+     * Returns the current entry of a key.
+     *
+     * @param key the key of the entry
+     * @return the entry of the key, or {@code null} if there is none
+     */
+    public UserInfo get(int key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the number of entries of the leaderboard.
+     *
+     * @return the number of keys with an entry
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns a copy of the entries and marks the leaderboard as retired, while holding its monitor, so
+     * every entry added before is in the copy. The entries offered after are rejected, and
+     * {@link #isRetired()} tells the caller to offer them to the leaderboard replacing this one.
+     *
+     * @return the entries of the leaderboard
+     */
+    public synchronized List<UserInfo> retire() {
+        retired = true;
+        return ranking.range(0, ranking.size());
+    }
+
+    /**
+     * Checks whether the leaderboard was retired.
+     *
+     * @return {@code true} if {@link #retire()} was called
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Checks whether the leaderboard has no entries.
+     *
+     * @return {@code true} if the leaderboard is empty
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private UserInfo replaceIfImproves(UserInfo info) {
+        UserInfo previous = entries.get(keyExtractor.applyAsInt(info));
+        if (retired || !improves(previous, info)) {
+            return null;
+        }
+        entries.put(keyExtractor.applyAsInt(info), info);
+        if (previous == null) {
+            ranking.add(info);
+            return info;
+        }
+        ranking.remove(previous);
+        ranking.add(info);
+        return previous;
+    }
+
+    /**
+     * Tells by how much an entry raised the result for its key, given the entry it replaced as returned by
+     * {@link #replace(UserInfo)}, or {@code -1} if it was rejected.
+     */
+    static int improvement(UserInfo replaced, UserInfo info) {
+        if (replaced == null) {
+            return REJECTED;
+        }
+        return replaced == info ? info.getResult() : info.getResult() - replaced.getResult();
+    }
+
+    private static boolean improves(UserInfo previous, UserInfo candidate) {
+        return previous == null || previous.getResult() < candidate.getResult();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.userleveltracker.service.impl;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The best entries of a level kept in memory while the other entries of the level are held by the
+ * leaderboards of their users, which may be spilled to disk.
+ *
+ * <p>The leaderboard holds at most {@code capacity} entries, one per user, in an {@link OrderStatisticSet}
+ * sorted by the given order, and counts the entries of the level it does not hold. An entry better than the
+ * worst entry held pushes that one out, so the entries held are always the best {@code capacity} entries of
+ * the level, and a page or a rank within them is read in {@code O(log n)} like on a {@link Leaderboard}.
+ * The leaderboard cannot tell a new user of the level from a user it pushed out, so the caller tells it
+ * which offered entries are new.</p>
+ *
+ * <p>Updates and reads are performed under the monitor of the leaderboard.</p>
+ */
+public class LevelTop {
+    private final Map<Integer, UserInfo> entries = new HashMap<>();
+    private final OrderStatisticSet<UserInfo> ranking;
+    private final Comparator<UserInfo> order;
+    private final int capacity;
+    private int size;
+
+    /**
+     * Creates an empty leaderboard.
+     *
+     * @param order    the order of the entries, best entry first
+     * @param capacity the maximum number of entries held
+     */
+    public LevelTop(Comparator<UserInfo> order, int capacity) {
+        this.ranking = new OrderStatisticSet<>(order);
+        this.order = order;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Offers the best result of a user on the level. The entry replaces the user's entry if it is held and
+     * the result is higher, and is otherwise held only if it is among the best {@code capacity} entries.
+     *
+     * @param info  the entry to offer
+     * @param added whether the user had no result on the level before
+     */
+    public synchronized void offer(UserInfo info, boolean added) {
+        if (added) {
+            size++;
+        }
+
+        UserInfo previous = entries.get(info.getUserId());
+        if (previous != null) {
+            if (previous.getResult() < info.getResult()) {
+                entries.put(info.getUserId(), info);
+                ranking.remove(previous);
+                ranking.add(info);
+            }
+            return;
+        }
+
+        if (ranking.size() == capacity) {
+            UserInfo worst = ranking.range(capacity - 1, 1).get(0);
+            if (order.compare(info, worst) >= 0) {
+                return;
+            }
+            entries.remove(worst.getUserId());
+            ranking.remove(worst);
+        }
+        entries.put(info.getUserId(), info);
+        ranking.add(info);
+    }
+
+    /**
+     * Offers the best results of many users on the level while holding the monitor once.
+     *
+     * @param infos the entries to offer
+     * @param added whether each user had no result on the level before, in the order of the entries
+     * @see #offer(UserInfo, boolean)
+     */
+    public synchronized void offerAll(List<UserInfo> infos, boolean[] added) {
+        for (int i = 0; i < added.length; i++) {
+            offer(infos.get(i), added[i]);
+        }
+    }
+
+    /**
+     * Returns the entries held ranked right after the given one. If the page is shorter than {@code limit}
+     * while the level has entries that are not held, the rest of the page is among those.
+     *
+     * @param after the entry to seek past, or {@code null} for the first page
+     * @param limit the maximum number of entries to return
+     * @return the entries held after the given one in order, at most {@code limit} of them
+     */
+    public synchronized List<UserInfo> after(UserInfo after, int limit) {
+        return ranking.range(after == null ? 0 : ranking.higherIndex(after), limit);
+    }
+
+    /**
+     * Returns the rank of a user held by the leaderboard among all the entries of the level, and the entries
+     * held around it. If fewer than {@code neighbours} entries are held below the user while the level has
+     * entries that are not held, the rest of them are among those.
+     *
+     * @param userId     the ID of the user
+     * @param neighbours the maximum number of entries to return above and below the user
+     * @return the rank of the user, or {@code null} if the user is not held
+     */
+    public synchronized UserRank rank(int userId, int neighbours) {
+        UserInfo info = entries.get(userId);
+        if (info == null) {
+            return null;
+        }
+
+        int index = ranking.indexOf(info);
+        int aboveFrom = Math.max(index - neighbours, 0);
+
+        return UserRank.builder()
+                .userId(info.getUserId())
+                .levelId(info.getLevelId())
+                .result(info.getResult())
+                .rank(index + 1)
+                .total(size)
+                .percentile((double) (size - index) * 100 / size)
+                .above(ranking.range(aboveFrom, index - aboveFrom))
+                .below(ranking.range(index + 1, neighbours))
+                .build();
+    }
+
+    /**
+     * Returns the number of entries of the level, held or not.
+     *
+     * @return the number of users with a result on the level
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether every entry of the level is held.
+     *
+     * @return {@code true} if no entry of the level was pushed out
+     */
+    public synchronized boolean holdsAll() {
+        return ranking.size() == size;
+    }
+}
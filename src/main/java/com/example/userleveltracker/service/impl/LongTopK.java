@@ -0,0 +1,84 @@
+package com.example.userleveltracker.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Bounded selection of the highest {@code long} values.
+ *
+ * <p>The candidates are kept in a binary min-heap backed by a {@code long[]}, so offering a value
+ * costs {@code O(log k)} and no object is allocated per value.</p>
+ */
+public class LongTopK {
+    private final long[] heap;
+    private int size;
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param k the maximum number of values to select
+     */
+    public LongTopK(int k) {
+        this.heap = new long[k];
+    }
+
+    /**
+     * Offers the value to the selection.
+     *
+     * @param value the value to offer
+     */
+    public void offer(long value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && value > heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the selected values.
+     *
+     * @return the highest offered values in descending order
+     */
+    public long[] toSortedArray() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            long value = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = value;
+        }
+        return sorted;
+    }
+
+    private void siftUp(int i) {
+        long value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private void siftDown(int i) {
+        long value = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
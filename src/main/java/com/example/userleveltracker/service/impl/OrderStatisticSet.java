@@ -0,0 +1,231 @@
+package com.example.userleveltracker.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted set that also answers rank queries: the position of an element and the element at a position.
+ *
+ * <p>The elements are held in a treap, a binary search tree balanced by random node priorities, where
+ * every node also counts the nodes of its subtree. Adding, removing and finding the rank of an element
+ * cost {@code O(log n)} expected, and reading {@code k} elements from any position costs
+ * {@code O(log n + k)}.</p>
+ *
+ * <p>The set is not thread-safe, callers synchronize on it or on its owner.</p>
+ *
+ * @param <T> the type of the elements
+ */
+public class OrderStatisticSet<T> {
+    private final Comparator<? super T> order;
+    private Node<T> root;
+    private int seed = 0x2545F491;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param order the order of the elements, first element first
+     */
+    public OrderStatisticSet(Comparator<? super T> order) {
+        this.order = order;
+    }
+
+    /**
+     * Adds the element if no equal element is in the set.
+     *
+     * @param element the element to add
+     * @return {@code true} if the element was added
+     */
+    public boolean add(T element) {
+        if (indexOf(element) >= 0) {
+            return false;
+        }
+        Node<T> node = new Node<>(element, nextPriority());
+        Node<T>[] parts = split(root, element);
+        root = merge(merge(parts[0], node), parts[1]);
+        return true;
+    }
+
+    /**
+     * Removes the element equal to the given one.
+     *
+     * @param element the element to remove
+     * @return {@code true} if the element was removed
+     */
+    public boolean remove(T element) {
+        int sizeBefore = size();
+        root = remove(root, element);
+        return size() < sizeBefore;
+    }
+
+    /**
+     * Returns the position of the element in the set.
+     *
+     * @param element the element to look for
+     * @return the number of elements before the element, or {@code -1} if it is not in the set
+     */
+    public int indexOf(T element) {
+        int index = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = order.compare(element, node.element);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                index += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return index + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the first element after the given one. The given element does not have to
+     * be in the set.
+     *
+     * @param element the element to seek past
+     * @return the number of elements before or equal to the element
+     */
+    public int higherIndex(T element) {
+        int index = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (order.compare(element, node.element) < 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the elements at consecutive positions.
+     *
+     * @param fromIndex the position of the first element to return
+     * @param limit     the maximum number of elements to return
+     * @return the elements in order, starting at {@code fromIndex}, at most {@code limit} of them
+     */
+    public List<T> range(int fromIndex, int limit) {
+        int from = Math.max(fromIndex, 0);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), size());
+        List<T> elements = new ArrayList<>(Math.max(to - from, 0));
+        collect(root, from, to, 0, elements);
+        return elements;
+    }
+
+    /**
+     * Returns the number of elements of the set.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return size(root);
+    }
+
+    private void collect(Node<T> node, int from, int to, int offset, List<T> elements) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int index = offset + size(node.left);
+        if (from < index) {
+            collect(node.left, from, to, offset, elements);
+        }
+        if (from <= index && index < to) {
+            elements.add(node.element);
+        }
+        if (index + 1 < to) {
+            collect(node.right, from, to, index + 1, elements);
+        }
+    }
+
+    private Node<T> remove(Node<T> node, T element) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = order.compare(element, node.element);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, element);
+        } else {
+            node.right = remove(node.right, element);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits the subtree into the elements before the given one and the elements after it.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T>[] split(Node<T> node, T element) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (order.compare(node.element, element) < 0) {
+            Node<T>[] parts = split(node.right, element);
+            node.right = parts[0];
+            node.update();
+            parts[0] = node;
+            return parts;
+        }
+        Node<T>[] parts = split(node.left, element);
+        node.left = parts[1];
+        node.update();
+        parts[1] = node;
+        return parts;
+    }
+
+    /**
+     * Merges two subtrees where every element of the first one is before every element of the second one.
+     */
+    private Node<T> merge(Node<T> first, Node<T> second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+        second.left = merge(first, second.left);
+        second.update();
+        return second;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<T> {
+        private final T element;
+        private final int priority;
+        private Node<T> left;
+        private Node<T> right;
+        private int size = 1;
+
+        private Node(T element, int priority) {
+            this.element = element;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
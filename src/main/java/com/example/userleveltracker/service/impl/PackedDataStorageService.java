@@ -0,0 +1,534 @@
+package com.example.userleveltracker.service.impl;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultConsumer;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.SubmissionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.OrderComparator;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory-compact implementation of the {@link DataStorageService} interface, enabled with
+ * {@code storage.engine=packed}.
+ *
+ * <p>The best results are stored twice in primitive {@link IntIntHashTable} tables: per user, from the
+ * level ID to the result, and per level, from the user ID to the result. An entry takes one packed
+ * {@code long} slot on each side instead of a {@link UserInfo} object with boxed fields and map nodes,
+ * and {@link UserInfo} objects are only created for the results returned to the caller.</p>
+ *
+ * <p>Every table is guarded by its own monitor. The top results are selected with a {@link LongTopK}
+ * over the result and the ID packed into one {@code long}, so a read sorts nothing but the selected
+ * results.</p>
+ */
+@Service("storageEngine")
+@ConditionalOnProperty(name = "storage.engine", havingValue = "packed")
+public class PackedDataStorageService implements DataStorageService {
+    /**
+     * Approximate bytes held by a table besides its slots: the table object, its slot array header
+     * and the node of the map holding the table.
+     */
+    private static final long TABLE_OVERHEAD_BYTES = 32 + 16 + 48;
+    /**
+     * Number of entries of a level's table copied per hold of its monitor by {@link #forEachLevelResult}.
+     */
+    private static final int LEVEL_WALK_CHUNK = 4096;
+
+    private final Map<Integer, IntIntHashTable> userResults = new ConcurrentHashMap<>();
+    private final Map<Integer, IntIntHashTable> levelResults = new ConcurrentHashMap<>();
+    private final AtomicLong entries = new AtomicLong();
+    private final List<ResultListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<SubmissionListener> submissionListeners = new CopyOnWriteArrayList<>();
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+    @Value("${api.user.top.results.max-limit}")
+    private int maxResultsLimit;
+
+    /**
+     * Checks the limits of the results.
+     *
+     * @throws IllegalArgumentException if {@code api.user.top.results.limit} is less than 1 or greater than
+     *                                  {@code api.user.top.results.max-limit}
+     */
+    @PostConstruct
+    public void init() {
+        InMemoryDataStorageService.checkResultsLimits(resultsLimit, maxResultsLimit);
+    }
+
+    /**
+     * Stores or updates the result of a user for a specific level.
+     * The result is put into the user's table while holding the monitor of that table, and it is
+     * put into the level's table only if it is higher than the user's previous result.
+     *
+     * @param userId  the ID of the user
+     * @param levelId the ID of the level
+     * @param result  the result to be set for the user at the specified level
+     */
+    @Override
+    public void setInfo(int userId, int levelId, int result) {
+        notifySubmissionListeners(userId, levelId, result);
+        if (!putUserResult(userId, levelId, result)) {
+            return;
+        }
+
+        IntIntHashTable levelUsers = levelResults.computeIfAbsent(levelId, k -> new IntIntHashTable());
+        int previous;
+
+        synchronized (levelUsers) {
+            previous = putLevelResult(levelUsers, userId, result);
+        }
+
+        notifyListeners(userId, levelId, previous, result);
+    }
+
+    /**
+     * Stores or updates the results of many users and levels at once.
+     * The records are put into the users' tables one by one, and the records that improved a user's
+     * result are then put into each level's table while holding its monitor once per batch.
+     *
+     * @param records the results to be set, each one for the user at the level of the record
+     */
+    @Override
+    public void setInfoBatch(List<UserInfo> records) {
+        for (SubmissionListener listener : submissionListeners) {
+            listener.onResultsSubmitted(records);
+        }
+        putAll(records, true);
+    }
+
+    /**
+     * Stores results recovered or imported outside the write path, the same way as
+     * {@link #setInfoBatch(List)} but without notifying any listener.
+     *
+     * @param records the results to be stored
+     * @return the number of records that improved the best result of their user on their level
+     */
+    @Override
+    public int loadResults(List<UserInfo> records) {
+        return putAll(records, false);
+    }
+
+    @Override
+    public void completeLoad() {
+        for (ResultListener listener : listeners) {
+            listener.onResultsLoaded();
+        }
+    }
+
+    /**
+     * Retrieves the top results for a specific user across all levels.
+     * The number of results is limited by the {@code api.user.top.results.limit} property.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @return a list of {@link UserInfo} objects representing the user's top results
+     * @throws DataProcessingException if no results are found for the specified user ID
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId) {
+        return getUserInfo(userId, resultsLimit);
+    }
+
+    /**
+     * Retrieves up to {@code limit} top results for a specific user across all levels.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's top results
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified user ID
+     * @see #getUserInfo(int, UserInfo, int)
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId, int limit) {
+        return getUserInfo(userId, null, limit);
+    }
+
+    /**
+     * Retrieves up to {@code limit} results for a specific user ranked after the given result,
+     * in descending order of result and level ID. The user's table is not ordered, so the page is
+     * selected in one pass over the table that skips the results ranked up to the given one, and a
+     * page costs the same wherever it starts. The limit is capped by the
+     * {@code api.user.top.results.max-limit} property.
+     *
+     * @param userId the ID of the user whose information is to be retrieved
+     * @param after  the last result of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the user's results after the given one
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified user ID
+     */
+    @Override
+    public List<UserInfo> getUserInfo(int userId, UserInfo after, int limit) {
+        if (limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        IntIntHashTable userLevels = userResults.get(userId);
+
+        if (userLevels == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId);
+        }
+
+        long[] top = selectTop(userLevels, after == null ? null : pack(after.getResult(), after.getLevelId()),
+                Math.min(limit, maxResultsLimit));
+        List<UserInfo> userInfo = new ArrayList<>(top.length);
+        for (long packed : top) {
+            userInfo.add(UserInfo.builder().userId(userId).levelId(idOf(packed)).result(resultOf(packed)).build());
+        }
+        return userInfo;
+    }
+
+    /**
+     * Retrieves the top users and their results for a specific level,
+     * in descending order of result and user ID.
+     *
+     * @param levelId the ID of the level for which information is to be retrieved
+     * @return a list of {@link UserInfo} objects representing the top users for the specified level
+     * @throws DataProcessingException if no results are found for the specified level ID
+     */
+    @Override
+    public List<UserInfo> getLevelInfo(int levelId) {
+        IntIntHashTable levelUsers = levelResults.get(levelId);
+
+        if (levelUsers == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        long[] top = selectTop(levelUsers, null, resultsLimit);
+        List<UserInfo> levelInfo = new ArrayList<>(top.length);
+        for (long packed : top) {
+            levelInfo.add(UserInfo.builder().userId(idOf(packed)).levelId(levelId).result(resultOf(packed)).build());
+        }
+        return levelInfo;
+    }
+
+    /**
+     * Retrieves up to {@code limit} users and their results for a specific level ranked after the given
+     * result, in descending order of result and user ID. The page is selected in one pass over the level's
+     * table that skips the results ranked up to the given one. The limit is capped by the
+     * {@code api.user.top.results.max-limit} property.
+     *
+     * @param levelId the ID of the level for which information is to be retrieved
+     * @param after   the last result of the previous page, or {@code null} for the first page
+     * @param limit   the maximum number of results to return
+     * @return a list of {@link UserInfo} objects representing the users ranked after the given result
+     * @throws DataProcessingException if the limit is less than 1 or no results are found for the
+     *                                 specified level ID
+     */
+    @Override
+    public List<UserInfo> getLevelInfo(int levelId, UserInfo after, int limit) {
+        if (limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        IntIntHashTable levelUsers = levelResults.get(levelId);
+
+        if (levelUsers == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        long[] top = selectTop(levelUsers, after == null ? null : pack(after.getResult(), after.getUserId()),
+                Math.min(limit, maxResultsLimit));
+        List<UserInfo> levelInfo = new ArrayList<>(top.length);
+        for (long packed : top) {
+            levelInfo.add(UserInfo.builder().userId(idOf(packed)).levelId(levelId).result(resultOf(packed)).build());
+        }
+        return levelInfo;
+    }
+
+    /**
+     * Retrieves the rank and percentile of a user on a specific level and the users ranked around them.
+     * The level's table is not ordered, so the users ranked above the user are counted in one pass over
+     * the table, which costs {@code O(n log k)} for {@code k} neighbours instead of the {@code O(log n)}
+     * of the ordered leaderboards of the {@code in-memory} engine. The closest neighbours are selected
+     * with a {@link LongTopK} on each side during the same pass. The number of neighbours is capped by
+     * the {@code api.user.top.results.max-limit} property.
+     *
+     * @param levelId    the ID of the level
+     * @param userId     the ID of the user whose rank is to be retrieved
+     * @param neighbours the maximum number of users to return above and below the user
+     * @return the {@link UserRank} of the user on the level
+     * @throws DataProcessingException if the number of neighbours is negative or no result is found for
+     *                                 the specified level ID or for the user on that level
+     */
+    @Override
+    public UserRank getLevelRank(int levelId, int userId, int neighbours) {
+        if (neighbours < 0) {
+            throw new DataProcessingException("Neighbours must be greater than or equal to 0");
+        }
+
+        IntIntHashTable levelUsers = levelResults.get(levelId);
+
+        if (levelUsers == null) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId);
+        }
+
+        int limit = Math.min(neighbours, maxResultsLimit);
+        LongTopK above = new LongTopK(limit);
+        LongTopK below = new LongTopK(limit);
+        long[] ranked = new long[1];
+        int result;
+        int total;
+
+        synchronized (levelUsers) {
+            if (!levelUsers.containsKey(userId)) {
+                throw new DataProcessingException("Oops! There are no results for the specified user ID: " + userId
+                        + " on level ID: " + levelId);
+            }
+            result = levelUsers.get(userId, 0);
+            total = levelUsers.size();
+            long target = pack(result, userId);
+            levelUsers.forEach((id, otherResult) -> {
+                long packed = pack(otherResult, id);
+                if (packed > target) {
+                    ranked[0]++;
+                    above.offer(~packed);
+                } else if (packed < target) {
+                    below.offer(packed);
+                }
+            });
+        }
+
+        long[] closestAbove = above.toSortedArray();
+        List<UserInfo> aboveInfo = new ArrayList<>(closestAbove.length);
+        for (int i = closestAbove.length - 1; i >= 0; i--) {
+            long packed = ~closestAbove[i];
+            aboveInfo.add(UserInfo.builder().userId(idOf(packed)).levelId(levelId).result(resultOf(packed)).build());
+        }
+        List<UserInfo> belowInfo = new ArrayList<>(limit);
+        for (long packed : below.toSortedArray()) {
+            belowInfo.add(UserInfo.builder().userId(idOf(packed)).levelId(levelId).result(resultOf(packed)).build());
+        }
+
+        return UserRank.builder()
+                .userId(userId)
+                .levelId(levelId)
+                .result(result)
+                .rank(ranked[0] + 1)
+                .total(total)
+                .percentile((double) (total - ranked[0]) * 100 / total)
+                .above(aboveInfo)
+                .below(belowInfo)
+                .build();
+    }
+
+    /**
+     * Returns the number of stored results and the bytes held by the tables storing them.
+     *
+     * @return the storage statistics of the engine
+     */
+    @Override
+    public StorageStats getStorageStats() {
+        long footprintBytes = footprintBytes(userResults) + footprintBytes(levelResults);
+        long entryCount = entries.get();
+
+        return StorageStats.builder()
+                .engine("packed")
+                .entries(entryCount)
+                .footprintBytes(footprintBytes)
+                .bytesPerEntry(entryCount == 0 ? null : (double) footprintBytes / entryCount)
+                .build();
+    }
+
+    /**
+     * Performs the action for the best result of every user on every level. The results of a user are
+     * copied while holding the monitor of the user's table, and the action is performed after releasing
+     * it, so a slow action never blocks the writers of that user.
+     *
+     * @param action the action to perform for each result
+     */
+    @Override
+    public void forEachResult(ResultConsumer action) {
+        userResults.forEach((userId, userLevels) -> {
+            for (long packed : copyEntries(userLevels)) {
+                action.accept(userId, idOf(packed), resultOf(packed));
+            }
+        });
+    }
+
+    /**
+     * Performs the action for the best result of every user on a specific level. The level's table is
+     * copied in chunks of about {@value #LEVEL_WALK_CHUNK} entries while holding its monitor, which is
+     * released between chunks, and the action is performed for a chunk after releasing it. The walk thus
+     * takes time proportional to the size of the level, its memory stays bounded by a chunk, and the writers
+     * of the level are blocked for one chunk at a time.
+     *
+     * @param levelId the ID of the level
+     * @param action  the action to perform for each result
+     */
+    @Override
+    public void forEachLevelResult(int levelId, ResultConsumer action) {
+        IntIntHashTable levelUsers = levelResults.get(levelId);
+        if (levelUsers == null) {
+            return;
+        }
+
+        long[][] chunk = {new long[LEVEL_WALK_CHUNK]};
+        int[] size = new int[1];
+        long position = 0;
+        while (position != IntIntHashTable.END) {
+            size[0] = 0;
+            synchronized (levelUsers) {
+                position = levelUsers.forEachFrom(position, LEVEL_WALK_CHUNK, (userId, result) -> {
+                    if (size[0] == chunk[0].length) {
+                        chunk[0] = Arrays.copyOf(chunk[0], size[0] * 2);
+                    }
+                    chunk[0][size[0]++] = pack(result, userId);
+                });
+            }
+            for (int i = 0; i < size[0]; i++) {
+                action.accept(idOf(chunk[0][i]), levelId, resultOf(chunk[0][i]));
+            }
+        }
+    }
+
+    @Override
+    public void addResultListener(ResultListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void addSubmissionListener(SubmissionListener listener) {
+        submissionListeners.add(listener);
+        submissionListeners.sort(OrderComparator.INSTANCE);
+    }
+
+    private boolean putUserResult(int userId, int levelId, int result) {
+        IntIntHashTable userLevels = userResults.computeIfAbsent(userId, k -> new IntIntHashTable());
+
+        synchronized (userLevels) {
+            int size = userLevels.size();
+            if (!userLevels.putMax(levelId, result)) {
+                return false;
+            }
+            if (userLevels.size() > size) {
+                entries.incrementAndGet();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Puts the records into the users' tables, then the ones that improved a user's result into the
+     * level's tables, once per level, and returns the number of records put into the levels.
+     */
+    private int putAll(List<UserInfo> records, boolean notify) {
+        Map<Integer, List<UserInfo>> improvedByLevel = new HashMap<>();
+        for (UserInfo record : records) {
+            if (putUserResult(record.getUserId(), record.getLevelId(), record.getResult())) {
+                improvedByLevel.computeIfAbsent(record.getLevelId(), k -> new ArrayList<>()).add(record);
+            }
+        }
+
+        int stored = 0;
+        for (Map.Entry<Integer, List<UserInfo>> level : improvedByLevel.entrySet()) {
+            int levelId = level.getKey();
+            List<UserInfo> improved = level.getValue();
+            IntIntHashTable levelUsers = levelResults.computeIfAbsent(levelId, k -> new IntIntHashTable());
+            int[] previous = new int[improved.size()];
+            synchronized (levelUsers) {
+                for (int i = 0; i < previous.length; i++) {
+                    previous[i] = putLevelResult(levelUsers, improved.get(i).getUserId(), improved.get(i).getResult());
+                }
+            }
+            for (int i = 0; i < previous.length; i++) {
+                if (previous[i] >= 0) {
+                    stored++;
+                }
+                if (notify) {
+                    notifyListeners(improved.get(i).getUserId(), levelId, previous[i], improved.get(i).getResult());
+                }
+            }
+        }
+        return stored;
+    }
+
+    private void notifySubmissionListeners(int userId, int levelId, int result) {
+        for (SubmissionListener listener : submissionListeners) {
+            listener.onResultSubmitted(userId, levelId, result);
+        }
+    }
+
+    /**
+     * Puts the result into the level's table, which the caller has locked, and returns the result it
+     * replaced, {@code 0} if the user had none, or {@code -1} if a higher concurrent result was put first.
+     */
+    private static int putLevelResult(IntIntHashTable levelUsers, int userId, int result) {
+        int previous = levelUsers.get(userId, 0);
+        return levelUsers.putMax(userId, result) ? previous : -1;
+    }
+
+    /**
+     * Notifies the listeners of a result put into the level's table. A result that lost the race on the
+     * level's table to a higher concurrent result was never visible to readers, so it is not notified.
+     */
+    private void notifyListeners(int userId, int levelId, int previous, int result) {
+        if (previous < 0) {
+            return;
+        }
+        for (ResultListener listener : listeners) {
+            listener.onResultImproved(userId, levelId, previous, result);
+        }
+    }
+
+    private static long[] selectTop(IntIntHashTable table, Long before, int limit) {
+        LongTopK topK = new LongTopK(limit);
+        long bound = before == null ? Long.MAX_VALUE : before;
+        boolean bounded = before != null;
+        synchronized (table) {
+            table.forEach((id, result) -> {
+                long packed = pack(result, id);
+                if (!bounded || packed < bound) {
+                    topK.offer(packed);
+                }
+            });
+        }
+        return topK.toSortedArray();
+    }
+
+    private static long[] copyEntries(IntIntHashTable table) {
+        synchronized (table) {
+            long[] entries = new long[table.size()];
+            int[] size = new int[1];
+            table.forEach((id, result) -> entries[size[0]++] = pack(result, id));
+            return entries;
+        }
+    }
+
+    private static long footprintBytes(Map<Integer, IntIntHashTable> tables) {
+        long bytes = 0;
+        for (IntIntHashTable table : tables.values()) {
+            synchronized (table) {
+                bytes += table.slotBytes() + TABLE_OVERHEAD_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private static long pack(int result, int id) {
+        return ((long) result << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private static int resultOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int idOf(long packed) {
+        return (int) packed;
+    }
+}
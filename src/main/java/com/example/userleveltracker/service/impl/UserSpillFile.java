@@ -0,0 +1,213 @@
+package com.example.userleveltracker.service.impl;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.ResultConsumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Segment file holding the results of the users evicted from the memory of an
+ * {@link InMemoryDataStorageService}.
+ *
+ * <p>The results of a user are appended as one block: the user ID, the number of results and a pair of
+ * level ID and result per result, all as {@code int} values. The file is memory-mapped, so a block is
+ * written and read with plain memory accesses and the operating system pages it in and out. Only the
+ * offset of every block is kept on the heap.</p>
+ *
+ * <p>A block is dead once its user is loaded back. When the dead blocks take more than half of the file,
+ * the live blocks are copied to the start of the file. The file is scratch space, not persistence: it is
+ * truncated when opened.</p>
+ *
+ * <p>Writes, loads, walks and compactions are performed under the monitor of the file.</p>
+ */
+public class UserSpillFile implements AutoCloseable {
+    private static final String FILE_NAME = "users.spill";
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int COMPACTION_MIN_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final Map<Integer, Integer> offsets = new ConcurrentHashMap<>();
+    private MappedByteBuffer mapped;
+    private int end;
+    private int deadBytes;
+
+    /**
+     * Creates an empty spill file in the directory.
+     *
+     * @param directory the directory of the file, created if missing
+     * @throws UncheckedIOException if the file cannot be created
+     */
+    public UserSpillFile(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve(FILE_NAME), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the spill file in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends the results of a user.
+     *
+     * @param userId  the ID of the user
+     * @param results the results of the user
+     * @throws IllegalStateException if the file would grow past 2 GiB
+     */
+    public synchronized void write(int userId, Collection<UserInfo> results) {
+        int blockBytes = (2 + 2 * results.size()) * Integer.BYTES;
+        ensureCapacity((long) end + blockBytes);
+
+        int offset = end;
+        mapped.putInt(offset, userId);
+        mapped.putInt(offset + Integer.BYTES, results.size());
+        int position = offset + 2 * Integer.BYTES;
+        for (UserInfo info : results) {
+            mapped.putInt(position, info.getLevelId());
+            mapped.putInt(position + Integer.BYTES, info.getResult());
+            position += 2 * Integer.BYTES;
+        }
+        end = position;
+
+        Integer previous = offsets.put(userId, offset);
+        if (previous != null) {
+            deadBytes += blockBytes(previous);
+        }
+    }
+
+    /**
+     * Checks whether the results of a user are in the file.
+     *
+     * @param userId the ID of the user
+     * @return {@code true} if the user is spilled
+     */
+    public boolean contains(int userId) {
+        return offsets.containsKey(userId);
+    }
+
+    /**
+     * Reads the results of a user and removes them from the file.
+     *
+     * @param userId the ID of the user
+     * @return the results of the user, or {@code null} if the user is not spilled
+     */
+    public synchronized List<UserInfo> load(int userId) {
+        Integer offset = offsets.remove(userId);
+        if (offset == null) {
+            return null;
+        }
+
+        int count = mapped.getInt(offset + Integer.BYTES);
+        List<UserInfo> results = new ArrayList<>(count);
+        int position = offset + 2 * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            results.add(UserInfo.builder()
+                    .userId(userId)
+                    .levelId(mapped.getInt(position))
+                    .result(mapped.getInt(position + Integer.BYTES)).build());
+            position += 2 * Integer.BYTES;
+        }
+
+        deadBytes += blockBytes(offset);
+        if (deadBytes > COMPACTION_MIN_BYTES && deadBytes > end / 2) {
+            compact();
+        }
+        return results;
+    }
+
+    /**
+     * Performs the action for every result in the file, without loading the users back.
+     *
+     * @param action the action to perform for each result
+     */
+    public synchronized void forEachResult(ResultConsumer action) {
+        for (Map.Entry<Integer, Integer> block : offsets.entrySet()) {
+            int userId = block.getKey();
+            int offset = block.getValue();
+            int count = mapped.getInt(offset + Integer.BYTES);
+            int position = offset + 2 * Integer.BYTES;
+            for (int i = 0; i < count; i++) {
+                action.accept(userId, mapped.getInt(position), mapped.getInt(position + Integer.BYTES));
+                position += 2 * Integer.BYTES;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of users in the file.
+     *
+     * @return the number of spilled users
+     */
+    public int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Returns the bytes taken by the blocks of the file, including the dead ones.
+     *
+     * @return the used size of the file in bytes
+     */
+    public synchronized long usedBytes() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int blockBytes(int offset) {
+        return (2 + 2 * mapped.getInt(offset + Integer.BYTES)) * Integer.BYTES;
+    }
+
+    /**
+     * Moves the live blocks to the start of the file, in the order of their offsets.
+     */
+    private void compact() {
+        List<Map.Entry<Integer, Integer>> live = new ArrayList<>(offsets.entrySet());
+        live.sort(Map.Entry.comparingByValue());
+
+        int position = 0;
+        for (Map.Entry<Integer, Integer> block : live) {
+            int offset = block.getValue();
+            int bytes = blockBytes(offset);
+            if (offset != position) {
+                for (int i = 0; i < bytes; i += Integer.BYTES) {
+                    mapped.putInt(position + i, mapped.getInt(offset + i));
+                }
+                offsets.put(block.getKey(), position);
+            }
+            position += bytes;
+        }
+        end = position;
+        deadBytes = 0;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= mapped.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The spill file is full");
+        }
+
+        long capacity = Math.min(Math.max((long) mapped.capacity() * 2, required), Integer.MAX_VALUE);
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow the spill file", e);
+        }
+    }
+}
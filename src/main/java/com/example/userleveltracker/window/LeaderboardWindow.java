@@ -0,0 +1,70 @@
+package com.example.userleveltracker.window;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+
+import java.time.Instant;
+
+/**
+ * Time window of a {@link WindowedLeaderboards} competition. Windows are aligned to UTC: a daily window
+ * starts at midnight and a weekly window starts on Monday at midnight.
+ */
+public enum LeaderboardWindow {
+    DAILY(1, 0),
+    /**
+     * Weeks start on the Monday 3 days before the epoch, a Thursday.
+     */
+    WEEKLY(7, 3);
+
+    /**
+     * The name of the window holding the best results of all time, which are kept by the storage itself.
+     */
+    public static final String ALL_TIME = "all-time";
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final int days;
+    private final int epochOffsetDays;
+
+    LeaderboardWindow(int days, int epochOffsetDays) {
+        this.days = days;
+        this.epochOffsetDays = epochOffsetDays;
+    }
+
+    /**
+     * Returns the sequence number of the window holding the given instant. Consecutive windows have
+     * consecutive numbers.
+     *
+     * @param instant the instant
+     * @return the number of the window since the epoch
+     */
+    public long indexOf(Instant instant) {
+        long epochDay = Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_DAY);
+        return Math.floorDiv(epochDay + epochOffsetDays, days);
+    }
+
+    /**
+     * Returns the start of the window with the given sequence number.
+     *
+     * @param index the number of the window since the epoch
+     * @return the first instant of the window
+     */
+    public Instant startOf(long index) {
+        return Instant.ofEpochSecond((index * days - epochOffsetDays) * SECONDS_PER_DAY);
+    }
+
+    /**
+     * Returns the window with the given name, ignoring case.
+     *
+     * @param name the name of the window
+     * @return the window with the name
+     * @throws DataProcessingException if there is no window with the name
+     */
+    public static LeaderboardWindow of(String name) {
+        for (LeaderboardWindow window : values()) {
+            if (window.name().equalsIgnoreCase(name)) {
+                return window;
+            }
+        }
+        throw new DataProcessingException("Window must be one of: daily, weekly, all-time");
+    }
+}
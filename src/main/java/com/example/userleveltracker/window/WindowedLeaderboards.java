@@ -0,0 +1,158 @@
+package com.example.userleveltracker.window;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.SubmissionListener;
+import com.example.userleveltracker.service.impl.Leaderboard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Daily and weekly level leaderboards, enabled with {@code leaderboard.windows.enabled=true}.
+ *
+ * <p>Every submitted result, including one below the user's best of all time, is offered to the level's
+ * {@link Leaderboard} of the current window of every {@link LeaderboardWindow}. The leaderboards of a window
+ * are held in a bucket, and the buckets of a window kind are kept in a ring of
+ * {@code leaderboard.windows.retained} slots indexed by the window number. The first submission of a new
+ * window replaces the bucket of the oldest window in its slot, so an expired window is dropped in
+ * {@code O(1)} without scanning its entries, and the memory is bounded by the retained windows.</p>
+ *
+ * <p>A bucket is replaced with a compare-and-set, so concurrent first submissions of a window create it
+ * once. A submission that read the clock just before the window changed is applied to the previous window,
+ * to which it belongs.</p>
+ *
+ * <p>Only live submissions accepted by the storage are ranked. The write-ahead log is called before the
+ * windows, so a submission it rejects is not ranked. The results recovered from the write-ahead log on
+ * startup or imported by a bulk load are stored with {@link DataStorageService#loadResults}, which does not
+ * notify submission listeners, so they never enter the window of the time they are replayed in. The storage must be
+ * {@link DataStorageService#isLocal() local}, since a node of a cluster is not notified of the submissions to
+ * the levels it does not own.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "leaderboard.windows.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class WindowedLeaderboards implements SubmissionListener {
+    private static final Comparator<UserInfo> LEVEL_ORDER = Comparator.comparingInt(UserInfo::getResult)
+            .thenComparingInt(UserInfo::getUserId).reversed();
+
+    private final DataStorageService dataStore;
+
+    @Value("${leaderboard.windows.retained}")
+    private int retained;
+    @Value("${api.user.top.results.limit}")
+    private int resultsLimit;
+    @Value("${api.user.top.results.max-limit}")
+    private int maxResultsLimit;
+
+    private final Map<LeaderboardWindow, AtomicReferenceArray<Bucket>> rings = new EnumMap<>(LeaderboardWindow.class);
+    private Clock clock = Clock.systemUTC();
+
+    @PostConstruct
+    public void init() {
+        if (!dataStore.isLocal()) {
+            throw new IllegalStateException("The windowed leaderboards are not supported in clustered mode");
+        }
+        for (LeaderboardWindow window : LeaderboardWindow.values()) {
+            rings.put(window, new AtomicReferenceArray<>(retained));
+        }
+        dataStore.addSubmissionListener(this);
+    }
+
+    @Override
+    public void onResultSubmitted(int userId, int levelId, int result) {
+        UserInfo info = UserInfo.builder().userId(userId).levelId(levelId).result(result).build();
+        Instant now = clock.instant();
+        for (LeaderboardWindow window : LeaderboardWindow.values()) {
+            Bucket bucket = currentBucket(window, window.indexOf(now));
+            if (bucket != null) {
+                bucket.levels.computeIfAbsent(levelId, k -> new Leaderboard(LEVEL_ORDER, UserInfo::getUserId))
+                        .offer(info);
+            }
+        }
+    }
+
+    /**
+     * Retrieves up to {@code limit} users and their best results for a specific level in a window, ranked
+     * after the given result, in descending order of result and user ID.
+     *
+     * @param window  the window kind
+     * @param offset  the number of windows back from the current one, {@code 0} for the current window
+     * @param levelId the ID of the level
+     * @param after   the last result of the previous page, or {@code null} for the first page
+     * @param limit   the maximum number of results to return, {@code null} for the configured default;
+     *                capped by the {@code api.user.top.results.max-limit} property
+     * @return a list of {@link UserInfo} objects representing the top users of the level in the window
+     * @throws DataProcessingException if the offset is outside the retained windows or no results are found
+     *                                 for the specified level ID in the window
+     */
+    public List<UserInfo> getLevelInfo(LeaderboardWindow window, int offset, int levelId, UserInfo after,
+                                       Integer limit) {
+        if (offset < 0 || offset >= retained) {
+            throw new DataProcessingException("Offset must be between 0 and " + (retained - 1));
+        }
+        if (limit != null && limit < 1) {
+            throw new DataProcessingException("Limit must be greater than or equal to 1");
+        }
+
+        long index = window.indexOf(clock.instant()) - offset;
+        Bucket bucket = rings.get(window).get(slotOf(index));
+        Leaderboard leaderboard = bucket == null || bucket.index != index ? null : bucket.levels.get(levelId);
+
+        if (leaderboard == null || leaderboard.isEmpty()) {
+            throw new DataProcessingException("Oops! There are no results for the specified level ID: " + levelId
+                    + " in the " + window.name().toLowerCase() + " window");
+        }
+
+        int pageSize = limit == null ? resultsLimit : Math.min(limit, maxResultsLimit);
+        return after == null ? leaderboard.top(pageSize) : leaderboard.after(after, pageSize);
+    }
+
+    private Bucket currentBucket(LeaderboardWindow window, long index) {
+        AtomicReferenceArray<Bucket> ring = rings.get(window);
+        int slot = slotOf(index);
+
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index == index) {
+                return bucket;
+            }
+            if (bucket != null && bucket.index > index) {
+                // the window of the submission has already been dropped
+                return null;
+            }
+            Bucket created = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, created)) {
+                return created;
+            }
+        }
+    }
+
+    private int slotOf(long index) {
+        return (int) Math.floorMod(index, (long) retained);
+    }
+
+    /**
+     * Level leaderboards of one window.
+     */
+    private static final class Bucket {
+        private final long index;
+        private final Map<Integer, Leaderboard> levels = new ConcurrentHashMap<>();
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+    }
+}
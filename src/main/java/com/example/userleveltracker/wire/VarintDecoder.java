@@ -0,0 +1,70 @@
+package com.example.userleveltracker.wire;
+
+/**
+ * Decoder of the varints written by a {@link VarintEncoder}.
+ */
+public class VarintDecoder {
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    /**
+     * Creates a decoder of a message.
+     *
+     * @param bytes  the buffer holding the message
+     * @param length the length of the message, from the start of the buffer
+     */
+    public VarintDecoder(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.end = length;
+    }
+
+    /**
+     * Checks whether any bytes of the message are left.
+     *
+     * @return {@code true} if the message has more values
+     */
+    public boolean hasRemaining() {
+        return position < end;
+    }
+
+    /**
+     * Reads an {@code int} value.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the message ends within the value or the value takes more than
+     *                                  32 bits
+     */
+    public int readInt() {
+        long value = readUnsigned(5);
+        if (value > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Varint at byte " + position + " does not fit in 32 bits");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a {@code long} value.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the message ends within the value or the value is too long
+     */
+    public long readLong() {
+        return readUnsigned(10);
+    }
+
+    private long readUnsigned(int maxBytes) {
+        long value = 0;
+        for (int i = 0; i < maxBytes; i++) {
+            if (position >= end) {
+                throw new IllegalArgumentException("Message ends within a varint at byte " + position);
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint at byte " + position + " is longer than " + maxBytes + " bytes");
+    }
+}
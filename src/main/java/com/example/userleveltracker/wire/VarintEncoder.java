@@ -0,0 +1,132 @@
+package com.example.userleveltracker.wire;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.ResultConsumer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoder of the records of the {@link WireFormat#VARINT_RECORDS} format into a reusable buffer.
+ *
+ * <p>Every value is written as an unsigned LEB128 varint: seven bits per byte, least significant group
+ * first, with the high bit set on every byte but the last. An {@code int} is encoded as its unsigned
+ * 32-bit value, so the IDs and results below 128 take one byte and any value takes at most five. A record
+ * is the user ID, the level ID and the result, written one after the other.</p>
+ *
+ * <p>The encoder is a {@link ResultConsumer}, so the results walked by a storage engine are encoded as
+ * they are visited. Once the buffer has grown to the size of the largest message, encoding allocates
+ * nothing. An encoder is not thread-safe; it is meant to be reused by one thread at a time.</p>
+ */
+public class VarintEncoder implements ResultConsumer {
+    private static final int MAX_RECORD_BYTES = 15;
+
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param initialCapacity the initial size of the buffer in bytes
+     */
+    public VarintEncoder(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Discards the encoded bytes, keeping the buffer.
+     *
+     * @return this encoder
+     */
+    public VarintEncoder reset() {
+        position = 0;
+        return this;
+    }
+
+    @Override
+    public void accept(int userId, int levelId, int result) {
+        ensureCapacity(MAX_RECORD_BYTES);
+        putUnsigned(userId & 0xFFFFFFFFL);
+        putUnsigned(levelId & 0xFFFFFFFFL);
+        putUnsigned(result & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Encodes the records of a list of results.
+     *
+     * @param records the results
+     * @return this encoder
+     */
+    public VarintEncoder putRecords(List<UserInfo> records) {
+        for (int i = 0, size = records.size(); i < size; i++) {
+            UserInfo record = records.get(i);
+            accept(record.getUserId(), record.getLevelId(), record.getResult());
+        }
+        return this;
+    }
+
+    /**
+     * Encodes a non-negative {@code long} value.
+     *
+     * @param value the value
+     * @return this encoder
+     */
+    public VarintEncoder putLong(long value) {
+        ensureCapacity(10);
+        putUnsigned(value);
+        return this;
+    }
+
+    /**
+     * Returns the number of encoded bytes.
+     *
+     * @return the size of the message
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Returns the size of the buffer, which is kept by {@link #reset()}.
+     *
+     * @return the size of the buffer in bytes
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns a copy of the encoded bytes.
+     *
+     * @return the message
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes the encoded bytes to the stream with a single write.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, position);
+    }
+
+    private void putUnsigned(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.userleveltracker.wire;
+
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserInfoRq;
+import com.example.userleveltracker.model.UserRank;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads and writes the bodies of the {@link WireFormat#VARINT_RECORDS} format.
+ *
+ * <p>A {@link UserInfoRq} is read from a body of exactly one record and a {@code List<UserInfoRq>} from a
+ * body of any number of records, of at most {@code maxBodyBytes} bytes. A list of {@link UserInfo} objects
+ * and a {@link UserRank} are written; a list declared with another element type is left to the other
+ * converters, and the records of a list whose element type is not declared are checked as they are
+ * written.</p>
+ *
+ * <p>The bodies are encoded by {@link VarintEncoder}s taken from a shared pool and returned after the write,
+ * so a response costs one write to the stream and no allocation beyond the results themselves, whether the
+ * requests run on pooled or on virtual threads. An encoder whose buffer grew beyond
+ * {@value #MAX_RETAINED_BUFFER_BYTES} bytes for a large response is dropped instead of being returned, so
+ * the pool holds at most {@value #MAX_IDLE_ENCODERS} such buffers.</p>
+ */
+public class VarintRecordsHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private static final int INITIAL_BUFFER_BYTES = 4096;
+    private static final int MAX_RETAINED_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_IDLE_ENCODERS = 64;
+
+    private final BlockingQueue<VarintEncoder> idleEncoders = new ArrayBlockingQueue<>(MAX_IDLE_ENCODERS);
+    private final int maxBodyBytes;
+
+    /**
+     * Creates the converter.
+     *
+     * @param maxBodyBytes the maximum size of a body to read, in bytes
+     */
+    public VarintRecordsHttpMessageConverter(int maxBodyBytes) {
+        super(WireFormat.VARINT_RECORDS);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return UserInfoRq.class == clazz || UserRank.class == clazz || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == UserInfoRq.class || isListOf(type, UserInfoRq.class)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (UserRank.class == clazz || List.class.isAssignableFrom(clazz) && mayHoldUserInfo(type))
+                && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(type == UserInfoRq.class ? UserInfoRq.class : List.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        if (inputMessage.getHeaders().getContentLength() > maxBodyBytes) {
+            throw tooLarge(inputMessage);
+        }
+        byte[] body = inputMessage.getBody().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            throw tooLarge(inputMessage);
+        }
+        VarintDecoder decoder = new VarintDecoder(body, body.length);
+        try {
+            if (clazz == UserInfoRq.class) {
+                UserInfoRq record = readRecord(decoder);
+                if (decoder.hasRemaining()) {
+                    throw new IllegalArgumentException("Body holds more than one record");
+                }
+                return record;
+            }
+
+            List<UserInfoRq> records = new ArrayList<>();
+            while (decoder.hasRemaining()) {
+                records.add(readRecord(decoder));
+            }
+            return records;
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed varint records: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        VarintEncoder encoder = idleEncoders.poll();
+        if (encoder == null) {
+            encoder = new VarintEncoder(INITIAL_BUFFER_BYTES);
+        }
+        try {
+            encode(body, encoder);
+            encoder.writeTo(outputMessage.getBody());
+        } finally {
+            if (encoder.capacity() <= MAX_RETAINED_BUFFER_BYTES) {
+                idleEncoders.offer(encoder.reset());
+            }
+        }
+    }
+
+    private static void encode(Object body, VarintEncoder encoder) {
+        if (body instanceof UserRank) {
+            UserRank rank = (UserRank) body;
+            encoder.accept(rank.getUserId(), rank.getLevelId(), rank.getResult());
+            encoder.putLong(rank.getRank()).putLong(rank.getTotal());
+            encoder.putLong(rank.getAbove().size()).putRecords(rank.getAbove());
+            encoder.putLong(rank.getBelow().size()).putRecords(rank.getBelow());
+        } else {
+            for (Object record : (List<?>) body) {
+                if (!(record instanceof UserInfo)) {
+                    throw new HttpMessageNotWritableException("Only UserInfo records can be written as "
+                            + WireFormat.VARINT_RECORDS_VALUE);
+                }
+            }
+            @SuppressWarnings("unchecked")
+            List<UserInfo> records = (List<UserInfo>) body;
+            encoder.putRecords(records);
+        }
+    }
+
+    private HttpMessageNotReadableException tooLarge(HttpInputMessage inputMessage) {
+        return new HttpMessageNotReadableException("Varint records body is larger than " + maxBodyBytes + " bytes",
+                inputMessage);
+    }
+
+    private static UserInfoRq readRecord(VarintDecoder decoder) {
+        return UserInfoRq.builder()
+                .userId(decoder.readInt())
+                .levelId(decoder.readInt())
+                .result(decoder.readInt()).build();
+    }
+
+    /**
+     * Tells whether a list type is declared with the {@link UserInfo} element type, or with none at all, as
+     * the body of a {@code ResponseEntity<?>}.
+     */
+    private static boolean mayHoldUserInfo(Type type) {
+        Class<?> element = ResolvableType.forType(type).asCollection().getGeneric(0).resolve();
+        return element == null || element == Object.class || element == UserInfo.class;
+    }
+
+    private static boolean isListOf(Type type, Class<?> elementClass) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        return parameterized.getRawType() == List.class
+                && parameterized.getActualTypeArguments()[0] == elementClass;
+    }
+}
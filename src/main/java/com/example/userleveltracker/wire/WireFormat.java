@@ -0,0 +1,21 @@
+package com.example.userleveltracker.wire;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Media types of the compact binary format of the requests and responses, negotiated with the
+ * {@code Content-Type} and {@code Accept} headers.
+ *
+ * <p>A message of the {@link #VARINT_RECORDS} format is a sequence of records of three varints each,
+ * the user ID, the level ID and the result, with no header and no separators: the message ends with the
+ * body. A {@code UserRank} is the record of the user followed by the rank and the total as varints, and by
+ * the users above and below, each list prefixed with its size. The percentile is not sent, since it is
+ * derived from the rank and the total.</p>
+ */
+public final class WireFormat {
+    public static final String VARINT_RECORDS_VALUE = "application/x-varint-records";
+    public static final MediaType VARINT_RECORDS = MediaType.parseMediaType(VARINT_RECORDS_VALUE);
+
+    private WireFormat() {
+    }
+}
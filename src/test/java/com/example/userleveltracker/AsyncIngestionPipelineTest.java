@@ -0,0 +1,152 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.IngestionQueueFullException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.ingestion.AsyncIngestionPipeline;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncIngestionPipelineTest {
+    private final CountDownLatch writerReleased = new CountDownLatch(1);
+    private AsyncIngestionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writerReleased.countDown();
+        pipeline.stop();
+    }
+
+    @Test
+    @DisplayName("givenRepeatedSubmissions_whenApplied_thenCoalescedToHighestResult")
+    public void testSubmit_repeatedSubmissions_coalescedToHighestResult() throws Exception {
+        InMemoryDataStorageService dataStore = newDataStore(true);
+        pipeline = newPipeline(dataStore, 2, 1_000);
+
+        for (int result = 0; result < 500; result++) {
+            pipeline.submit(1, 1, result % 100);
+            pipeline.submit(2, 2, result);
+        }
+        writerReleased.countDown();
+        pipeline.submitTracked(1, 1, 7).get(10, TimeUnit.SECONDS);
+        pipeline.submitTracked(2, 2, 7).get(10, TimeUnit.SECONDS);
+
+        assertEquals(99, dataStore.getLevelInfo(1).get(0).getResult());
+        assertEquals(499, dataStore.getUserInfo(2).get(0).getResult());
+        assertEquals(pipeline.getStats().getSubmitted(), pipeline.getStats().getApplied());
+        assertTrue(pipeline.getStats().getWritten() < pipeline.getStats().getApplied());
+    }
+
+    @Test
+    @DisplayName("givenFullQueue_whenSubmit_thenRejected")
+    public void testSubmit_fullQueue_rejected() {
+        pipeline = newPipeline(newDataStore(true), 1, 2);
+
+        assertThrows(IngestionQueueFullException.class, () -> {
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit(1, 1, i);
+            }
+        });
+        assertTrue(pipeline.getStats().getRejected() > 0);
+    }
+
+    @Test
+    @DisplayName("givenStoppedPipeline_whenSubmit_thenRejectedAndQueuedResultsApplied")
+    public void testSubmit_stoppedPipeline_rejectedAndQueuedResultsApplied() throws Exception {
+        InMemoryDataStorageService dataStore = newDataStore(true);
+        pipeline = newPipeline(dataStore, 1, 1_000);
+        CompletableFuture<Void> queued = pipeline.submitTracked(1, 1, 10);
+
+        Thread stopper = new Thread(() -> {
+            try {
+                pipeline.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        while (!Boolean.FALSE.equals(ReflectionTestUtils.getField(pipeline, "running"))) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(StorageUnavailableException.class, () -> pipeline.submit(2, 1, 20));
+        writerReleased.countDown();
+        stopper.join(10_000);
+        queued.get(10, TimeUnit.SECONDS);
+        assertEquals(10, dataStore.getLevelInfo(1).get(0).getResult());
+        assertEquals(1, dataStore.getLevelInfo(1).size());
+    }
+
+    @Test
+    @DisplayName("givenWriterError_whenSubmitTracked_thenFuturesFailedAndLaterSubmissionsRejected")
+    public void testSubmitTracked_writerError_futuresFailedAndLaterSubmissionsRejected() throws Exception {
+        CountDownLatch writerFailed = new CountDownLatch(1);
+        InMemoryDataStorageService dataStore = new InMemoryDataStorageService() {
+            @Override
+            public void setInfoBatch(List<UserInfo> records) {
+                try {
+                    writerReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writerFailed.countDown();
+                throw new OutOfMemoryError("test");
+            }
+        };
+        pipeline = newPipeline(dataStore, 1, 1_000);
+        CompletableFuture<Void> applying = pipeline.submitTracked(1, 1, 10);
+        Thread.sleep(200);
+        CompletableFuture<Void> queued = pipeline.submitTracked(2, 1, 20);
+
+        writerReleased.countDown();
+        writerFailed.await(10, TimeUnit.SECONDS);
+
+        ExecutionException applyingFailure = assertThrows(ExecutionException.class,
+                () -> applying.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, applyingFailure.getCause());
+        ExecutionException queuedFailure = assertThrows(ExecutionException.class,
+                () -> queued.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(StorageUnavailableException.class, queuedFailure.getCause());
+        assertThrows(StorageUnavailableException.class, () -> pipeline.submit(3, 1, 30));
+    }
+
+    private InMemoryDataStorageService newDataStore(boolean blockWriter) {
+        InMemoryDataStorageService dataStore = new InMemoryDataStorageService() {
+            @Override
+            public void setInfoBatch(List<UserInfo> records) {
+                if (blockWriter) {
+                    try {
+                        writerReleased.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.setInfoBatch(records);
+            }
+        };
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 20);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 20);
+        return dataStore;
+    }
+
+    private static AsyncIngestionPipeline newPipeline(InMemoryDataStorageService dataStore, int shards,
+                                                      int queueCapacity) {
+        AsyncIngestionPipeline pipeline = new AsyncIngestionPipeline(dataStore);
+        ReflectionTestUtils.setField(pipeline, "shardCount", shards);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(pipeline, "maxBatch", 64);
+        pipeline.start();
+        return pipeline;
+    }
+}
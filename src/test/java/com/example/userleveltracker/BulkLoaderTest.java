@@ -0,0 +1,169 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.bulkload.BulkLoadFormat;
+import com.example.userleveltracker.bulkload.BulkLoader;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.export.ExportFormat;
+import com.example.userleveltracker.export.ResultExporter;
+import com.example.userleveltracker.model.BulkLoadResult;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.persistence.WriteAheadLog;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkLoaderTest {
+    private static final int RESULTS_LIMIT = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("givenCsvFileOfManyChunks_whenLoaded_thenSameResultsAsSetInfo")
+    public void testLoad_csvFileOfManyChunks_sameResultsAsSetInfo() throws IOException {
+        InMemoryDataStorageService reference = limited(new InMemoryDataStorageService());
+        Random random = new Random(42);
+        Path file = directory.resolve("results.csv");
+        int records = 300_000;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("user_id,level_id,result\n");
+            for (int i = 0; i < records; i++) {
+                int userId = random.nextInt(5_000) + 1;
+                int levelId = random.nextInt(200) + 1;
+                int result = random.nextInt(1_000_000);
+                reference.setInfo(userId, levelId, result);
+                writer.write(userId + "," + levelId + "," + result + (i % 3 == 0 ? "\r\n" : "\n"));
+            }
+        }
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService());
+
+        BulkLoadResult result = loaderOf(dataStore).load(file, BulkLoadFormat.CSV);
+
+        assertTrue(Files.size(file) > 4 * 1024 * 1024);
+        assertEquals(records, result.getRecords());
+        assertEquals(0, result.getRejected());
+        assertEquals(reference.getStorageStats().getEntries(), result.getStored());
+        assertSameResults(reference, dataStore);
+    }
+
+    @Test
+    @DisplayName("givenBinaryExport_whenLoaded_thenSameResultsAsExportedStore")
+    public void testLoad_binaryExport_sameResultsAsExportedStore() throws IOException {
+        InMemoryDataStorageService reference = limited(new InMemoryDataStorageService());
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            reference.setInfo(random.nextInt(1_000) + 1, random.nextInt(100) + 1, random.nextInt(1_000));
+        }
+        Path file = directory.resolve("results.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new ResultExporter(reference).exportAll(ExportFormat.BINARY, out);
+        }
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService());
+
+        BulkLoadResult result = loaderOf(dataStore).loadFromDirectory("results.bin", BulkLoadFormat.BINARY);
+
+        assertEquals(reference.getStorageStats().getEntries(), result.getRecords());
+        assertEquals(result.getRecords(), result.getStored());
+        assertSameResults(reference, dataStore);
+    }
+
+    @Test
+    @DisplayName("givenInvalidLinesAndPaths_whenLoaded_thenLinesRejectedAndPathsRefused")
+    public void testLoad_invalidLinesAndPaths_linesRejectedAndPathsRefused() throws IOException {
+        Files.writeString(directory.resolve("mixed.csv"), "1,1,10\n\n2,1,-5\n3,x,7\n 4 , 1 , 20 \n5,1\n1,1,30");
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService());
+        BulkLoader loader = loaderOf(dataStore);
+
+        BulkLoadResult result = loader.loadFromDirectory("mixed.csv", BulkLoadFormat.CSV);
+
+        assertEquals(3, result.getRecords());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of("1/30", "4/20"), dataStore.getLevelInfo(1).stream()
+                .map(info -> info.getUserId() + "/" + info.getResult())
+                .collect(Collectors.toList()));
+        assertThrows(DataProcessingException.class, () -> loader.loadFromDirectory("../mixed.csv", BulkLoadFormat.CSV));
+        assertThrows(DataProcessingException.class, () -> loader.loadFromDirectory("missing.csv", BulkLoadFormat.CSV));
+        assertThrows(DataProcessingException.class, () -> loader.loadFromDirectory("mixed.csv", BulkLoadFormat.BINARY));
+    }
+
+    @Test
+    @DisplayName("givenStoredResultsAndListener_whenLoaded_thenImprovementsCountedAndListenerToldOnce")
+    public void testLoad_storedResultsAndListener_improvementsCountedAndListenerToldOnce() throws IOException {
+        Files.writeString(directory.resolve("results.csv"), "1,1,10\n2,1,50\n3,1,30\n1,2,5\n");
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService());
+        dataStore.setInfo(1, 1, 20);
+        dataStore.setInfo(2, 1, 40);
+        AtomicInteger improved = new AtomicInteger();
+        AtomicInteger loaded = new AtomicInteger();
+        dataStore.addResultListener(new ResultListener() {
+            @Override
+            public void onResultImproved(int userId, int levelId, int previousResult, int result) {
+                improved.incrementAndGet();
+            }
+
+            @Override
+            public void onResultsLoaded() {
+                loaded.incrementAndGet();
+            }
+        });
+
+        BulkLoadResult result = loaderOf(dataStore).loadFromDirectory("results.csv", BulkLoadFormat.CSV);
+
+        assertEquals(4, result.getRecords());
+        assertEquals(3, result.getStored());
+        assertEquals(0, improved.get());
+        assertEquals(1, loaded.get());
+        assertEquals(20, dataStore.getLevelRank(1, 1, 0).getResult());
+        assertEquals(50, dataStore.getLevelRank(1, 2, 0).getResult());
+    }
+
+    private BulkLoader loaderOf(DataStorageService dataStore) {
+        BulkLoader loader = new BulkLoader(dataStore,
+                new StaticListableBeanFactory().getBeanProvider(WriteAheadLog.class));
+        ReflectionTestUtils.setField(loader, "directory", directory.toString());
+        ReflectionTestUtils.setField(loader, "parallelism", 4);
+        return loader;
+    }
+
+    private static void assertSameResults(DataStorageService expected, DataStorageService actual) {
+        expected.forEachResult((userId, levelId, result) -> {
+            assertEquals(result, actual.getLevelRank(levelId, userId, 0).getResult());
+        });
+        for (int levelId = 1; levelId <= 100; levelId++) {
+            assertEquals(describe(expected.getLevelInfo(levelId)), describe(actual.getLevelInfo(levelId)));
+        }
+        for (int userId = 1; userId <= 1_000; userId++) {
+            assertEquals(describe(expected.getUserInfo(userId)), describe(actual.getUserInfo(userId)));
+        }
+        assertEquals(expected.getStorageStats().getEntries(), actual.getStorageStats().getEntries());
+    }
+
+    private static <T> T limited(T dataStore) {
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", RESULTS_LIMIT);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", RESULTS_LIMIT);
+        return dataStore;
+    }
+
+    private static List<String> describe(List<UserInfo> userInfo) {
+        return userInfo.stream()
+                .map(info -> info.getUserId() + "/" + info.getLevelId() + "/" + info.getResult())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.cluster.ClusterServer;
+import com.example.userleveltracker.cluster.ClusteredDataStorageService;
+import com.example.userleveltracker.exception.ClusterNodeUnavailableException;
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusteredDataStorageServiceTest {
+    private static final int NODES = 3;
+    private static final int RESULTS_LIMIT = 20;
+
+    private final InMemoryDataStorageService[] engines = new InMemoryDataStorageService[NODES];
+    private final ClusterServer[] servers = new ClusterServer[NODES];
+    private final ClusteredDataStorageService[] nodes = new ClusteredDataStorageService[NODES];
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            engines[i] = limited(new InMemoryDataStorageService());
+            servers[i] = new ClusterServer(engines[i], 0, 16);
+            servers[i].start();
+            addresses.add(new InetSocketAddress("localhost", servers[i].getPort()));
+        }
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = limited(new ClusteredDataStorageService(engines[i], addresses, i, 128, 4, 2000));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (int i = 0; i < NODES; i++) {
+            nodes[i].close();
+            servers[i].close();
+        }
+    }
+
+    @Test
+    @DisplayName("givenResultsWrittenThroughOneNode_whenReadThroughAnyNode_thenStoredByLevelOwnerOnly")
+    public void testSetInfo_writtenThroughOneNode_storedByLevelOwnerOnly() {
+        Set<Integer> owners = new HashSet<>();
+        for (int levelId = 1; levelId <= 30; levelId++) {
+            nodes[0].setInfo(1, levelId, levelId * 10);
+            nodes[1].setInfo(2, levelId, levelId * 5);
+        }
+
+        for (int levelId = 1; levelId <= 30; levelId++) {
+            int owner = nodes[0].ownerOf(levelId);
+            owners.add(owner);
+            for (int i = 0; i < NODES; i++) {
+                assertEquals(owner, nodes[i].ownerOf(levelId));
+                assertEquals(List.of("1/" + levelId + "/" + levelId * 10, "2/" + levelId + "/" + levelId * 5),
+                        describe(nodes[i].getLevelInfo(levelId)));
+                if (i == owner) {
+                    assertEquals(2, engines[i].getLevelInfo(levelId).size());
+                } else {
+                    InMemoryDataStorageService engine = engines[i];
+                    int missingLevelId = levelId;
+                    assertThrows(DataProcessingException.class, () -> engine.getLevelInfo(missingLevelId));
+                }
+            }
+        }
+        assertEquals(NODES, owners.size());
+    }
+
+    @Test
+    @DisplayName("givenUserResultsOnAllNodes_whenGetUserInfo_thenMergedTopResultsAndPages")
+    public void testGetUserInfo_resultsOnAllNodes_mergedTopResultsAndPages() {
+        InMemoryDataStorageService reference = limited(new InMemoryDataStorageService());
+        Random random = new Random(42);
+        List<UserInfo> batch = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            UserInfo record = UserInfo.builder()
+                    .userId(random.nextInt(20) + 1)
+                    .levelId(random.nextInt(100) + 1)
+                    .result(random.nextInt(1_000)).build();
+            batch.add(record);
+            reference.setInfo(record.getUserId(), record.getLevelId(), record.getResult());
+        }
+        nodes[2].setInfoBatch(batch);
+
+        for (int userId = 1; userId <= 20; userId++) {
+            assertEquals(describe(reference.getUserInfo(userId)), describe(nodes[userId % NODES].getUserInfo(userId)));
+        }
+        UserInfo cursor = null;
+        List<UserInfo> page;
+        do {
+            page = reference.getUserInfo(7, cursor, 6);
+            assertEquals(describe(page), describe(nodes[1].getUserInfo(7, cursor, 6)));
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (cursor != null);
+        assertEquals(reference.getLevelRank(42, 3, 2).getRank(), nodes[0].getLevelRank(42, 3, 2).getRank());
+    }
+
+    @Test
+    @DisplayName("givenMissingData_whenReadThroughCluster_thenSameErrorsAsLocalEngine")
+    public void testGetInfo_missingData_sameErrorsAsLocalEngine() {
+        nodes[0].setInfo(1, 1, 10);
+        int remote = (nodes[0].ownerOf(2) + 1) % NODES;
+
+        DataProcessingException level = assertThrows(DataProcessingException.class,
+                () -> nodes[remote].getLevelInfo(2));
+        assertEquals("Oops! There are no results for the specified level ID: 2", level.getMessage());
+        DataProcessingException user = assertThrows(DataProcessingException.class,
+                () -> nodes[0].getUserInfo(99));
+        assertEquals("Oops! There are no results for the specified user ID: 99", user.getMessage());
+        assertThrows(DataProcessingException.class, () -> nodes[0].getUserInfo(1, 0));
+    }
+
+    @Test
+    @DisplayName("givenStoppedNode_whenUserInfoRequested_thenNodeUnavailable")
+    public void testGetUserInfo_stoppedNode_nodeUnavailable() throws IOException {
+        nodes[0].setInfo(1, 1, 10);
+        servers[2].close();
+
+        assertThrows(ClusterNodeUnavailableException.class, () -> nodes[0].getUserInfo(1));
+    }
+
+    @Test
+    @DisplayName("givenStoppedNode_whenSetInfoBatch_thenOtherPartsAppliedAndNodeNamed")
+    public void testSetInfoBatch_stoppedNode_otherPartsAppliedAndNodeNamed() throws IOException {
+        List<UserInfo> batch = new ArrayList<>();
+        int stoppedRecords = 0;
+        for (int levelId = 1; levelId <= 30; levelId++) {
+            batch.add(UserInfo.builder().userId(1).levelId(levelId).result(levelId).build());
+            stoppedRecords += nodes[0].ownerOf(levelId) == 2 ? 1 : 0;
+        }
+        servers[2].close();
+
+        ClusterNodeUnavailableException e = assertThrows(ClusterNodeUnavailableException.class,
+                () -> nodes[0].setInfoBatch(batch));
+        assertTrue(e.getMessage().contains("localhost:" + servers[2].getPort() + " (" + stoppedRecords + " records)"),
+                e.getMessage());
+        assertEquals(30 - stoppedRecords, engines[0].getStorageStats().getEntries()
+                + engines[1].getStorageStats().getEntries());
+    }
+
+    @Test
+    @DisplayName("givenResultsOnAllNodes_whenGetStorageStats_thenEntriesOfAllNodes")
+    public void testGetStorageStats_resultsOnAllNodes_entriesOfAllNodes() {
+        for (int levelId = 1; levelId <= 30; levelId++) {
+            nodes[0].setInfo(1, levelId, levelId);
+        }
+
+        assertEquals(30, nodes[1].getStorageStats().getEntries());
+        assertEquals("in-memory", nodes[1].getStorageStats().getEngine());
+    }
+
+    @Test
+    @DisplayName("givenClusteredStorage_whenResultsWalkedOrListened_thenUnsupported")
+    public void testForEachResult_clusteredStorage_unsupported() {
+        assertThrows(UnsupportedOperationException.class, () -> nodes[0].forEachResult((u, l, r) -> {
+        }));
+        assertThrows(UnsupportedOperationException.class, () -> nodes[0].forEachLevelResult(1, (u, l, r) -> {
+        }));
+        assertThrows(UnsupportedOperationException.class,
+                () -> nodes[0].addResultListener((userId, levelId, previousResult, result) -> {
+                }));
+        assertFalse(nodes[0].isLocal());
+    }
+
+    @Test
+    @DisplayName("givenAllConnectionsInUse_whenNodeConnects_thenConnectionClosed")
+    public void testAccept_allConnectionsInUse_connectionClosed() throws IOException {
+        try (ClusterServer server = new ClusterServer(engines[0], 0, 1)) {
+            server.start();
+            try (Socket served = new Socket("localhost", server.getPort());
+                 Socket refused = new Socket("localhost", server.getPort())) {
+                refused.setSoTimeout(2000);
+                served.setSoTimeout(200);
+
+                assertEquals(-1, refused.getInputStream().read());
+                assertThrows(SocketTimeoutException.class, () -> served.getInputStream().read());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("givenOwnerStorageUnavailable_whenWrittenThroughOtherNode_thenStorageUnavailableAndConnectionKept")
+    public void testSetInfo_ownerStorageUnavailable_storageUnavailableAndConnectionKept() {
+        int owner = nodes[0].ownerOf(1);
+        int remote = (owner + 1) % NODES;
+        engines[owner].addSubmissionListener((userId, levelId, result) -> {
+            if (result < 0) {
+                throw new StorageUnavailableException("The write-ahead log failed, results cannot be stored", null);
+            }
+            if (result == 0) {
+                throw new IllegalArgumentException("Unexpected result");
+            }
+        });
+
+        StorageUnavailableException unavailable = assertThrows(StorageUnavailableException.class,
+                () -> nodes[remote].setInfo(1, 1, -1));
+        assertTrue(unavailable.getMessage().contains("The write-ahead log failed"), unavailable.getMessage());
+        assertThrows(IllegalStateException.class, () -> nodes[remote].setInfo(1, 1, 0));
+        nodes[remote].setInfo(1, 1, 10);
+        assertEquals(10, nodes[remote].getLevelRank(1, 1, 0).getResult());
+    }
+
+    @Test
+    @DisplayName("givenBatchLongerThanOneMessage_whenLoadedThroughCluster_thenSentInPartsAndAllStored")
+    public void testLoadResults_batchLongerThanOneMessage_sentInPartsAndAllStored() {
+        int levelId = 1;
+        int remote = (nodes[0].ownerOf(levelId) + 1) % NODES;
+        List<UserInfo> records = new ArrayList<>();
+        for (int userId = 1; userId <= 100_000; userId++) {
+            records.add(UserInfo.builder().userId(userId).levelId(levelId).result(userId).build());
+        }
+
+        assertEquals(records.size(), nodes[remote].loadResults(records));
+        assertEquals(records.size(), engines[nodes[0].ownerOf(levelId)].getStorageStats().getEntries());
+    }
+
+    @Test
+    @DisplayName("givenInvalidListSize_whenBatchReceived_thenConnectionClosed")
+    public void testSetInfoBatch_invalidListSize_connectionClosed() throws IOException {
+        for (int size : new int[]{-1, Integer.MAX_VALUE}) {
+            try (Socket socket = new Socket("localhost", servers[0].getPort())) {
+                socket.setSoTimeout(2000);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeByte(2);
+                out.writeInt(size);
+                out.flush();
+
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        }
+        assertEquals(0, engines[0].getStorageStats().getEntries());
+    }
+
+    private static <T> T limited(T dataStore) {
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", RESULTS_LIMIT);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", RESULTS_LIMIT);
+        return dataStore;
+    }
+
+    private static List<String> describe(List<UserInfo> userInfo) {
+        return userInfo.stream()
+                .map(info -> info.getUserId() + "/" + info.getLevelId() + "/" + info.getResult())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.global.GlobalLeaderboard;
+import com.example.userleveltracker.model.GlobalRank;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserScore;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultConsumer;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.service.impl.PackedDataStorageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlobalLeaderboardTest {
+    private static final int RESULTS_LIMIT = 20;
+
+    @Test
+    @DisplayName("givenRandomResultsOnBothEngines_whenTopRead_thenSameAsSumOfBestResults")
+    public void testGetTop_randomResults_sameAsSumOfBestResults() {
+        for (DataStorageService dataStore : List.of(limited(new InMemoryDataStorageService()),
+                limited(new PackedDataStorageService()))) {
+            GlobalLeaderboard global = globalOf(dataStore);
+            Random random = new Random(42);
+            List<UserInfo> batch = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                int userId = random.nextInt(200) + 1;
+                int levelId = random.nextInt(30) + 1;
+                int result = random.nextInt(10_000);
+                if (i % 2 == 0) {
+                    dataStore.setInfo(userId, levelId, result);
+                } else {
+                    batch.add(UserInfo.builder().userId(userId).levelId(levelId).result(result).build());
+                }
+                if (batch.size() == 100) {
+                    dataStore.setInfoBatch(batch);
+                    batch.clear();
+                }
+            }
+
+            List<String> expected = sumOfBestResults(dataStore);
+            List<String> actual = new ArrayList<>();
+            UserScore cursor = null;
+            List<UserScore> page;
+            do {
+                page = global.getTop(cursor, 7);
+                actual.addAll(describe(page));
+                cursor = page.isEmpty() ? null : page.get(page.size() - 1);
+            } while (cursor != null);
+            assertEquals(expected, actual);
+            assertEquals(expected.subList(0, RESULTS_LIMIT), describe(global.getTop(null, null)));
+        }
+    }
+
+    @Test
+    @DisplayName("givenResultsStoredBeforeStart_whenRankRead_thenTotalsIncludeThem")
+    public void testGetRank_resultsStoredBeforeStart_totalsIncludeThem() {
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService());
+        dataStore.setInfo(1, 1, 100);
+        dataStore.setInfo(1, 2, 50);
+        dataStore.setInfo(2, 1, 120);
+        GlobalLeaderboard global = globalOf(dataStore);
+        dataStore.setInfo(3, 1, 130);
+        dataStore.setInfo(2, 1, 110);
+        dataStore.setInfo(2, 3, 40);
+
+        GlobalRank rank = global.getRank(2, 1);
+        assertEquals(160, rank.getScore());
+        assertEquals(1, rank.getRank());
+        assertEquals(3, rank.getTotal());
+        assertEquals(100.0, rank.getPercentile());
+        assertEquals(List.of(), describe(rank.getAbove()));
+        assertEquals(List.of("1/150"), describe(rank.getBelow()));
+        assertEquals(3, global.getRank(3, 2).getRank());
+        assertThrows(DataProcessingException.class, () -> global.getRank(4, 2));
+        assertThrows(DataProcessingException.class, () -> global.getTop(null, 0));
+    }
+
+    @Test
+    @DisplayName("givenImprovementsDuringRebuild_whenResultsLoaded_thenEveryResultCountedOnce")
+    public void testOnResultsLoaded_improvementsDuringRebuild_everyResultCountedOnce() {
+        AtomicBoolean walking = new AtomicBoolean();
+        InMemoryDataStorageService dataStore = limited(new InMemoryDataStorageService() {
+            @Override
+            public void forEachResult(ResultConsumer action) {
+                if (walking.compareAndSet(true, false)) {
+                    // one improvement seen by the walk, and one made after the walk passed
+                    setInfo(1, 1, 150);
+                    super.forEachResult(action);
+                    setInfo(1, 3, 70);
+                } else {
+                    super.forEachResult(action);
+                }
+            }
+        });
+        dataStore.setInfo(1, 1, 100);
+        GlobalLeaderboard global = globalOf(dataStore);
+        dataStore.loadResults(List.of(UserInfo.builder().userId(1).levelId(2).result(30).build(),
+                UserInfo.builder().userId(2).levelId(1).result(20).build()));
+
+        walking.set(true);
+        dataStore.completeLoad();
+        dataStore.setInfo(1, 2, 45);
+
+        assertEquals(265, global.getRank(1, 0).getScore());
+        assertEquals(20, global.getRank(2, 0).getScore());
+        assertEquals(sumOfBestResults(dataStore), describe(global.getTop(null, null)));
+    }
+
+    @Test
+    @DisplayName("givenConcurrentWritersOfAllShards_whenTopRead_thenSameAsSumOfBestResults")
+    public void testGetTop_concurrentWriters_sameAsSumOfBestResults() throws Exception {
+        PackedDataStorageService dataStore = limited(new PackedDataStorageService());
+        GlobalLeaderboard global = globalOf(dataStore);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            Random random = new Random(writer);
+            done.add(writers.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    dataStore.setInfo(random.nextInt(500) + 1, random.nextInt(20) + 1, random.nextInt(10_000));
+                }
+            }));
+        }
+        for (Future<?> writer : done) {
+            writer.get();
+        }
+        writers.shutdown();
+
+        List<String> expected = sumOfBestResults(dataStore);
+        assertEquals(expected.subList(0, RESULTS_LIMIT), describe(global.getTop(null, null)));
+        String middle = expected.get(250);
+        GlobalRank rank = global.getRank(Integer.parseInt(middle.substring(0, middle.indexOf('/'))), 2);
+        assertEquals(251, rank.getRank());
+        assertEquals(expected.subList(248, 250), describe(rank.getAbove()));
+        assertEquals(expected.subList(251, 253), describe(rank.getBelow()));
+    }
+
+    private static GlobalLeaderboard globalOf(DataStorageService dataStore) {
+        GlobalLeaderboard global = limited(new GlobalLeaderboard(dataStore));
+        ReflectionTestUtils.setField(global, "shardCount", 4);
+        global.init();
+        return global;
+    }
+
+    private static List<String> sumOfBestResults(DataStorageService dataStore) {
+        Map<Integer, Long> totals = new HashMap<>();
+        dataStore.forEachResult((userId, levelId, result) -> totals.merge(userId, (long) result, Long::sum));
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue()
+                        .thenComparing(Map.Entry.comparingByKey()).reversed())
+                .map(total -> total.getKey() + "/" + total.getValue())
+                .collect(Collectors.toList());
+    }
+
+    private static <T> T limited(T component) {
+        ReflectionTestUtils.setField(component, "resultsLimit", RESULTS_LIMIT);
+        ReflectionTestUtils.setField(component, "maxResultsLimit", RESULTS_LIMIT);
+        return component;
+    }
+
+    private static List<String> describe(List<UserScore> scores) {
+        return scores.stream()
+                .map(score -> score.getUserId() + "/" + score.getScore())
+                .collect(Collectors.toList());
+    }
+}
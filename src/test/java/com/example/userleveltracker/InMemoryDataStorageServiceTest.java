@@ -0,0 +1,313 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDataStorageServiceTest {
+    private static final int USERS = 200;
+    private static final int LEVELS = 10;
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int WRITES_PER_THREAD = 20_000;
+
+    private InMemoryDataStorageService dataStore;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", USERS);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", USERS);
+    }
+
+    @Test
+    @DisplayName("givenSetInfo_whenConcurrentWriters_thenHighestResultKept")
+    public void testSetInfo_concurrentWriters_highestResultKept() throws Exception {
+        Map<Long, Integer> expected = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        Future<?>[] writers = new Future[WRITERS];
+        for (int i = 0; i < WRITERS; i++) {
+            writers[i] = executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < WRITES_PER_THREAD; j++) {
+                    int userId = random.nextInt(USERS) + 1;
+                    int levelId = random.nextInt(LEVELS) + 1;
+                    int result = random.nextInt(1_000_000);
+                    dataStore.setInfo(userId, levelId, result);
+                    expected.merge(((long) userId << 32) | levelId, result, Math::max);
+                }
+                return null;
+            });
+        }
+
+        Future<?>[] readers = new Future[READERS];
+        for (int i = 0; i < READERS; i++) {
+            readers[i] = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    int levelId = ThreadLocalRandom.current().nextInt(LEVELS) + 1;
+                    try {
+                        assertNoDuplicateUsers(dataStore.getLevelInfo(levelId));
+                    } catch (DataProcessingException ignored) {
+                        // the level has not been written yet
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (UserInfo info : dataStore.getUserInfo(userId)) {
+                assertEquals(expected.get(((long) userId << 32) | info.getLevelId()), info.getResult());
+            }
+        }
+        for (int levelId = 1; levelId <= LEVELS; levelId++) {
+            List<UserInfo> levelInfo = dataStore.getLevelInfo(levelId);
+            assertNoDuplicateUsers(levelInfo);
+            for (UserInfo info : levelInfo) {
+                assertEquals(expected.get(((long) info.getUserId() << 32) | levelId), info.getResult());
+            }
+            int level = levelId;
+            long playersOnLevel = expected.keySet().stream().filter(key -> (int) (long) key == level).count();
+            assertEquals(playersOnLevel, levelInfo.size());
+        }
+    }
+
+    @Test
+    @DisplayName("givenGetLevelInfo_whenManyUsers_thenTopUsersInOrder")
+    public void testGetLevelInfo_manyUsers_topUsersInOrder() {
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 3);
+        dataStore.setInfo(1, 1, 10);
+        dataStore.setInfo(2, 1, 30);
+        dataStore.setInfo(3, 1, 30);
+        dataStore.setInfo(4, 1, 20);
+        dataStore.setInfo(5, 1, 5);
+        dataStore.setInfo(5, 1, 25);
+
+        List<UserInfo> levelInfo = dataStore.getLevelInfo(1);
+
+        assertEquals(List.of(3, 2, 5), levelInfo.stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+        assertEquals(List.of(30, 30, 25), levelInfo.stream().map(UserInfo::getResult).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("givenSetInfo_whenLowerResult_thenBestResultKeptOnLevel")
+    public void testSetInfo_lowerResult_bestResultKeptOnLevel() {
+        dataStore.setInfo(1, 1, 40);
+        dataStore.setInfo(1, 1, 15);
+
+        List<UserInfo> levelInfo = dataStore.getLevelInfo(1);
+
+        assertEquals(1, levelInfo.size());
+        assertEquals(40, levelInfo.get(0).getResult());
+        assertEquals(40, dataStore.getUserInfo(1).get(0).getResult());
+    }
+
+    @Test
+    @DisplayName("givenGetUserInfo_whenLimitAboveMax_thenLimitCapped")
+    public void testGetUserInfo_limitAboveMax_limitCapped() {
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 3);
+        for (int levelId = 1; levelId <= 10; levelId++) {
+            dataStore.setInfo(1, levelId, levelId % 4);
+        }
+
+        List<UserInfo> userInfo = dataStore.getUserInfo(1, 50);
+
+        assertEquals(List.of(7, 3, 10), userInfo.stream().map(UserInfo::getLevelId).collect(Collectors.toList()));
+        assertEquals(List.of(3, 3, 2), userInfo.stream().map(UserInfo::getResult).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("givenInit_whenDefaultLimitAboveMax_thenGetException")
+    public void testInit_defaultLimitAboveMax_notOk() {
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 20);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 10);
+
+        assertThrows(IllegalArgumentException.class, () -> dataStore.init());
+    }
+
+    @Test
+    @DisplayName("givenGetLevelInfo_whenPagedWithCursor_thenPagesMatchSortedLevel")
+    public void testGetLevelInfo_pagedWithCursor_pagesMatchSortedLevel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 5_000; i++) {
+            dataStore.setInfo(random.nextInt(USERS) + 1, 1, random.nextInt(50));
+        }
+        List<UserInfo> sorted = dataStore.getLevelInfo(1);
+
+        List<UserInfo> paged = new ArrayList<>();
+        List<UserInfo> page = dataStore.getLevelInfo(1, null, 7);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            page = dataStore.getLevelInfo(1, page.get(page.size() - 1), 7);
+        }
+
+        assertEquals(sorted.stream().map(UserInfo::getUserId).collect(Collectors.toList()),
+                paged.stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("givenGetLevelRank_whenManyUsers_thenRankAndNeighboursMatchSortedLevel")
+    public void testGetLevelRank_manyUsers_rankAndNeighboursMatchSortedLevel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+            dataStore.setInfo(random.nextInt(USERS) + 1, 1, random.nextInt(500));
+        }
+        List<Integer> sorted = dataStore.getLevelInfo(1).stream()
+                .map(UserInfo::getUserId)
+                .collect(Collectors.toList());
+
+        for (int index = 0; index < sorted.size(); index++) {
+            UserRank rank = dataStore.getLevelRank(1, sorted.get(index), 2);
+
+            assertEquals(index + 1, rank.getRank());
+            assertEquals(sorted.size(), rank.getTotal());
+            assertEquals(sorted.subList(Math.max(index - 2, 0), index),
+                    rank.getAbove().stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+            assertEquals(sorted.subList(index + 1, Math.min(index + 3, sorted.size())),
+                    rank.getBelow().stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+        }
+        assertEquals(100.0, dataStore.getLevelRank(1, sorted.get(0), 0).getPercentile());
+    }
+
+    @Test
+    @DisplayName("givenGetLevelRank_whenUserNotOnLevel_thenGetException")
+    public void testGetLevelRank_userNotOnLevel_notOk() {
+        dataStore.setInfo(1, 1, 10);
+
+        assertThrows(DataProcessingException.class, () -> dataStore.getLevelRank(1, 2, 2));
+        assertThrows(DataProcessingException.class, () -> dataStore.getLevelRank(2, 1, 2));
+    }
+
+    @Test
+    @DisplayName("givenSpillEnabled_whenManyUsers_thenSpilledUsersLoadedBack")
+    public void testGetUserInfo_spillEnabled_spilledUsersLoadedBack(@TempDir Path directory) throws Exception {
+        dataStore = new InMemoryDataStorageService(true, directory.toString(), 10L, USERS);
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", USERS);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", USERS);
+        dataStore.init();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 10_000; i++) {
+            int userId = random.nextInt(USERS) + 1;
+            int levelId = random.nextInt(LEVELS) + 1;
+            int result = random.nextInt(1_000);
+            dataStore.setInfo(userId, levelId, result);
+            expected.merge(((long) userId << 32) | levelId, result, Math::max);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dataStore.getStorageStats().getSpilledUsers() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(dataStore.getStorageStats().getSpilledUsers() > 0);
+
+        for (int userId = 1; userId <= USERS; userId++) {
+            List<UserInfo> userInfo = dataStore.getUserInfo(userId);
+            for (UserInfo info : userInfo) {
+                assertEquals(expected.get(((long) userId << 32) | info.getLevelId()), info.getResult());
+            }
+            long user = userId;
+            assertEquals(expected.keySet().stream().filter(key -> key >>> 32 == user).count(), userInfo.size());
+        }
+        assertEquals(expected.size(), dataStore.getStorageStats().getEntries());
+        assertTrue(dataStore.getStorageStats().getPageIns() > 0);
+        dataStore.close();
+    }
+
+    @Test
+    @DisplayName("givenSpillEnabled_whenLevelLargerThanResidentEntries_thenPagesAndRanksMatchSortedLevel")
+    public void testGetLevelRank_spillEnabled_pagesAndRanksMatchSortedLevel(@TempDir Path directory)
+            throws Exception {
+        InMemoryDataStorageService spilled = new InMemoryDataStorageService(true, directory.toString(), 10L, 20);
+        ReflectionTestUtils.setField(spilled, "resultsLimit", 20);
+        ReflectionTestUtils.setField(spilled, "maxResultsLimit", 20);
+        spilled.init();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 5_000; i++) {
+            int userId = random.nextInt(USERS) + 1;
+            int levelId = random.nextInt(2) + 1;
+            int result = random.nextInt(100);
+            spilled.setInfo(userId, levelId, result);
+            dataStore.setInfo(userId, levelId, result);
+        }
+        List<Integer> sorted = dataStore.getLevelInfo(1).stream()
+                .map(UserInfo::getUserId)
+                .collect(Collectors.toList());
+
+        List<UserInfo> paged = new ArrayList<>();
+        List<UserInfo> page = spilled.getLevelInfo(1, null, 7);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            page = spilled.getLevelInfo(1, page.get(page.size() - 1), 7);
+        }
+        assertEquals(sorted, paged.stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+        assertEquals(sorted.subList(0, 20),
+                spilled.getLevelInfo(1).stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+
+        for (int index = 0; index < sorted.size(); index++) {
+            UserRank rank = spilled.getLevelRank(1, sorted.get(index), 2);
+
+            assertEquals(index + 1, rank.getRank());
+            assertEquals(sorted.size(), rank.getTotal());
+            assertEquals(sorted.subList(Math.max(index - 2, 0), index),
+                    rank.getAbove().stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+            assertEquals(sorted.subList(index + 1, Math.min(index + 3, sorted.size())),
+                    rank.getBelow().stream().map(UserInfo::getUserId).collect(Collectors.toList()));
+        }
+
+        long[] walked = new long[1];
+        spilled.forEachLevelResult(1, (userId, levelId, result) -> walked[0]++);
+        assertEquals(sorted.size(), walked[0]);
+        assertEquals(dataStore.getStorageStats().getEntries(), spilled.getStorageStats().getEntries());
+        spilled.close();
+    }
+
+    private static void assertNoDuplicateUsers(List<UserInfo> levelInfo) {
+        Set<Integer> userIds = new HashSet<>();
+        for (UserInfo info : levelInfo) {
+            assertTrue(userIds.add(info.getUserId()), "User listed twice on a level: " + info.getUserId());
+        }
+    }
+}
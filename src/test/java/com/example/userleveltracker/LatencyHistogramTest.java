@@ -0,0 +1,44 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.metrics.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("givenRecordedLatencies_whenValuesAt_thenPercentilesWithinRelativeError")
+    public void testValuesAt_recordedLatencies_percentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        long[] values = histogram.valuesAt(50, 99, 99.9);
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        assertEquals(50_000_000, values[0], 50_000_000 * 0.04);
+        assertEquals(99_000_000, values[1], 99_000_000 * 0.04);
+        assertEquals(99_900_000, values[2], 99_900_000 * 0.04);
+    }
+
+    @Test
+    @DisplayName("givenSmallLatencies_whenValuesAt_thenExactValues")
+    public void testValuesAt_smallLatencies_exactValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-1);
+
+        assertArrayEquals(new long[]{0, 3, 7}, histogram.valuesAt(0, 50, 100));
+    }
+
+    @Test
+    @DisplayName("givenNoLatencies_whenValuesAt_thenZeros")
+    public void testValuesAt_noLatencies_zeros() {
+        assertArrayEquals(new long[]{0, 0}, new LatencyHistogram().valuesAt(50, 99));
+    }
+}
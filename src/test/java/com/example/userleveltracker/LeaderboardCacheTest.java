@@ -0,0 +1,69 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.cache.LeaderboardCache;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardCacheTest {
+    private InMemoryDataStorageService dataStore;
+    private LeaderboardCache cache;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 2);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 2);
+        cache = new LeaderboardCache(dataStore, new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "resultsLimit", 2);
+        cache.init();
+
+        dataStore.setInfo(1, 1, 50);
+        dataStore.setInfo(2, 1, 40);
+        dataStore.setInfo(3, 1, 10);
+    }
+
+    @Test
+    @DisplayName("givenCachedLevel_whenImprovementOutsideTop_thenResponseKept")
+    public void testOnResultImproved_outsideTop_responseKept() {
+        byte[] cached = cache.getLevelInfo(1);
+
+        dataStore.setInfo(3, 1, 20);
+
+        assertSame(cached, cache.getLevelInfo(1));
+        assertEquals(0, cache.getStats().getInvalidations());
+        assertEquals(0.5, cache.getStats().getLevelHitRatio());
+    }
+
+    @Test
+    @DisplayName("givenCachedLevel_whenImprovementIntoTop_thenResponseReloaded")
+    public void testOnResultImproved_intoTop_responseReloaded() {
+        cache.getLevelInfo(1);
+
+        dataStore.setInfo(3, 1, 45);
+
+        String json = new String(cache.getLevelInfo(1), StandardCharsets.UTF_8);
+        assertEquals("[{\"user_id\":1,\"level_id\":1,\"result\":50},{\"user_id\":3,\"level_id\":1,\"result\":45}]",
+                json);
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    @DisplayName("givenCachedUser_whenListedLevelImproved_thenResponseReloaded")
+    public void testOnResultImproved_listedLevel_responseReloaded() {
+        cache.getUserInfo(1);
+
+        dataStore.setInfo(1, 1, 60);
+
+        String json = new String(cache.getUserInfo(1), StandardCharsets.UTF_8);
+        assertEquals("[{\"user_id\":1,\"level_id\":1,\"result\":60}]", json);
+    }
+}
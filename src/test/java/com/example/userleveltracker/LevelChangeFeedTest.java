@@ -0,0 +1,123 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.feed.LevelChangeFeed;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = {"leaderboard.feed.enabled=true", "leaderboard.feed.interval-ms=200"})
+@AutoConfigureMockMvc
+public class LevelChangeFeedTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InMemoryDataStorageService dataStore;
+
+    @Autowired
+    private LevelChangeFeed feed;
+
+    @Test
+    @DisplayName("givenTwoSubscribers_whenBurstOfWrites_thenSameCoalescedChangePushedToBoth")
+    public void testSubscribe_burstOfWrites_sameCoalescedChangePushedToBoth() throws Exception {
+        dataStore.setInfo(1, 100, 10);
+        MockHttpServletResponse first = subscribe(100);
+        MockHttpServletResponse second = subscribe(100);
+        assertEquals("event: snapshot\ndata: {\"level_id\":100,\"changed\":[{\"user_id\":1,\"level_id\":100,\"result\":10}],"
+                + "\"removed\":[]}\n\n", first.getContentAsString());
+
+        long events = feed.getEvents();
+        for (int userId = 2; userId <= 50; userId++) {
+            dataStore.setInfo(userId, 100, userId * 10);
+        }
+        await(() -> contentOf(first).contains("event: change"));
+        await(() -> contentOf(second).equals(contentOf(first)));
+
+        String change = contentOf(first).substring(contentOf(first).indexOf("event: change"));
+        assertTrue(change.contains("\"user_id\":50,\"level_id\":100,\"result\":500"));
+        assertTrue(change.endsWith("\"removed\":[1]}\n\n"));
+        assertTrue(feed.getEvents() - events <= 2);
+    }
+
+    @Test
+    @DisplayName("givenFullTop_whenResultBelowTop_thenNoChangePushed")
+    public void testSubscribe_resultBelowTop_noChangePushed() throws Exception {
+        for (int userId = 1; userId <= 20; userId++) {
+            dataStore.setInfo(userId, 101, 1_000 + userId);
+        }
+        MockHttpServletResponse subscriber = subscribe(101);
+        String snapshot = subscriber.getContentAsString();
+
+        dataStore.setInfo(99, 101, 5);
+        dataStore.setInfo(98, 101, 1_000);
+        Thread.sleep(600);
+        assertEquals(snapshot, subscriber.getContentAsString());
+
+        dataStore.setInfo(97, 101, 1_002);
+        await(() -> contentOf(subscriber).contains("\"changed\":[{\"user_id\":97,\"level_id\":101,\"result\":1002}],"
+                + "\"removed\":[1]"));
+    }
+
+    @Test
+    @DisplayName("givenLastSubscriberLeft_whenLevelSubscribedAgain_thenNewSnapshotAndChanges")
+    public void testSubscribe_lastSubscriberLeft_newSnapshotAndChanges() throws Exception {
+        dataStore.setInfo(1, 102, 10);
+        MvcResult left = subscribeAsync(102);
+        left.getRequest().getAsyncContext().complete();
+
+        dataStore.setInfo(2, 102, 20);
+        MockHttpServletResponse subscriber = subscribe(102);
+        await(() -> contentOf(subscriber).contains("\"user_id\":2,\"level_id\":102,\"result\":20"));
+
+        dataStore.setInfo(3, 102, 30);
+        await(() -> contentOf(subscriber).contains("event: change"));
+        assertEquals(0, feed.getDroppedSubscribers());
+    }
+
+    private MockHttpServletResponse subscribe(int levelId) throws Exception {
+        return subscribeAsync(levelId).getResponse();
+    }
+
+    /**
+     * Subscribes and waits for the snapshot, which is written by a sender thread with the headers.
+     */
+    private MvcResult subscribeAsync(int levelId) throws Exception {
+        MvcResult result = mockMvc.perform(get("/levelinfo/" + levelId + "/feed"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        await(() -> contentOf(result.getResponse()).startsWith("event: snapshot"));
+        assertThat(result.getResponse().getContentType(), startsWith("text/event-stream"));
+        return result;
+    }
+
+    private static String contentOf(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the feed");
+            Thread.sleep(20);
+        }
+    }
+}
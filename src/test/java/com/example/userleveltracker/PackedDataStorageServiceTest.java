@@ -0,0 +1,140 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.StorageStats;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.model.UserRank;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.service.impl.PackedDataStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedDataStorageServiceTest {
+    private static final int RESULTS_LIMIT = 20;
+
+    private PackedDataStorageService dataStore;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = limited(new PackedDataStorageService());
+    }
+
+    @Test
+    @DisplayName("givenRandomResults_whenComparedWithInMemory_thenSameTopResults")
+    public void testRandomResults_comparedWithInMemory_sameTopResults() {
+        InMemoryDataStorageService reference = limited(new InMemoryDataStorageService());
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            int userId = random.nextInt(300) + 1;
+            int levelId = random.nextInt(50) + 1;
+            int result = random.nextInt(10_000);
+            dataStore.setInfo(userId, levelId, result);
+            reference.setInfo(userId, levelId, result);
+        }
+
+        for (int userId = 1; userId <= 300; userId++) {
+            assertEquals(describe(reference.getUserInfo(userId)), describe(dataStore.getUserInfo(userId)));
+        }
+        for (int levelId = 1; levelId <= 50; levelId++) {
+            assertEquals(describe(reference.getLevelInfo(levelId)), describe(dataStore.getLevelInfo(levelId)));
+        }
+        assertEquals(reference.getStorageStats().getEntries(), dataStore.getStorageStats().getEntries());
+        UserInfo cursor = null;
+        List<UserInfo> page;
+        do {
+            page = reference.getUserInfo(1, cursor, 7);
+            assertEquals(describe(page), describe(dataStore.getUserInfo(1, cursor, 7)));
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (cursor != null);
+        do {
+            page = reference.getLevelInfo(1, cursor, 5);
+            assertEquals(describe(page), describe(dataStore.getLevelInfo(1, cursor, 5)));
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (cursor != null);
+        List<Integer> usersOnLevel = new ArrayList<>();
+        reference.forEachResult((userId, levelId, result) -> {
+            if (levelId == 1) {
+                usersOnLevel.add(userId);
+            }
+        });
+        for (int userId : usersOnLevel) {
+            UserRank expected = reference.getLevelRank(1, userId, 3);
+            UserRank actual = dataStore.getLevelRank(1, userId, 3);
+            assertEquals(expected.getRank(), actual.getRank());
+            assertEquals(expected.getPercentile(), actual.getPercentile());
+            assertEquals(describe(expected.getAbove()), describe(actual.getAbove()));
+            assertEquals(describe(expected.getBelow()), describe(actual.getBelow()));
+        }
+    }
+
+    @Test
+    @DisplayName("givenStoredResults_whenGetStorageStats_thenBytesPerEntryReported")
+    public void testGetStorageStats_storedResults_bytesPerEntryReported() {
+        for (int userId = 1; userId <= 1_000; userId++) {
+            for (int levelId = 1; levelId <= 100; levelId++) {
+                dataStore.setInfo(userId, levelId, userId + levelId);
+            }
+        }
+
+        StorageStats stats = dataStore.getStorageStats();
+
+        assertEquals(100_000, stats.getEntries());
+        assertTrue(stats.getBytesPerEntry() < 48, "Bytes per entry: " + stats.getBytesPerEntry());
+    }
+
+    @Test
+    @DisplayName("givenLevelGrowingDuringWalk_whenForEachLevelResult_thenEveryStoredResultOnce")
+    public void testForEachLevelResult_levelGrowingDuringWalk_everyStoredResultOnce() {
+        int users = 20_000;
+        for (int userId = 1; userId <= users; userId++) {
+            dataStore.setInfo(userId, 1, userId % 1_000);
+            dataStore.setInfo(userId, 2, 1);
+        }
+        Map<Integer, Integer> walked = new HashMap<>();
+        int[] nextUserId = {users};
+
+        dataStore.forEachLevelResult(1, (userId, levelId, result) -> {
+            assertEquals(1, levelId);
+            assertNull(walked.put(userId, result));
+            // the level's table doubles more than once while it is walked
+            for (int i = 0; i < 4; i++) {
+                dataStore.setInfo(++nextUserId[0], 1, 5);
+            }
+        });
+
+        for (int userId = 1; userId <= users; userId++) {
+            assertEquals(userId % 1_000, walked.get(userId));
+        }
+    }
+
+        @Test
+    @DisplayName("givenGetLevelInfo_whenDataNotExist_thenGetException")
+    public void testGetLevelInfo_dataNotExist_notOk() {
+        assertThrows(DataProcessingException.class, () -> dataStore.getLevelInfo(999));
+    }
+
+    private static <T extends DataStorageService> T limited(T dataStore) {
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", RESULTS_LIMIT);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", RESULTS_LIMIT);
+        return dataStore;
+    }
+
+    private static List<String> describe(List<UserInfo> userInfo) {
+        return userInfo.stream()
+                .map(info -> info.getUserId() + "/" + info.getLevelId() + "/" + info.getResult())
+                .collect(Collectors.toList());
+    }
+}
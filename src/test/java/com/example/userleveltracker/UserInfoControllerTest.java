@@ -1,7 +1,10 @@
 package com.example.userleveltracker;
 
+import com.example.userleveltracker.model.UserInfo;
 import com.example.userleveltracker.model.UserInfoRq;
 import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.wire.VarintEncoder;
+import com.example.userleveltracker.wire.WireFormat;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,14 +12,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -58,6 +73,167 @@ public class UserInfoControllerTest {
                 .andExpect(jsonPath("$[1].result", is(8)));
     }
 
+    @Test
+    @DisplayName("givenGetUserInfo_whenLimitGiven_thenGetLimitedUserInfoList")
+    public void testGetUserInfo_limitGiven_ok() throws Exception {
+        mockMvc.perform(get("/userinfo/1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].level_id", is(1)))
+                .andExpect(jsonPath("$[0].result", is(55)));
+    }
+
+    @Test
+    @DisplayName("givenGetUserInfo_whenCursorFollowed_thenGetNextPages")
+    public void testGetUserInfo_cursorFollowed_ok() throws Exception {
+        mockMvc.perform(get("/userinfo/1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "55:1"))
+                .andExpect(jsonPath("$[0].level_id", is(1)));
+
+        mockMvc.perform(get("/userinfo/1").param("limit", "1").param("cursor", "55:1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "8:2"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].level_id", is(2)));
+
+        mockMvc.perform(get("/userinfo/1").param("limit", "1").param("cursor", "8:2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("givenGetLevelInfo_whenInvalidCursor_thenGetException")
+    public void testGetLevelInfo_invalidCursor_notOk() throws Exception {
+        mockMvc.perform(get("/levelinfo/1").param("cursor", "55"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Cursor must be in the format <result>:<id>")));
+    }
+
+    @Test
+    @DisplayName("givenAllTimeWindow_whenOffsetGiven_thenGetException")
+    public void testGetLevelInfo_allTimeWindowWithOffset_notOk() throws Exception {
+        mockMvc.perform(get("/levelinfo/1").param("offset", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Offset is only supported with the daily and weekly windows")));
+    }
+
+    @Test
+    @DisplayName("givenVarintRecords_whenSetAndGetUserInfo_thenGetVarintRecords")
+    public void testSetInfo_varintRecords_ok() throws Exception {
+        mockMvc.perform(put("/setinfo")
+                        .contentType(WireFormat.VARINT_RECORDS)
+                        .content(new VarintEncoder(16).putRecords(List.of(
+                                UserInfo.builder().userId(3).levelId(2).result(300).build())).toByteArray()))
+                .andExpect(status().isOk());
+
+        byte[] body = mockMvc.perform(get("/userinfo/3").accept(WireFormat.VARINT_RECORDS))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WireFormat.VARINT_RECORDS))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // 3, 2 and 300 as varints: 300 = 0b10_0101100
+        assertArrayEquals(new byte[]{3, 2, (byte) 0xAC, 0x02}, body);
+    }
+
+    @Test
+    @DisplayName("givenVarintRecords_whenInvalidRecordOrMissingLevel_thenGetJsonException")
+    public void testGetLevelInfo_varintRecordsMissingLevel_notOk() throws Exception {
+        mockMvc.perform(put("/setinfo")
+                        .contentType(WireFormat.VARINT_RECORDS)
+                        .content(new byte[]{1, 0, 5}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("[Level ID must be greater than or equal to 1]")));
+
+        mockMvc.perform(get("/levelinfo/999").accept(WireFormat.VARINT_RECORDS))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Oops! There are no results for the specified level ID: 999")));
+    }
+
+    @Test
+    @DisplayName("givenVarintRecordsOverLimit_whenSetInfoBatch_thenBadRequest")
+    public void testSetInfoBatch_varintRecordsOverLimit_notOk() throws Exception {
+        byte[] body = new byte[262_145];
+        Arrays.fill(body, (byte) 1);
+
+        mockMvc.perform(put("/setinfo/batch")
+                        .contentType(WireFormat.VARINT_RECORDS)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("givenVarintRecordsAccepted_whenOtherElementType_thenNotAcceptable")
+    public void testGetLatencies_varintRecords_notAcceptable() throws Exception {
+        mockMvc.perform(get("/stats/latency").accept(WireFormat.VARINT_RECORDS))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    @DisplayName("givenExportLevel_whenNdjsonFormat_thenGetResultPerLine")
+    public void testExportLevel_ndjsonFormat_ok() throws Exception {
+        MvcResult result = mockMvc.perform(get("/export/2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"user_id\":1,\"level_id\":2,\"result\":8}\n"));
+    }
+
+    @Test
+    @DisplayName("givenExportAll_whenBinaryFormatAndGzipAccepted_thenGetCompressedRecords")
+    public void testExportAll_binaryFormatGzipAccepted_ok() throws Exception {
+        MvcResult result = mockMvc.perform(get("/export").param("format", "binary")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] compressed = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        DataInputStream records = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        Map<Integer, Integer> user1Results = new HashMap<>();
+        for (int i = 0; i < dataStore.getStorageStats().getEntries(); i++) {
+            int userId = records.readInt();
+            int levelId = records.readInt();
+            int value = records.readInt();
+            if (userId == 1) {
+                user1Results.put(levelId, value);
+            }
+        }
+        assertEquals(-1, records.read());
+        assertEquals(55, user1Results.get(1));
+        assertEquals(8, user1Results.get(2));
+    }
+
+    @Test
+    @DisplayName("givenExportLevel_whenGzipRefusedWithZeroQuality_thenGetUncompressedRecords")
+    public void testExportLevel_gzipZeroQuality_ok() throws Exception {
+        MvcResult result = mockMvc.perform(get("/export/2")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("{\"user_id\":1,\"level_id\":2,\"result\":8}\n"));
+    }
+
+    @Test
+    @DisplayName("givenExportLevel_whenLevelNotExist_thenGetException")
+    public void testExportLevel_levelNotExist_notOk() throws Exception {
+        mockMvc.perform(get("/export/999"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("givenGetLevelInfo_whenValidLevelId_thenGetLevelInfoList")
     public void testGetLevelInfo_validLevelId_ok() throws Exception {
@@ -96,6 +272,58 @@ public class UserInfoControllerTest {
                         "[Level ID must be greater than or equal to 1]")));
     }
 
+    @Test
+    @DisplayName("givenSetInfoBatch_whenSomeRecordsInvalid_thenValidRecordsStored")
+    public void testSetInfoBatch_someRecordsInvalid_ok() throws Exception {
+        List<UserInfoRq> records = List.of(
+                UserInfoRq.builder().userId(101).levelId(101).result(10).build(),
+                UserInfoRq.builder().userId(101).levelId(-1).result(10).build(),
+                UserInfoRq.builder().userId(102).levelId(101).result(30).build());
+
+        mockMvc.perform(put("/setinfo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(records)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", is(2)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.errors[0].index", is(1)))
+                .andExpect(jsonPath("$.errors[0].message", is(
+                        "[Level ID must be greater than or equal to 1]")));
+
+        mockMvc.perform(get("/levelinfo/101"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].user_id", is(102)))
+                .andExpect(jsonPath("$[1].user_id", is(101)));
+    }
+
+    @Test
+    @DisplayName("givenSetInfoBatch_whenTooManyRecords_thenGetException")
+    public void testSetInfoBatch_tooManyRecords_notOk() throws Exception {
+        List<UserInfoRq> records = Collections.nCopies(10_001,
+                UserInfoRq.builder().userId(103).levelId(103).result(10).build());
+
+        mockMvc.perform(put("/setinfo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(records)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("A batch must hold at most 10000 records, got 10001")));
+
+        mockMvc.perform(get("/levelinfo/103"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("givenGetLatencies_whenServiceCalled_thenGetMethodLatencies")
+    public void testGetLatencies_serviceCalled_ok() throws Exception {
+        mockMvc.perform(get("/levelinfo/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/stats/latency"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.method == 'InMemoryDataStorageService.getLevelInfo(int)')].count",
+                        contains(greaterThanOrEqualTo(1))));
+    }
+
     @Test
     @DisplayName("givenGetLevelInfo_whenDataNotExist_thenGetException")
     public void testGetLevelInfo_dataNotExist_notOk() throws Exception {
@@ -0,0 +1,60 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.model.UserInfoRq;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserInfoRqTest {
+
+    @Test
+    @DisplayName("givenAnyFieldValues_whenValidated_thenSameMessagesAsBeanValidation")
+    public void testValidate_anyFieldValues_sameMessagesAsBeanValidation() {
+        List<Integer> values = Arrays.asList(null, Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE);
+
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            for (Integer userId : values) {
+                for (Integer levelId : values) {
+                    for (Integer result : values) {
+                        UserInfoRq request = UserInfoRq.builder().userId(userId).levelId(levelId).result(result).build();
+                        assertEquals(beanValidationMessages(validator, request), request.validate(),
+                                () -> "user " + userId + ", level " + levelId + ", result " + result);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("givenDataProcessingException_whenThrown_thenNoStackTrace")
+    public void testDataProcessingException_thrown_noStackTrace() {
+        DataProcessingException exception = new DataProcessingException("Oops!");
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Oops!", exception.getMessage());
+    }
+
+    private static String beanValidationMessages(Validator validator, UserInfoRq request) {
+        Set<ConstraintViolation<UserInfoRq>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList())
+                .toString();
+    }
+}
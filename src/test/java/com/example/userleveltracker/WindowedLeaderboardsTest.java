@@ -0,0 +1,148 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.DataProcessingException;
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.UserInfo;
+import com.example.userleveltracker.service.SubmissionListener;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import com.example.userleveltracker.window.LeaderboardWindow;
+import com.example.userleveltracker.window.WindowedLeaderboards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.Ordered;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindowedLeaderboardsTest {
+    /**
+     * A Wednesday, at noon.
+     */
+    private static final Instant START = Instant.parse("2024-05-15T12:00:00Z");
+
+    private InMemoryDataStorageService dataStore;
+    private WindowedLeaderboards windows;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 20);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 20);
+        windows = new WindowedLeaderboards(dataStore);
+        ReflectionTestUtils.setField(windows, "retained", 2);
+        ReflectionTestUtils.setField(windows, "resultsLimit", 20);
+        ReflectionTestUtils.setField(windows, "maxResultsLimit", 20);
+        windows.init();
+        setTime(START);
+    }
+
+    @Test
+    @DisplayName("givenResultBelowAllTimeBest_whenNewDay_thenResultRankedInDailyWindow")
+    public void testGetLevelInfo_resultBelowAllTimeBest_rankedInDailyWindow() {
+        dataStore.setInfo(1, 1, 100);
+        dataStore.setInfo(2, 1, 50);
+        setTime(START.plus(Duration.ofDays(1)));
+        dataStore.setInfo(1, 1, 30);
+        dataStore.setInfo(3, 1, 40);
+
+        assertEquals(List.of("3/40", "1/30"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 0, 1, null, null)));
+        assertEquals(List.of("1/100", "2/50"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 1, 1, null, null)));
+        assertEquals(List.of("1/100", "2/50", "3/40"),
+                describe(windows.getLevelInfo(LeaderboardWindow.WEEKLY, 0, 1, null, null)));
+        assertEquals(100, dataStore.getLevelInfo(1).get(0).getResult());
+    }
+
+    @Test
+    @DisplayName("givenRetainedWindows_whenWindowsPass_thenOldestWindowDropped")
+    public void testGetLevelInfo_windowsPass_oldestWindowDropped() {
+        dataStore.setInfo(1, 1, 10);
+        setTime(START.plus(Duration.ofDays(1)));
+        dataStore.setInfo(2, 1, 20);
+        setTime(START.plus(Duration.ofDays(2)));
+        dataStore.setInfo(3, 1, 30);
+
+        assertEquals(List.of("3/30"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 0, 1, null, null)));
+        assertEquals(List.of("2/20"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 1, 1, null, null)));
+        assertThrows(DataProcessingException.class,
+                () -> windows.getLevelInfo(LeaderboardWindow.DAILY, 2, 1, null, null));
+
+        setTime(START.plus(Duration.ofDays(4)));
+        assertThrows(DataProcessingException.class,
+                () -> windows.getLevelInfo(LeaderboardWindow.DAILY, 0, 1, null, null));
+        assertThrows(DataProcessingException.class,
+                () -> windows.getLevelInfo(LeaderboardWindow.DAILY, 1, 1, null, null));
+    }
+
+    @Test
+    @DisplayName("givenLoadedResults_whenGetLevelInfo_thenOnlySubmittedResultsRanked")
+    public void testGetLevelInfo_loadedResults_onlySubmittedResultsRanked() {
+        dataStore.loadResults(List.of(
+                UserInfo.builder().userId(1).levelId(1).result(100).build(),
+                UserInfo.builder().userId(2).levelId(1).result(90).build()));
+        dataStore.completeLoad();
+        dataStore.setInfo(3, 1, 10);
+
+        assertEquals(List.of("3/10"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 0, 1, null, null)));
+        assertEquals(List.of("3/10"), describe(windows.getLevelInfo(LeaderboardWindow.WEEKLY, 0, 1, null, null)));
+        assertEquals(100, dataStore.getLevelInfo(1).get(0).getResult());
+    }
+
+    @Test
+    @DisplayName("givenSubmissionRejectedByFirstListener_whenGetLevelInfo_thenRejectedResultNotRanked")
+    public void testGetLevelInfo_submissionRejectedByFirstListener_rejectedResultNotRanked() {
+        dataStore.addSubmissionListener(new RejectingListener());
+        dataStore.setInfo(1, 1, 10);
+
+        assertThrows(StorageUnavailableException.class, () -> dataStore.setInfo(2, 1, 20));
+        assertThrows(StorageUnavailableException.class, () -> dataStore.setInfoBatch(List.of(
+                UserInfo.builder().userId(3).levelId(1).result(30).build())));
+
+        assertEquals(List.of("1/10"), describe(windows.getLevelInfo(LeaderboardWindow.DAILY, 0, 1, null, null)));
+        assertEquals(List.of("1/10"), describe(dataStore.getLevelInfo(1)));
+    }
+
+    @Test
+    @DisplayName("givenWeeklyWindow_whenIndexed_thenWeekStartsOnMonday")
+    public void testIndexOf_weeklyWindow_weekStartsOnMonday() {
+        long index = LeaderboardWindow.WEEKLY.indexOf(START);
+
+        assertEquals(Instant.parse("2024-05-13T00:00:00Z"), LeaderboardWindow.WEEKLY.startOf(index));
+        assertEquals(index, LeaderboardWindow.WEEKLY.indexOf(Instant.parse("2024-05-19T23:59:59Z")));
+        assertEquals(index + 1, LeaderboardWindow.WEEKLY.indexOf(Instant.parse("2024-05-20T00:00:00Z")));
+    }
+
+    /**
+     * Listener ordered first, as the write-ahead log, rejecting every result above 10.
+     */
+    private static final class RejectingListener implements SubmissionListener, Ordered {
+        @Override
+        public void onResultSubmitted(int userId, int levelId, int result) {
+            if (result > 10) {
+                throw new StorageUnavailableException("The write-ahead log failed, results cannot be stored", null);
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    private void setTime(Instant instant) {
+        ReflectionTestUtils.setField(windows, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    private static List<String> describe(List<UserInfo> userInfo) {
+        return userInfo.stream()
+                .map(info -> info.getUserId() + "/" + info.getResult())
+                .collect(Collectors.toList());
+    }
+}
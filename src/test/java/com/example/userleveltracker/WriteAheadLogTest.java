@@ -0,0 +1,176 @@
+package com.example.userleveltracker;
+
+import com.example.userleveltracker.exception.StorageUnavailableException;
+import com.example.userleveltracker.model.WalStats;
+import com.example.userleveltracker.persistence.WriteAheadLog;
+import com.example.userleveltracker.service.DataStorageService;
+import com.example.userleveltracker.service.ResultListener;
+import com.example.userleveltracker.service.impl.InMemoryDataStorageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("givenSnapshotAndLogTail_whenRestarted_thenAllResultsRecovered")
+    public void testRecovery_snapshotAndLogTail_allResultsRecovered() throws Exception {
+        DataStorageService dataStore = newDataStore();
+        WriteAheadLog wal = newWriteAheadLog(dataStore, false);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5_000; i++) {
+            dataStore.setInfo(random.nextInt(100) + 1, random.nextInt(20) + 1, random.nextInt(1_000));
+        }
+        wal.snapshot();
+        for (int i = 0; i < 5_000; i++) {
+            dataStore.setInfo(random.nextInt(100) + 1, random.nextInt(20) + 1, random.nextInt(2_000));
+        }
+        wal.snapshot();
+        for (int i = 0; i < 1_000; i++) {
+            dataStore.setInfo(random.nextInt(100) + 1, random.nextInt(20) + 1, random.nextInt(3_000));
+        }
+        wal.stop();
+
+        DataStorageService recovered = newDataStore();
+        WriteAheadLog recoveredWal = newWriteAheadLog(recovered, false);
+        WalStats stats = recoveredWal.getStats();
+        recoveredWal.stop();
+
+        assertEquals(results(dataStore), results(recovered));
+        assertTrue(stats.getRecoveredRecords() > 0);
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+            assertFalse(names.contains("wal-1.log"), "Segment covered by the snapshot was not deleted: " + names);
+            assertTrue(names.contains("wal-2.log"), "Segment preceding the snapshot was deleted: " + names);
+        }
+    }
+
+    @Test
+    @DisplayName("givenTornRecord_whenRestarted_thenCompleteRecordsRecovered")
+    public void testRecovery_tornRecord_completeRecordsRecovered() throws Exception {
+        DataStorageService dataStore = newDataStore();
+        WriteAheadLog wal = newWriteAheadLog(dataStore, true);
+        dataStore.setInfo(1, 1, 10);
+        dataStore.setInfo(2, 1, 20);
+        wal.stop();
+        Files.write(directory.resolve("wal-1.log"), new byte[]{0, 0, 0, 3, 0}, StandardOpenOption.APPEND);
+
+        DataStorageService recovered = newDataStore();
+        newWriteAheadLog(recovered, true).stop();
+
+        assertEquals(results(dataStore), results(recovered));
+    }
+
+    @Test
+    @DisplayName("givenCorruptRecord_whenRestarted_thenRecordsBeforeItRecovered")
+    public void testRecovery_corruptRecord_recordsBeforeItRecovered() throws Exception {
+        DataStorageService dataStore = newDataStore();
+        WriteAheadLog wal = newWriteAheadLog(dataStore, true);
+        dataStore.setInfo(1, 1, 10);
+        dataStore.setInfo(2, 1, 20);
+        dataStore.setInfo(3, 1, 30);
+        wal.stop();
+        try (FileChannel segment = FileChannel.open(directory.resolve("wal-1.log"), StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.wrap(new byte[]{0x7F}), 16 + 8);
+        }
+
+        DataStorageService recovered = newDataStore();
+        WalStats stats = newWriteAheadLog(recovered, true).getStats();
+
+        assertEquals(1, stats.getRecoveredRecords());
+        assertEquals(Map.of((1L << 32) | 1, 10), results(recovered));
+    }
+
+    @Test
+    @DisplayName("givenLoggedResults_whenRestarted_thenListenersNotNotified")
+    public void testRecovery_loggedResults_listenersNotNotified() throws Exception {
+        DataStorageService dataStore = newDataStore();
+        WriteAheadLog wal = newWriteAheadLog(dataStore, true);
+        dataStore.setInfo(1, 1, 10);
+        dataStore.setInfo(2, 1, 20);
+        wal.stop();
+
+        DataStorageService recovered = newDataStore();
+        AtomicInteger improvements = new AtomicInteger();
+        AtomicInteger submissions = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        recovered.addResultListener(new ResultListener() {
+            @Override
+            public void onResultImproved(int userId, int levelId, int previousResult, int result) {
+                improvements.incrementAndGet();
+            }
+
+            @Override
+            public void onResultsLoaded() {
+                loads.incrementAndGet();
+            }
+        });
+        recovered.addSubmissionListener((userId, levelId, result) -> submissions.incrementAndGet());
+        newWriteAheadLog(recovered, true).stop();
+
+        assertEquals(results(dataStore), results(recovered));
+        assertEquals(0, improvements.get());
+        assertEquals(0, submissions.get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("givenFailedFlush_whenWriting_thenWritesRejected")
+    public void testAppend_failedFlush_writesRejected() throws Exception {
+        DataStorageService dataStore = newDataStore();
+        WriteAheadLog wal = newWriteAheadLog(dataStore, true);
+        dataStore.setInfo(1, 1, 10);
+        ((FileChannel) ReflectionTestUtils.getField(wal, "segment")).close();
+
+        assertThrows(StorageUnavailableException.class, () -> dataStore.setInfo(2, 1, 20));
+        assertThrows(StorageUnavailableException.class, () -> dataStore.setInfo(3, 1, 30));
+        assertEquals(Map.of((1L << 32) | 1, 10), results(dataStore));
+        assertTrue(wal.getStats().isFailed());
+        assertThrows(IOException.class, wal::stop);
+    }
+
+    private DataStorageService newDataStore() {
+        InMemoryDataStorageService dataStore = new InMemoryDataStorageService();
+        ReflectionTestUtils.setField(dataStore, "resultsLimit", 20);
+        ReflectionTestUtils.setField(dataStore, "maxResultsLimit", 20);
+        return dataStore;
+    }
+
+    private WriteAheadLog newWriteAheadLog(DataStorageService dataStore, boolean syncWrites) throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(dataStore);
+        ReflectionTestUtils.setField(wal, "directory", directory.toString());
+        ReflectionTestUtils.setField(wal, "fsyncIntervalMs", 5L);
+        ReflectionTestUtils.setField(wal, "syncWrites", syncWrites);
+        ReflectionTestUtils.setField(wal, "bufferRecords", 64);
+        ReflectionTestUtils.setField(wal, "snapshotIntervalMs", 3_600_000L);
+        wal.start();
+        return wal;
+    }
+
+    private static Map<Long, Integer> results(DataStorageService dataStore) {
+        Map<Long, Integer> results = new HashMap<>();
+        dataStore.forEachResult((userId, levelId, result) -> results.put(((long) userId << 32) | levelId, result));
+        return results;
+    }
+}